@@ -61,6 +61,7 @@ public class SecurityConfig {
                         .pathMatchers("/booking-service/api/flight/booking/history").authenticated()
                         .pathMatchers("/booking-service/api/flight/booking/**").authenticated()
                         .pathMatchers("/booking-service/api/flight/ticket/**").authenticated()
+                        .pathMatchers("/booking-service/api/flight/admin/**").hasRole("ADMIN")
 
                         .anyExchange().authenticated()
                 )
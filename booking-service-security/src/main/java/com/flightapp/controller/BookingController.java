@@ -1,8 +1,12 @@
 package com.flightapp.controller;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -11,12 +15,17 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.flightapp.dto.BookingStats;
+import com.flightapp.dto.FlightCancellationResult;
 import com.flightapp.model.BookingHistoryResponse;
 import com.flightapp.model.FLIGHTTYPE;
 import com.flightapp.model.Passenger;
 import com.flightapp.model.Ticket;
+import com.flightapp.service.BookingExport;
+import com.flightapp.service.BookingReports;
 import com.flightapp.service.BookingService;
 
 import jakarta.validation.Valid;
@@ -30,10 +39,19 @@ import reactor.core.publisher.Mono;
 @RequestMapping("/api/flight")
 public class BookingController {
 
+	private static final String DEFAULT_HISTORY_LIMIT = "50";
+
+	private static final String TEXT_CSV_VALUE = "text/csv";
+
 	private final BookingService bookingService;
+	private final BookingExport bookingExport;
+	private final BookingReports bookingReports;
 
-	public BookingController(BookingService bookingService) {
+	public BookingController(BookingService bookingService, BookingExport bookingExport,
+			BookingReports bookingReports) {
 		this.bookingService = bookingService;
+		this.bookingExport = bookingExport;
+		this.bookingReports = bookingReports;
 	}
 
 	@Data
@@ -45,14 +63,26 @@ public class BookingController {
 
 		@NotEmpty(message = "At least one passenger is required")
 		private List<@Valid Passenger> passengers;
+
+		// Seat numbers may be left out; the service picks adjacent free seats.
+		private boolean autoAssignSeats;
+
+		// When the flight is full the request is waitlisted (202) instead of rejected.
+		private boolean joinWaitlist;
 	}
 
 	@PostMapping("/booking/{departureFlightId}")
 	public Mono<ResponseEntity<String>> bookTicket(@PathVariable String departureFlightId,
-			@Valid @RequestBody BookingRequest request, @RequestHeader("Authorization") String authHeader) {
+			@Valid @RequestBody BookingRequest request, JwtAuthenticationToken auth,
+			@RequestHeader("Authorization") String authHeader,
+			@RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
 
-		return bookingService.bookTicket(departureFlightId, request.getReturnFlightId(), request.getPassengers(),
-				request.getTripType(), authHeader).map(response -> ResponseEntity.status(201).body(response));
+		String email = auth.getToken().getSubject();
+		return bookingService.bookTicket(email, departureFlightId, request.getReturnFlightId(),
+				request.getPassengers(), request.getTripType(), request.isAutoAssignSeats(),
+				request.isJoinWaitlist(), authHeader, idempotencyKey)
+				.map(outcome -> outcome.waitlisted() ? ResponseEntity.accepted().body(outcome.id())
+						: ResponseEntity.status(201).body(outcome.id()));
 	}
 
 	@GetMapping("/ticket/{pnr}")
@@ -66,13 +96,48 @@ public class BookingController {
 //	}
 
 	@GetMapping("/booking/history")
-	public Flux<BookingHistoryResponse> myHistory(JwtAuthenticationToken auth) {
+	public Flux<BookingHistoryResponse> myHistory(JwtAuthenticationToken auth,
+			@RequestParam(required = false) String before,
+			@RequestParam(defaultValue = DEFAULT_HISTORY_LIMIT) int limit) {
 		String email = auth.getToken().getSubject();
-		return bookingService.historyByEmail(email, auth.getToken().getTokenValue());
+		return bookingService.historyByEmail(email, auth.getToken().getTokenValue(), before, limit);
 	}
 
 	@DeleteMapping("/booking/cancel/{pnr}")
 	public Mono<String> cancel(@PathVariable String pnr, @RequestHeader("Authorization") String token) {
 		return bookingService.cancelByPnr(pnr, token);
 	}
+
+	@DeleteMapping("/admin/flights/{flightId}/bookings")
+	@PreAuthorize("hasRole('ADMIN')")
+	public Mono<FlightCancellationResult> cancelFlight(@PathVariable String flightId,
+			@RequestHeader("Authorization") String token) {
+		return bookingService.cancelFlight(flightId, token);
+	}
+
+	// Tickets booked in [from, to), negotiated by Accept as NDJSON (one ticket per line) or CSV.
+	@GetMapping(value = "/admin/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+	@PreAuthorize("hasRole('ADMIN')")
+	public Flux<Ticket> exportTickets(
+			@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+			@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+		return bookingExport.tickets(from, to);
+	}
+
+	@GetMapping(value = "/admin/export", produces = TEXT_CSV_VALUE)
+	@PreAuthorize("hasRole('ADMIN')")
+	public Flux<String> exportTicketsCsv(
+			@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+			@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+		return bookingExport.csv(from, to);
+	}
+
+	// groupBy is flight, route or day; leaving out 'to' reports up to now.
+	@GetMapping("/admin/stats/{groupBy}")
+	@PreAuthorize("hasRole('ADMIN')")
+	public Mono<List<BookingStats>> stats(@PathVariable String groupBy,
+			@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+			@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+		return bookingReports.stats(groupBy, from, to);
+	}
 }
@@ -0,0 +1,16 @@
+package com.flightapp.dto;
+
+/**
+ * Result of a booking request: the PNR of the booking, or the waitlist entry
+ * id when the flight was full and the request was waitlisted instead.
+ */
+public record BookingOutcome(String id, boolean waitlisted) {
+
+	public static BookingOutcome booked(String pnr) {
+		return new BookingOutcome(pnr, false);
+	}
+
+	public static BookingOutcome waitlisted(String entryId) {
+		return new BookingOutcome(entryId, true);
+	}
+}
@@ -0,0 +1,27 @@
+package com.flightapp.dto;
+
+import java.util.Locale;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Booking totals for one flight, route or booking day. Revenue and seats count
+ * only tickets that are still active; cancellationRate is cancelled over
+ * bookings.
+ */
+public record BookingStats(String key, long bookings, long cancelled, double cancellationRate, double revenue,
+		long seats) {
+
+	public enum Grouping {
+		FLIGHT, ROUTE, DAY;
+
+		public static Grouping of(String name) {
+			try {
+				return valueOf(name.toUpperCase(Locale.ROOT));
+			} catch (IllegalArgumentException e) {
+				throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Stats can be grouped by flight, route or day");
+			}
+		}
+	}
+}
@@ -0,0 +1,11 @@
+package com.flightapp.dto;
+
+import java.util.Map;
+
+/**
+ * Outcome of cancelling every booking on a flight: how many tickets were
+ * cancelled and how many seats were given back on each affected flight.
+ * Flights whose release failed are left out of seatsReleased.
+ */
+public record FlightCancellationResult(String flightId, long ticketsCancelled, Map<String, Integer> seatsReleased) {
+}
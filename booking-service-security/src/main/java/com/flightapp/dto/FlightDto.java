@@ -12,6 +12,7 @@ public class FlightDto {
 	private LocalDateTime arrivalTime;
 	private double price;
 	private int availableSeats;
+	private int totalSeats;
 
 	public String getId() {
 		return id;
@@ -84,4 +85,12 @@ public class FlightDto {
 	public void setAvailableSeats(int availableSeats) {
 		this.availableSeats = availableSeats;
 	}
+
+	public int getTotalSeats() {
+		return totalSeats;
+	}
+
+	public void setTotalSeats(int totalSeats) {
+		this.totalSeats = totalSeats;
+	}
 }
\ No newline at end of file
@@ -0,0 +1,44 @@
+package com.flightapp.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+import org.bson.types.ObjectId;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.flightapp.model.Ticket;
+
+/**
+ * Keyset position in booking history, newest first by (bookingTime, id),
+ * exchanged with clients as an opaque URL-safe token.
+ */
+public record HistoryCursor(LocalDateTime bookingTime, ObjectId id) {
+
+	private static final String SEPARATOR = "|";
+
+	public static HistoryCursor of(Ticket ticket) {
+		return new HistoryCursor(ticket.getBookingTime(), new ObjectId(ticket.getId()));
+	}
+
+	public String encode() {
+		String raw = bookingTime + SEPARATOR + id.toHexString();
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+
+	public static HistoryCursor decode(String token) {
+		if (token == null || token.isBlank()) {
+			return null;
+		}
+		try {
+			String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+			int split = raw.indexOf(SEPARATOR);
+			return new HistoryCursor(LocalDateTime.parse(raw.substring(0, split)),
+					new ObjectId(raw.substring(split + 1)));
+		} catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+		}
+	}
+}
@@ -0,0 +1,8 @@
+package com.flightapp.dto;
+
+/**
+ * One ticket's share of a batch seat release sent to flight-service. A null
+ * reservationId makes flight-service release the seats unconditionally.
+ */
+public record SeatRelease(String reservationId, int seatCount) {
+}
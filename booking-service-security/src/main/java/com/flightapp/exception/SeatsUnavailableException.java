@@ -0,0 +1,11 @@
+package com.flightapp.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+// The flight is too full for the request; such bookings may join the waitlist.
+public class SeatsUnavailableException extends ResponseStatusException {
+	public SeatsUnavailableException(String message) {
+		super(HttpStatus.CONFLICT, message);
+	}
+}
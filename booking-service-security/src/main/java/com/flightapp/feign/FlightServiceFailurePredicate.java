@@ -0,0 +1,17 @@
+package com.flightapp.feign;
+
+import java.util.function.Predicate;
+
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+/**
+ * 4xx answers such as "not enough seats" mean flight-service is healthy, so
+ * they do not count towards opening the flightService circuit breaker.
+ */
+public class FlightServiceFailurePredicate implements Predicate<Throwable> {
+
+	@Override
+	public boolean test(Throwable e) {
+		return !(e instanceof WebClientResponseException response && response.getStatusCode().is4xxClientError());
+	}
+}
@@ -1,25 +1,147 @@
 package com.flightapp.feign;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.server.ResponseStatusException;
 
 import com.flightapp.dto.FlightDto;
+import com.flightapp.dto.SeatRelease;
 
-import lombok.RequiredArgsConstructor;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.github.resilience4j.reactor.timelimiter.TimeLimiterOperator;
+import io.github.resilience4j.timelimiter.TimeLimiter;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+/**
+ * Every call goes through the flightService time limiter, semaphore bulkhead
+ * and circuit breaker, in that order from the inside out. Calls that time out,
+ * are rejected by the bulkhead or hit an open breaker fail fast with 503.
+ */
 @Component
-@RequiredArgsConstructor
 public class FlightWebClient {
 
-    private final WebClient.Builder webClientBuilder;
+    // flight-service caps one batch call at 500 ids
+    private static final int MAX_BATCH_IDS = 500;
+
+    public static final String FLIGHT_SERVICE = "flightService";
 
+    private final WebClient webClient;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+    private final TimeLimiter timeLimiter;
+
+    public FlightWebClient(WebClient.Builder webClientBuilder, CircuitBreakerRegistry circuitBreakerRegistry,
+            BulkheadRegistry bulkheadRegistry, TimeLimiterRegistry timeLimiterRegistry) {
+        this.webClient = webClientBuilder.build();
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker(FLIGHT_SERVICE);
+        this.bulkhead = bulkheadRegistry.bulkhead(FLIGHT_SERVICE);
+        this.timeLimiter = timeLimiterRegistry.timeLimiter(FLIGHT_SERVICE);
+    }
+
+    // Completes empty when flight-service answers 404.
     public Mono<FlightDto> getFlight(String flightId, String auth) {
-        return webClientBuilder.build()
+        return webClient
                 .get()
                 .uri("http://FLIGHT-SERVICE/api/flight/{id}", flightId)
                 .header("Authorization", auth)
                 .retrieve()
-                .bodyToMono(FlightDto.class);
+                .bodyToMono(FlightDto.class)
+                .onErrorResume(WebClientResponseException.NotFound.class, e -> Mono.empty())
+                .transformDeferred(this::guard);
+    }
+
+    public Flux<FlightDto> getFlights(Collection<String> flightIds, String auth) {
+        if (flightIds.isEmpty()) {
+            return Flux.empty();
+        }
+        return Flux.fromIterable(flightIds)
+                .buffer(MAX_BATCH_IDS)
+                .concatMap(ids -> webClient
+                        .post()
+                        .uri("http://FLIGHT-SERVICE/api/flight/batch")
+                        .header("Authorization", auth)
+                        .bodyValue(ids)
+                        .retrieve()
+                        .bodyToFlux(FlightDto.class)
+                        .transformDeferred(this::guard));
+    }
+
+    // With a reservationId flight-service applies the reserve or release at most once.
+    public Mono<FlightDto> reserveSeats(String flightId, int seatCount, String reservationId, String auth) {
+        return webClient
+                .put()
+                .uri("http://FLIGHT-SERVICE/api/flight/internal/{id}/reserve/{seatCount}",
+                        uri -> uri.queryParamIfPresent("reservationId", Optional.ofNullable(reservationId))
+                                .build(flightId, seatCount))
+                .header("Authorization", auth)
+                .retrieve()
+                .bodyToMono(FlightDto.class)
+                .transformDeferred(this::guard);
+    }
+
+    public Mono<FlightDto> releaseSeats(String flightId, int seatCount, String reservationId, String auth) {
+        return webClient
+                .put()
+                .uri("http://FLIGHT-SERVICE/api/flight/internal/{id}/release/{seatCount}",
+                        uri -> uri.queryParamIfPresent("reservationId", Optional.ofNullable(reservationId))
+                                .build(flightId, seatCount))
+                .header("Authorization", auth)
+                .retrieve()
+                .bodyToMono(FlightDto.class)
+                .transformDeferred(this::guard);
+    }
+
+    // Releases several reservations on one flight, sent in chunks of at most MAX_BATCH_IDS.
+    public Mono<FlightDto> releaseSeats(String flightId, List<SeatRelease> releases, String auth) {
+        return Flux.fromIterable(releases)
+                .buffer(MAX_BATCH_IDS)
+                .concatMap(chunk -> webClient
+                        .put()
+                        .uri("http://FLIGHT-SERVICE/api/flight/internal/{id}/release", flightId)
+                        .header("Authorization", auth)
+                        .bodyValue(chunk)
+                        .retrieve()
+                        .bodyToMono(FlightDto.class)
+                        .transformDeferred(this::guard))
+                .last();
+    }
+
+    private <T> Mono<T> guard(Mono<T> call) {
+        return call.transformDeferred(TimeLimiterOperator.of(timeLimiter))
+                .transformDeferred(BulkheadOperator.of(bulkhead))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .onErrorMap(FlightWebClient::isRejected, FlightWebClient::unavailable);
+    }
+
+    private <T> Flux<T> guard(Flux<T> call) {
+        return call.transformDeferred(TimeLimiterOperator.of(timeLimiter))
+                .transformDeferred(BulkheadOperator.of(bulkhead))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .onErrorMap(FlightWebClient::isRejected, FlightWebClient::unavailable);
+    }
+
+    private static boolean isRejected(Throwable e) {
+        return e instanceof TimeoutException || e instanceof BulkheadFullException
+                || e instanceof CallNotPermittedException;
+    }
+
+    private static Throwable unavailable(Throwable e) {
+        return new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Flight service unavailable", e);
     }
 }
@@ -0,0 +1,66 @@
+package com.flightapp.messaging;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.ReactiveMongoDatabaseFactory;
+import org.springframework.data.mongodb.ReactiveMongoTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+
+import com.flightapp.model.OutboxEvent;
+import com.flightapp.model.Ticket;
+import com.flightapp.repository.OutboxRepository;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Records booking events in the outbox collection as part of the write that
+ * produced them. {@link OutboxRelay} publishes the rows to Kafka afterwards.
+ * The ticket and outbox writes share a Mongo transaction, which needs a replica
+ * set. Only with {@code booking.outbox.transactions-enabled=false}, for a
+ * standalone Mongo, is the outbox row written in the same chain without one,
+ * and a crash between the two writes can then lose the event.
+ */
+@Component
+public class BookingOutbox {
+
+	private final OutboxRepository outboxRepository;
+	private final TransactionalOperator transactionalOperator;
+
+	public BookingOutbox(OutboxRepository outboxRepository, ReactiveMongoDatabaseFactory databaseFactory,
+			@Value("${booking.outbox.transactions-enabled:true}") boolean transactionsEnabled) {
+		this.outboxRepository = outboxRepository;
+		this.transactionalOperator = transactionsEnabled
+				? TransactionalOperator.create(new ReactiveMongoTransactionManager(databaseFactory))
+				: null;
+	}
+
+	public <T> Mono<T> inUnitOfWork(Mono<T> work) {
+		return transactionalOperator != null ? transactionalOperator.transactional(work) : work;
+	}
+
+	public Mono<OutboxEvent> record(String eventType, Ticket ticket) {
+		return outboxRepository.save(event(eventType, ticket, Instant.now()));
+	}
+
+	// One insert for all the events, and emits how many were recorded.
+	public Mono<Long> recordAll(String eventType, List<Ticket> tickets) {
+		Instant now = Instant.now();
+		return outboxRepository.saveAll(tickets.stream().map(ticket -> event(eventType, ticket, now)).toList())
+				.count();
+	}
+
+	private static OutboxEvent event(String eventType, Ticket ticket, Instant now) {
+		OutboxEvent event = new OutboxEvent();
+		event.setEventType(eventType);
+		event.setPnr(ticket.getPnr());
+		event.setUserEmail(ticket.getUserEmail());
+		event.setTotalPrice(ticket.getTotalPrice());
+		event.setStatus(OutboxEvent.Status.PENDING);
+		event.setCreatedAt(now);
+		event.setNextAttemptAt(now);
+		return event;
+	}
+}
@@ -0,0 +1,195 @@
+package com.flightapp.messaging;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.flightapp.model.OutboxEvent;
+import com.flightapp.repository.OutboxRepository;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Drains pending outbox rows to the booking-events topic. Each pass claims one
+ * batch for {@code booking.outbox.claim-lease-ms}, so other instances skip it,
+ * sends it, marks the delivered rows published with a single update and pushes
+ * failed rows back with exponential backoff. Rows of an instance that dies
+ * mid-batch are picked up again once the lease runs out. Delivery is at least
+ * once.
+ * <p>
+ * Events of one PNR are sent one after another in row order, while different
+ * PNRs are sent concurrently. When a send fails, the PNR's later rows in the
+ * batch are not sent and are due just after the failed row's retry, so the
+ * topic never sees a cancellation before its booking.
+ */
+@Slf4j
+@Component
+public class OutboxRelay {
+
+	static final String TOPIC = "booking-events";
+
+	private static final Duration MAX_BACKOFF = Duration.ofMinutes(5);
+
+	private final OutboxRepository outboxRepository;
+	private final ReactiveMongoTemplate mongoTemplate;
+	private final KafkaTemplate<String, BookingEvent> kafkaTemplate;
+	private final int batchSize;
+	private final Duration sendTimeout;
+	private final Duration claimLease;
+
+	private final AtomicBoolean draining = new AtomicBoolean();
+
+	public OutboxRelay(OutboxRepository outboxRepository, ReactiveMongoTemplate mongoTemplate,
+			KafkaTemplate<String, BookingEvent> kafkaTemplate,
+			@Value("${booking.outbox.batch-size:100}") int batchSize,
+			@Value("${booking.outbox.send-timeout-ms:10000}") long sendTimeoutMs,
+			@Value("${booking.outbox.claim-lease-ms:60000}") long claimLeaseMs) {
+		this.outboxRepository = outboxRepository;
+		this.mongoTemplate = mongoTemplate;
+		this.kafkaTemplate = kafkaTemplate;
+		this.batchSize = batchSize;
+		this.sendTimeout = Duration.ofMillis(sendTimeoutMs);
+		this.claimLease = Duration.ofMillis(claimLeaseMs);
+	}
+
+	@Scheduled(fixedDelayString = "${booking.outbox.poll-interval-ms:1000}")
+	public void poll() {
+		if (!draining.compareAndSet(false, true)) {
+			return;
+		}
+		drain().doFinally(signal -> draining.set(false)).subscribe(
+				published -> {
+					if (published > 0) {
+						log.debug("Outbox relay published {} events", published);
+					}
+				}, ex -> log.warn("Outbox relay pass failed, retrying on next poll", ex));
+	}
+
+	/**
+	 * Publishes due rows batch by batch until a batch comes back short, and emits
+	 * how many rows were published.
+	 */
+	Mono<Long> drain() {
+		return drainBatch()
+				.expand(batch -> batch.fetched() == batchSize ? drainBatch() : Mono.empty())
+				.map(BatchResult::published)
+				.reduce(0L, Long::sum);
+	}
+
+	private Mono<BatchResult> drainBatch() {
+		return outboxRepository
+				.findByStatusAndNextAttemptAtLessThanEqualOrderByNextAttemptAtAsc(OutboxEvent.Status.PENDING,
+						Instant.now(), PageRequest.of(0, batchSize))
+				.collectList()
+				.flatMap(due -> claim(due)
+						.collect(Collectors.groupingBy(OutboxEvent::getPnr, LinkedHashMap::new, Collectors.toList()))
+						.flatMapMany(byPnr -> Flux.fromIterable(byPnr.values()))
+						.flatMap(rows -> publishInOrder(rows, 0))
+						.collectList()
+						.flatMap(results -> {
+							List<String> published = results.stream().filter(Delivery::delivered).map(Delivery::id)
+									.toList();
+							return markPublished(published).thenReturn(new BatchResult(due.size(), published.size()));
+						}));
+	}
+
+	// Pushing nextAttemptAt past the lease hides the rows from every other poll; the
+	// token tells which of the due rows this instance won.
+	private Flux<OutboxEvent> claim(List<OutboxEvent> due) {
+		if (due.isEmpty()) {
+			return Flux.empty();
+		}
+		Instant now = Instant.now();
+		String token = UUID.randomUUID().toString();
+		List<String> ids = due.stream().map(OutboxEvent::getId).toList();
+		Query unclaimed = new Query(Criteria.where("_id").in(ids).and("status").is(OutboxEvent.Status.PENDING)
+				.and("nextAttemptAt").lte(now));
+		Update claim = new Update().set("claimToken", token).set("nextAttemptAt", now.plus(claimLease));
+		Query claimed = new Query(Criteria.where("_id").in(ids).and("claimToken").is(token));
+		return mongoTemplate.updateMulti(unclaimed, claim, OutboxEvent.class)
+				.flatMapMany(result -> result.getModifiedCount() == 0 ? Flux.empty()
+						: mongoTemplate.find(claimed, OutboxEvent.class).collectMap(OutboxEvent::getId)
+								.flatMapIterable(won -> due.stream().map(row -> won.get(row.getId()))
+										.filter(Objects::nonNull).toList()));
+	}
+
+	// The next row of a PNR is only sent once the one before it is on the topic.
+	private Flux<Delivery> publishInOrder(List<OutboxEvent> rows, int from) {
+		if (from == rows.size()) {
+			return Flux.empty();
+		}
+		OutboxEvent row = rows.get(from);
+		return publish(row).flatMapMany(delivery -> delivery.delivered()
+				? Flux.just(delivery).concatWith(publishInOrder(rows, from + 1))
+				: holdBack(rows.subList(from + 1, rows.size()), row.getNextAttemptAt()).thenMany(Flux.just(delivery)));
+	}
+
+	// Held rows come due a millisecond apart after the failed row, keeping their order.
+	private Mono<Void> holdBack(List<OutboxEvent> rows, Instant retryAt) {
+		return Flux.range(0, rows.size())
+				.concatMap(i -> {
+					OutboxEvent row = rows.get(i);
+					row.setNextAttemptAt(retryAt.plusMillis(i + 1L));
+					return outboxRepository.save(row);
+				})
+				.then();
+	}
+
+	private Mono<Delivery> publish(OutboxEvent row) {
+		BookingEvent event = BookingEvent.builder().eventType(row.getEventType()).pnr(row.getPnr())
+				.userEmail(row.getUserEmail()).totalPrice(row.getTotalPrice()).build();
+		// send blocks while the producer fetches metadata or its buffer is full
+		return Mono.fromFuture(() -> kafkaTemplate.send(TOPIC, row.getPnr(), event))
+				.subscribeOn(Schedulers.boundedElastic())
+				.timeout(sendTimeout)
+				.thenReturn(new Delivery(row.getId(), true))
+				.onErrorResume(ex -> scheduleRetry(row, ex).thenReturn(new Delivery(row.getId(), false)));
+	}
+
+	private Mono<Void> markPublished(List<String> ids) {
+		if (ids.isEmpty()) {
+			return Mono.empty();
+		}
+		Query query = new Query(Criteria.where("_id").in(ids));
+		Update update = new Update().set("status", OutboxEvent.Status.PUBLISHED).set("publishedAt", Instant.now());
+		return mongoTemplate.updateMulti(query, update, OutboxEvent.class).then();
+	}
+
+	private Mono<OutboxEvent> scheduleRetry(OutboxEvent row, Throwable cause) {
+		int attempts = row.getAttempts() + 1;
+		log.warn("Publishing {} for PNR {} failed (attempt {})", row.getEventType(), row.getPnr(), attempts, cause);
+		row.setAttempts(attempts);
+		row.setLastError(cause.toString());
+		row.setNextAttemptAt(Instant.now().plus(backoff(attempts)));
+		return outboxRepository.save(row);
+	}
+
+	static Duration backoff(int attempts) {
+		Duration delay = Duration.ofSeconds(1L << Math.min(attempts, 16));
+		return delay.compareTo(MAX_BACKOFF) > 0 ? MAX_BACKOFF : delay;
+	}
+
+	private record Delivery(String id, boolean delivered) {
+	}
+
+	private record BatchResult(int fetched, long published) {
+	}
+}
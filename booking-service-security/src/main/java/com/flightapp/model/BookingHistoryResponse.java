@@ -27,9 +27,15 @@ public class BookingHistoryResponse {
     private LocalDateTime departureTime;
     private LocalDateTime arrivalTime;
 
+    // Return leg, null for one-way tickets
+    private ReturnFlightDTO returnFlight;
+
     // Passengers
     private List<Passenger> passengers;
 
+    // Pass as 'before' to get the bookings after this one
+    private String cursor;
+
     // ✅ EXPLICIT CONSTRUCTOR (fixes error)
     public BookingHistoryResponse(
             String id,
@@ -0,0 +1,46 @@
+package com.flightapp.model;
+
+import java.time.Instant;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.Data;
+
+/**
+ * Progress of one booking across the flight-service seat reservations. The
+ * saga id doubles as the reservation id sent to flight-service, which makes
+ * reserve and release safe to repeat.
+ */
+@Data
+@Document(collection = "booking_sagas")
+@CompoundIndex(name = "state_updated", def = "{'state': 1, 'updatedAt': 1}")
+public class BookingSaga {
+
+	public enum State {
+		PENDING, DEP_RESERVED, RET_RESERVED, CONFIRMED, COMPENSATING, COMPENSATED;
+
+		public boolean isTerminal() {
+			return this == CONFIRMED || this == COMPENSATED;
+		}
+	}
+
+	@Id
+	private String id;
+
+	private String pnr;
+	private String departureFlightId;
+	private String returnFlightId;
+	private int seatCount;
+
+	private State state;
+	private Instant createdAt;
+	private Instant updatedAt;
+	private String lastError;
+
+	// Finished sagas are removed by Mongo after 30 days.
+	@Indexed(expireAfter = "30d")
+	private Instant finishedAt;
+}
@@ -0,0 +1,29 @@
+package com.flightapp.model;
+
+import java.time.LocalDateTime;
+
+import com.flightapp.dto.FlightDto;
+
+import lombok.Value;
+
+/**
+ * Flight details as they were when the ticket was booked. Stored on the ticket
+ * so history can be served without asking flight-service.
+ */
+@Value
+public class FlightSnapshot {
+	String flightId;
+	String flightNumber;
+	String airline;
+	String fromPlace;
+	String toPlace;
+	LocalDateTime departureTime;
+	LocalDateTime arrivalTime;
+	double price;
+
+	public static FlightSnapshot of(FlightDto flight) {
+		return new FlightSnapshot(flight.getId(), flight.getFlightNumber(), flight.getAirline(),
+				flight.getFromPlace(), flight.getToPlace(), flight.getDepartureTime(), flight.getArrivalTime(),
+				flight.getPrice());
+	}
+}
@@ -0,0 +1,35 @@
+package com.flightapp.model;
+
+import java.time.Instant;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.Data;
+
+@Data
+@Document(collection = "booking_idempotency")
+public class IdempotencyRecord {
+
+	public enum Status {
+		IN_PROGRESS, COMPLETED
+	}
+
+	// user email and Idempotency-Key joined with ':'
+	@Id
+	private String id;
+
+	private String fingerprint;
+	private Status status;
+	private String pnr;
+
+	// Set instead of pnr when the full flight waitlisted the request.
+	private String waitlistEntryId;
+
+	// An IN_PROGRESS claim older than the lease is taken to be abandoned.
+	private Instant claimedAt;
+
+	@Indexed(expireAfter = "24h")
+	private Instant createdAt;
+}
@@ -0,0 +1,41 @@
+package com.flightapp.model;
+
+import java.time.Instant;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.Data;
+
+@Data
+@Document(collection = "outbox")
+@CompoundIndex(name = "pending_by_due_time", def = "{'status': 1, 'nextAttemptAt': 1}")
+public class OutboxEvent {
+
+	public enum Status {
+		PENDING, PUBLISHED
+	}
+
+	@Id
+	private String id;
+
+	private String eventType;
+	private String pnr;
+	private String userEmail;
+	private Double totalPrice;
+
+	private Status status;
+	private int attempts;
+	private Instant createdAt;
+	private Instant nextAttemptAt;
+	private String lastError;
+
+	// Relay pass that holds the row until nextAttemptAt.
+	private String claimToken;
+
+	// Published rows are removed by Mongo a week after publishing.
+	@Indexed(expireAfter = "7d")
+	private Instant publishedAt;
+}
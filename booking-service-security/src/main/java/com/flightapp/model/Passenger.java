@@ -1,7 +1,10 @@
 package com.flightapp.model;
 
 import org.springframework.data.annotation.Id;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
 import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import jakarta.validation.constraints.Min;
@@ -11,10 +14,12 @@ import lombok.Data;
 
 @Data
 @Document
+// Only seats still held are unique; a cancelled ticket's passengers keep their seat as releasedSeatNumber.
 @CompoundIndex(
-		  name = "unique_seat_per_flight",
+		  name = "unique_held_seat_per_flight",
 		  def = "{'flightId': 1, 'seatNumber': 1}",
-		  unique = true
+		  unique = true,
+		  partialFilter = "{'seatNumber': {$exists: true}}"
 		)
 public class Passenger {
 
@@ -33,10 +38,15 @@ public class Passenger {
 	@Min(value = 1, message = "Passenger age must be at least 1")
 	private Integer age;
 
-	@NotBlank(message = "Seat number cannot be blank")
+	// Required unless the booking asks for seats to be auto-assigned.
 	private String seatNumber;
 
 	private String mealPreference;
 
+	// Seat given back when the ticket was cancelled; set instead of seatNumber.
+	@JsonProperty(access = JsonProperty.Access.READ_ONLY)
+	private String releasedSeatNumber;
+
+	@Indexed
 	private String ticketId;
 }
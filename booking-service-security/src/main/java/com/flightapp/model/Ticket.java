@@ -4,7 +4,9 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 import org.springframework.data.annotation.Id;
-import org.springframework.data.annotation.Transient;
+import org.springframework.data.annotation.ReadOnlyProperty;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import jakarta.validation.constraints.Min;
@@ -14,26 +16,37 @@ import lombok.Data;
 
 @Data
 @Document(collection = "tickets")
+@CompoundIndex(name = "user_booking_time", def = "{'userEmail': 1, 'bookingTime': -1, '_id': -1}")
 public class Ticket {
 
 	@Id
 	private String id;
 
 	@NotBlank
+	@Indexed(unique = true)
 	private String pnr;
 
 	@NotBlank(message = "User email cannot be blank")
 	private String userEmail;
 
+	// Both flight ids are indexed so a cancelled flight's bookings can be found.
 	@NotBlank(message = "Departure flight ID cannot be blank")
+	@Indexed
 	private String departureFlightId;
 
+	@Indexed(sparse = true)
 	private String returnFlightId;
 
+	// Flight details at booking time; missing on tickets created before snapshots existed
+	private FlightSnapshot departureFlight;
+	private FlightSnapshot returnFlight;
+
 	@NotNull(message = "Trip type must be provided")
 	private FLIGHTTYPE tripType;
 
+	// Indexed on its own for the admin export by booking date.
 	@NotNull(message = "Booking time cannot be null")
+	@Indexed
 	private LocalDateTime bookingTime;
 
 	private String seatsBooked;
@@ -44,6 +57,13 @@ public class Ticket {
 	private Double totalPrice;
 	private boolean canceled;
 
-	@Transient
+	// Set by the update that cancelled the ticket, so concurrent cancellations can tell which one won
+	private String cancellationId;
+
+	// saga that reserved the seats, also the reservation id held by flight-service
+	private String sagaId;
+
+	// Filled in by the passenger lookup on reads; passengers are stored in their own collection
+	@ReadOnlyProperty
 	private List<Passenger> passengers;
 }
@@ -0,0 +1,83 @@
+package com.flightapp.model;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.Data;
+
+/**
+ * A booking request waiting for seats on its departure flight. Entries are
+ * promoted oldest first when a cancellation frees seats on that flight.
+ */
+@Data
+@Document(collection = "booking_waitlist")
+@CompoundIndexes({
+		@CompoundIndex(name = "waiting_by_flight", def = "{'flightId': 1, 'status': 1, 'enqueuedAt': 1}"),
+		@CompoundIndex(name = "status_updated", def = "{'status': 1, 'updatedAt': 1}")
+})
+public class WaitlistEntry {
+
+	public enum Status {
+		WAITING, PROMOTING, PROMOTED, FAILED
+	}
+
+	@Id
+	private String id;
+
+	private String userEmail;
+	private String flightId;
+	private String returnFlightId;
+	private FLIGHTTYPE tripType;
+	private List<WaitingPassenger> passengers;
+	private boolean autoAssignSeats;
+	private int seatCount;
+
+	private Status status;
+	private Instant enqueuedAt;
+	private Instant updatedAt;
+	private String pnr;
+	private String lastError;
+
+	// Promotion that holds the entry while it is PROMOTING.
+	private String claimToken;
+
+	// Promoted and failed entries are removed by Mongo after 30 days.
+	@Indexed(expireAfter = "30d")
+	private Instant finishedAt;
+
+	// Kept apart from Passenger so its unique seat index is not applied to the waitlist.
+	@Data
+	public static class WaitingPassenger {
+		private String name;
+		private String gender;
+		private Integer age;
+		private String seatNumber;
+		private String mealPreference;
+
+		public static WaitingPassenger of(Passenger passenger) {
+			WaitingPassenger waiting = new WaitingPassenger();
+			waiting.setName(passenger.getName());
+			waiting.setGender(passenger.getGender());
+			waiting.setAge(passenger.getAge());
+			waiting.setSeatNumber(passenger.getSeatNumber());
+			waiting.setMealPreference(passenger.getMealPreference());
+			return waiting;
+		}
+
+		public Passenger toPassenger() {
+			Passenger passenger = new Passenger();
+			passenger.setName(name);
+			passenger.setGender(gender);
+			passenger.setAge(age);
+			passenger.setSeatNumber(seatNumber);
+			passenger.setMealPreference(mealPreference);
+			return passenger;
+		}
+	}
+}
@@ -0,0 +1,61 @@
+package com.flightapp.repository;
+
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.stereotype.Component;
+
+import com.flightapp.model.BookingSaga;
+import com.flightapp.model.IdempotencyRecord;
+import com.flightapp.model.OutboxEvent;
+import com.flightapp.model.Passenger;
+import com.flightapp.model.Ticket;
+import com.flightapp.model.WaitlistEntry;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Ensures the indexes declared on the booking documents exist once the
+ * application is ready, since automatic index creation is off. Runs without
+ * blocking startup; failures are logged so the service can still come up while
+ * Mongo is unavailable. Indexes replaced by a new definition are dropped once
+ * their replacement exists.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BookingIndexInitializer {
+
+	private static final List<Class<?>> INDEXED_DOCUMENTS = List.of(Ticket.class, Passenger.class,
+			OutboxEvent.class, IdempotencyRecord.class, BookingSaga.class, WaitlistEntry.class);
+
+	// Held every passenger's seat, including those of cancelled tickets.
+	private static final Map<Class<?>, String> RETIRED_INDEXES = Map.of(Passenger.class, "unique_seat_per_flight");
+
+	private final ReactiveMongoTemplate mongoTemplate;
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void ensureIndexes() {
+		IndexResolver resolver = IndexResolver.create(mongoTemplate.getConverter().getMappingContext());
+
+		Flux.fromIterable(INDEXED_DOCUMENTS)
+				.concatMap(type -> Flux.fromIterable(resolver.resolveIndexFor(type))
+						.concatMap(mongoTemplate.indexOps(type)::createIndex))
+				.collectList()
+				.flatMap(names -> Flux.fromIterable(RETIRED_INDEXES.entrySet())
+						.concatMap(retired -> mongoTemplate.indexOps(retired.getKey()).getIndexInfo()
+								.filter(index -> index.getName().equals(retired.getValue()))
+								.concatMap(index -> mongoTemplate.indexOps(retired.getKey()).dropIndex(index.getName())
+										.doOnSuccess(done -> log.info("Dropped retired index {}", index.getName()))))
+						.then(Mono.just(names)))
+				.subscribe(names -> log.info("Verified booking indexes {}", names),
+						ex -> log.error("Could not verify booking indexes", ex));
+	}
+}
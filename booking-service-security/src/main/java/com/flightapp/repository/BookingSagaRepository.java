@@ -0,0 +1,16 @@
+package com.flightapp.repository;
+
+import java.time.Instant;
+import java.util.Collection;
+
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+
+import com.flightapp.model.BookingSaga;
+
+import reactor.core.publisher.Flux;
+
+@Repository
+public interface BookingSagaRepository extends ReactiveMongoRepository<BookingSaga, String> {
+	Flux<BookingSaga> findByStateInAndUpdatedAtBefore(Collection<BookingSaga.State> states, Instant updatedBefore);
+}
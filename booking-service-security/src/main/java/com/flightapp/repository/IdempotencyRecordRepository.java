@@ -0,0 +1,16 @@
+package com.flightapp.repository;
+
+import java.time.Instant;
+
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+
+import com.flightapp.model.IdempotencyRecord;
+
+import reactor.core.publisher.Mono;
+
+@Repository
+public interface IdempotencyRecordRepository extends ReactiveMongoRepository<IdempotencyRecord, String> {
+	// Removes the record only while it still holds the given claim.
+	Mono<Long> deleteByIdAndClaimedAt(String id, Instant claimedAt);
+}
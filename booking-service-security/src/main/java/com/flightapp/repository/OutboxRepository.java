@@ -0,0 +1,17 @@
+package com.flightapp.repository;
+
+import java.time.Instant;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+
+import com.flightapp.model.OutboxEvent;
+
+import reactor.core.publisher.Flux;
+
+@Repository
+public interface OutboxRepository extends ReactiveMongoRepository<OutboxEvent, String> {
+	Flux<OutboxEvent> findByStatusAndNextAttemptAtLessThanEqualOrderByNextAttemptAtAsc(OutboxEvent.Status status,
+			Instant now, Pageable page);
+}
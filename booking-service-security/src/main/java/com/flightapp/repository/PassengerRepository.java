@@ -1,15 +1,24 @@
 package com.flightapp.repository;
 
+import java.util.Collection;
+
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 import org.springframework.stereotype.Repository;
 
 import com.flightapp.model.Passenger;
 
 import reactor.core.publisher.Flux;
-import reactor.core.publisher.Mono;
 
 @Repository
 public interface PassengerRepository extends ReactiveMongoRepository<Passenger, String> {
 	Flux<Passenger> findByTicketId(String ticketId);
-	Mono<Boolean> existsByFlightIdAndSeatNumber(String flightId, String seatNumber);
+
+	// Served by the unique_held_seat_per_flight index; only seatNumber is returned.
+	@Query(value = "{ 'flightId': ?0, 'seatNumber': { $in: ?1 } }", fields = "{ 'seatNumber': 1 }")
+	Flux<Passenger> findBookedSeats(String flightId, Collection<String> seatNumbers);
+
+	// Seats held by active tickets; passengers of cancelled tickets have released theirs.
+	@Query(value = "{ 'flightId': ?0, 'seatNumber': { $exists: true } }", fields = "{ 'seatNumber': 1 }")
+	Flux<Passenger> findSeatsByFlightId(String flightId);
 }
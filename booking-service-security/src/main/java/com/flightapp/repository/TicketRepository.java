@@ -1,5 +1,6 @@
 package com.flightapp.repository;
 
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 import org.springframework.stereotype.Repository;
 
@@ -9,7 +10,10 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 @Repository
-public interface TicketRepository extends ReactiveMongoRepository<Ticket, String> {
+public interface TicketRepository extends ReactiveMongoRepository<Ticket, String>, TicketRepositoryCustom {
 	Mono<Ticket> findByPnr(String pnr);
 	Flux<Ticket> findByUserEmail(String email);
+
+	@Query("{ 'departureFlight': { '$exists': false } }")
+	Flux<Ticket> findWithoutFlightSnapshot();
 }
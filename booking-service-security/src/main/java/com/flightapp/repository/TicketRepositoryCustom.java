@@ -0,0 +1,55 @@
+package com.flightapp.repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+import com.flightapp.dto.BookingStats;
+import com.flightapp.dto.HistoryCursor;
+import com.flightapp.model.Ticket;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface TicketRepositoryCustom {
+
+	/**
+	 * The ticket with the given PNR and its passengers, read in one aggregation.
+	 * Completes empty when no ticket has the PNR.
+	 */
+	Mono<Ticket> findWithPassengersByPnr(String pnr);
+
+	/**
+	 * Up to limit of the user's tickets, newest first by (bookingTime, id) and
+	 * starting after the given cursor, each with its passengers. A null cursor
+	 * starts from the newest ticket.
+	 */
+	Flux<Ticket> findHistoryWithPassengers(String email, HistoryCursor before, int limit);
+
+	/**
+	 * Streams every ticket booked in [from, to), oldest first, each with its
+	 * passengers. The cursor fetches batchSize tickets at a time, so only what the
+	 * subscriber has asked for is held in memory.
+	 */
+	Flux<Ticket> findWithPassengersBookedBetween(LocalDateTime from, LocalDateTime to, int batchSize);
+
+	/**
+	 * Streams the tickets on the flight, as departure or return leg, that are not
+	 * cancelled yet. Only the fields needed to cancel them are read.
+	 */
+	Flux<Ticket> findActiveByFlight(String flightId, int batchSize);
+
+	/**
+	 * Marks the still active tickets cancelled in one update, tagged with the
+	 * given cancellationId, and emits the ids of the tickets this call flipped.
+	 * Tickets cancelled by anyone else in the meantime are left out. The flipped
+	 * tickets' passengers give up their seats, so they can be booked again.
+	 */
+	Flux<String> markCancelled(Collection<String> ticketIds, String cancellationId);
+
+	/**
+	 * Booking totals per departure flight, route or booking day for tickets
+	 * booked from 'from' up to 'to', or up to now when 'to' is null, ordered by
+	 * key. Computed in Mongo, so no tickets are loaded.
+	 */
+	Flux<BookingStats> aggregateStats(BookingStats.Grouping grouping, LocalDateTime from, LocalDateTime to);
+}
@@ -0,0 +1,159 @@
+package com.flightapp.repository;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationExpression;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.aggregation.ArithmeticOperators;
+import org.springframework.data.mongodb.core.aggregation.ArrayOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.aggregation.ConvertOperators;
+import org.springframework.data.mongodb.core.aggregation.DateOperators;
+import org.springframework.data.mongodb.core.aggregation.StringOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.flightapp.dto.BookingStats;
+import com.flightapp.dto.HistoryCursor;
+import com.flightapp.model.Passenger;
+import com.flightapp.model.Ticket;
+
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@RequiredArgsConstructor
+public class TicketRepositoryCustomImpl implements TicketRepositoryCustom {
+
+	private static final String BOOKING_TIME = "bookingTime";
+	private static final String CANCELED = "canceled";
+	private static final String CANCELLATION_ID = "cancellationId";
+	private static final String TICKET_KEY = "ticketKey";
+	private static final String UNKNOWN = "unknown";
+
+	private final ReactiveMongoTemplate mongoTemplate;
+
+	@Override
+	public Mono<Ticket> findWithPassengersByPnr(String pnr) {
+		return withPassengers(List.of(Aggregation.match(Criteria.where("pnr").is(pnr)), Aggregation.limit(1)))
+				.next();
+	}
+
+	// Matches and sorts on the user_booking_time index before joining, so only the page is looked up.
+	@Override
+	public Flux<Ticket> findHistoryWithPassengers(String email, HistoryCursor before, int limit) {
+		Criteria criteria = Criteria.where("userEmail").is(email);
+		if (before != null) {
+			criteria.orOperator(Criteria.where(BOOKING_TIME).lt(before.bookingTime()),
+					Criteria.where(BOOKING_TIME).is(before.bookingTime()).and("id").lt(before.id()));
+		}
+		return withPassengers(List.of(Aggregation.match(criteria),
+				Aggregation.sort(Sort.by(Sort.Direction.DESC, BOOKING_TIME, "id")), Aggregation.limit(limit)));
+	}
+
+	// Walks the bookingTime index in order, so nothing is sorted in memory.
+	@Override
+	public Flux<Ticket> findWithPassengersBookedBetween(LocalDateTime from, LocalDateTime to, int batchSize) {
+		return withPassengers(List.of(Aggregation.match(Criteria.where(BOOKING_TIME).gte(from).lt(to)),
+				Aggregation.sort(Sort.by(Sort.Direction.ASC, BOOKING_TIME, "id"))),
+				AggregationOptions.builder().cursorBatchSize(batchSize).build());
+	}
+
+	// Walks the departureFlightId and returnFlightId indexes; the cursor fetches batchSize tickets at a time.
+	@Override
+	public Flux<Ticket> findActiveByFlight(String flightId, int batchSize) {
+		Query query = Query.query(new Criteria().orOperator(Criteria.where("departureFlightId").is(flightId),
+				Criteria.where("returnFlightId").is(flightId)).and(CANCELED).is(false))
+				.cursorBatchSize(batchSize);
+		query.fields().include("pnr", "userEmail", "totalPrice", "departureFlightId", "returnFlightId",
+				"seatsBooked", "sagaId");
+		return mongoTemplate.find(query, Ticket.class);
+	}
+
+	@Override
+	public Flux<String> markCancelled(Collection<String> ticketIds, String cancellationId) {
+		Query active = Query.query(Criteria.where("_id").in(ticketIds).and(CANCELED).is(false));
+		Query flipped = Query.query(Criteria.where("_id").in(ticketIds).and(CANCELLATION_ID).is(cancellationId));
+		flipped.fields().include("_id");
+		return mongoTemplate.updateMulti(active, Update.update(CANCELED, true).set(CANCELLATION_ID, cancellationId),
+				Ticket.class)
+				.flatMapMany(result -> result.getModifiedCount() == 0 ? Flux.empty()
+						: mongoTemplate.find(flipped, Ticket.class).map(Ticket::getId).collectList()
+								.flatMapMany(ids -> releaseSeats(ids).thenMany(Flux.fromIterable(ids))));
+	}
+
+	// Moving the seat out of seatNumber takes the passenger out of the unique seat index
+	// and the seat map, while the ticket still shows which seats it had.
+	private Mono<Void> releaseSeats(List<String> ticketIds) {
+		if (ticketIds.isEmpty()) {
+			return Mono.empty();
+		}
+		Query held = Query.query(Criteria.where("ticketId").in(ticketIds).and("seatNumber").exists(true));
+		return mongoTemplate.updateMulti(held, new Update().rename("seatNumber", "releasedSeatNumber"),
+				Passenger.class).then();
+	}
+
+	@Override
+	public Flux<BookingStats> aggregateStats(BookingStats.Grouping grouping, LocalDateTime from, LocalDateTime to) {
+		Criteria booked = Criteria.where(BOOKING_TIME).gte(from);
+		if (to != null) {
+			booked.lt(to);
+		}
+		// Same seat count as a single cancellation: one per booked seat, at least one per ticket.
+		AggregationExpression seats = ConditionalOperators.when(Criteria.where("seatsBooked").gt(""))
+				.thenValueOf(ArrayOperators.Size.lengthOfArray(StringOperators.valueOf("seatsBooked").split(",")))
+				.otherwise(1);
+		ConditionalOperators.ConditionalOperatorFactory whenCancelled = ConditionalOperators
+				.when(Criteria.where(CANCELED).is(true));
+		return mongoTemplate.aggregate(Aggregation.newAggregation(Ticket.class,
+				Aggregation.match(booked),
+				Aggregation.project(CANCELED).and(statsKey(grouping)).as("key")
+						.and(whenCancelled.then(0).otherwiseValueOf("totalPrice")).as("revenue")
+						.and(whenCancelled.then(0).otherwiseValueOf(seats)).as("seats"),
+				Aggregation.group("key").count().as("bookings")
+						.sum(whenCancelled.then(1).otherwise(0)).as("cancelled")
+						.sum("revenue").as("revenue")
+						.sum("seats").as("seats"),
+				Aggregation.project("bookings", "cancelled", "revenue", "seats").and("key").previousOperation()
+						.and(ArithmeticOperators.valueOf("cancelled").divideBy("bookings")).as("cancellationRate"),
+				Aggregation.sort(Sort.Direction.ASC, "key")), BookingStats.class);
+	}
+
+	// Booking times are stored as instants of the server's local time, so days are cut in that zone too.
+	private static AggregationExpression statsKey(BookingStats.Grouping grouping) {
+		return switch (grouping) {
+			case FLIGHT -> ConditionalOperators.ifNull("departureFlightId").then(UNKNOWN);
+			case ROUTE -> StringOperators.Concat
+					.valueOf(ConditionalOperators.ifNull("departureFlight.fromPlace").then(UNKNOWN))
+					.concat("-")
+					.concatValueOf(ConditionalOperators.ifNull("departureFlight.toPlace").then(UNKNOWN));
+			case DAY -> DateOperators.DateToString.dateOf(BOOKING_TIME).toString("%Y-%m-%d")
+					.withTimezone(DateOperators.Timezone.valueOf(ZoneId.systemDefault().getId()));
+		};
+	}
+
+	// Passengers keep the ticket id as a string, so the ObjectId is converted before joining on the ticketId index.
+	private Flux<Ticket> withPassengers(List<AggregationOperation> select) {
+		return withPassengers(select, Aggregation.newAggregationOptions().build());
+	}
+
+	private Flux<Ticket> withPassengers(List<AggregationOperation> select, AggregationOptions options) {
+		List<AggregationOperation> stages = new ArrayList<>(select);
+		stages.add(Aggregation.addFields().addField(TICKET_KEY)
+				.withValueOf(ConvertOperators.valueOf("id").convertToString()).build());
+		stages.add(Aggregation.lookup(mongoTemplate.getCollectionName(Passenger.class), TICKET_KEY, "ticketId",
+				"passengers"));
+		stages.add(Aggregation.project().andExclude(TICKET_KEY));
+		return mongoTemplate.aggregate(Aggregation.newAggregation(Ticket.class, stages).withOptions(options),
+				Ticket.class);
+	}
+}
@@ -0,0 +1,15 @@
+package com.flightapp.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+
+import com.flightapp.model.WaitlistEntry;
+
+import reactor.core.publisher.Flux;
+
+@Repository
+public interface WaitlistRepository extends ReactiveMongoRepository<WaitlistEntry, String> {
+	Flux<WaitlistEntry> findByFlightIdAndStatusOrderByEnqueuedAtAsc(String flightId, WaitlistEntry.Status status,
+			Pageable page);
+}
@@ -8,14 +8,20 @@ import javax.crypto.spec.SecretKeySpec;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.config.annotation.method.configuration.EnableReactiveMethodSecurity;
 import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
 import org.springframework.security.config.web.server.ServerHttpSecurity;
 import org.springframework.security.oauth2.jwt.NimbusReactiveJwtDecoder;
 import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtGrantedAuthoritiesConverter;
+import org.springframework.security.oauth2.server.resource.authentication.ReactiveJwtAuthenticationConverter;
 import org.springframework.security.web.server.SecurityWebFilterChain;
 
+import reactor.core.publisher.Flux;
+
 @Configuration
 @EnableWebFluxSecurity
+@EnableReactiveMethodSecurity
 public class SecurityConfig {
 
 	@Bean
@@ -26,8 +32,10 @@ public class SecurityConfig {
 						.pathMatchers("/api/flight/booking/history").authenticated()
 						.pathMatchers("/api/flight/booking/**").authenticated()
 						.pathMatchers("/api/flight/ticket/**").authenticated()
+						.pathMatchers("/api/flight/admin/**").hasRole("ADMIN")
 						.anyExchange().authenticated())
-				.oauth2ResourceServer(oauth2 -> oauth2.jwt())
+				.oauth2ResourceServer(oauth2 -> oauth2
+						.jwt(jwt -> jwt.jwtAuthenticationConverter(jwtAuthenticationConverter())))
 				.build();
 	}
 
@@ -37,4 +45,16 @@ public class SecurityConfig {
 		SecretKey key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
 		return NimbusReactiveJwtDecoder.withSecretKey(key).build();
 	}
+
+	// Roles come from the "roles" claim issued by user-service.
+	@Bean
+	public ReactiveJwtAuthenticationConverter jwtAuthenticationConverter() {
+		JwtGrantedAuthoritiesConverter authoritiesConverter = new JwtGrantedAuthoritiesConverter();
+		authoritiesConverter.setAuthorityPrefix("ROLE_");
+		authoritiesConverter.setAuthoritiesClaimName("roles");
+
+		ReactiveJwtAuthenticationConverter converter = new ReactiveJwtAuthenticationConverter();
+		converter.setJwtGrantedAuthoritiesConverter(jwt -> Flux.fromIterable(authoritiesConverter.convert(jwt)));
+		return converter;
+	}
 }
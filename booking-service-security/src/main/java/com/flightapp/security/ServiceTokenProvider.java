@@ -0,0 +1,48 @@
+package com.flightapp.security;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+
+/**
+ * Short-lived token that booking-service uses for its own calls to
+ * flight-service from background jobs, where there is no user request to
+ * forward.
+ */
+@Component
+public class ServiceTokenProvider {
+
+	private static final long TTL_MILLIS = 10 * 60_000L;
+	private static final long REFRESH_MARGIN_MILLIS = 60_000L;
+
+	private final byte[] secret;
+
+	private volatile String token;
+	private volatile long expiresAt;
+
+	public ServiceTokenProvider(@Value("${spring.security.oauth2.resourceserver.jwt.secret}") String secret) {
+		this.secret = secret.getBytes(StandardCharsets.UTF_8);
+	}
+
+	public String bearerToken() {
+		long now = System.currentTimeMillis();
+		if (token == null || now > expiresAt - REFRESH_MARGIN_MILLIS) {
+			long expiry = now + TTL_MILLIS;
+			token = "Bearer " + Jwts.builder()
+					.setSubject("booking-service")
+					.claim("roles", List.of("SERVICE"))
+					.setIssuedAt(new Date(now))
+					.setExpiration(new Date(expiry))
+					.signWith(SignatureAlgorithm.HS256, secret)
+					.compact();
+			expiresAt = expiry;
+		}
+		return token;
+	}
+}
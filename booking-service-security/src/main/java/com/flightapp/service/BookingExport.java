@@ -0,0 +1,87 @@
+package com.flightapp.service;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.flightapp.model.Passenger;
+import com.flightapp.model.Ticket;
+import com.flightapp.repository.TicketRepository;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * Admin export of all tickets booked in a date range, straight from a Mongo
+ * cursor. Tickets are read with their passengers in batches of
+ * {@code booking.export.batch-size} as the response is written, so an export
+ * of any size runs in constant memory. The CSV form has one row per passenger;
+ * gzip is applied by the server when the client accepts it.
+ */
+@Component
+public class BookingExport {
+
+	static final String CSV_HEADER = "pnr,bookingTime,userEmail,tripType,departureFlightId,returnFlightId,"
+			+ "seatsBooked,mealType,totalPrice,canceled,passengerName,gender,age,seatNumber,mealPreference\n";
+
+	private static final String OPERATION = "export";
+
+	private final TicketRepository ticketRepository;
+	private final BookingMetrics metrics;
+	private final int batchSize;
+
+	public BookingExport(TicketRepository ticketRepository, BookingMetrics metrics,
+			@Value("${booking.export.batch-size:500}") int batchSize) {
+		this.ticketRepository = ticketRepository;
+		this.metrics = metrics;
+		this.batchSize = batchSize;
+	}
+
+	public Flux<Ticket> tickets(LocalDateTime from, LocalDateTime to) {
+		if (!from.isBefore(to)) {
+			return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "'from' must be before 'to'"));
+		}
+		return metrics.time(OPERATION, "total", ticketRepository.findWithPassengersBookedBetween(from, to, batchSize));
+	}
+
+	public Flux<String> csv(LocalDateTime from, LocalDateTime to) {
+		return tickets(from, to).concatMapIterable(BookingExport::csvRows).startWith(CSV_HEADER);
+	}
+
+	// A ticket without passengers still gets one row, with the passenger columns empty.
+	static List<String> csvRows(Ticket ticket) {
+		List<Passenger> passengers = ticket.getPassengers() == null || ticket.getPassengers().isEmpty()
+				? Collections.singletonList(null)
+				: ticket.getPassengers();
+		return passengers.stream().map(passenger -> csvRow(ticket, passenger)).toList();
+	}
+
+	private static String csvRow(Ticket ticket, Passenger passenger) {
+		Stream<Object> ticketColumns = Stream.of(ticket.getPnr(), ticket.getBookingTime(), ticket.getUserEmail(),
+				ticket.getTripType(), ticket.getDepartureFlightId(), ticket.getReturnFlightId(),
+				ticket.getSeatsBooked(), ticket.getMealType(), ticket.getTotalPrice(), ticket.isCanceled());
+		Stream<Object> passengerColumns = passenger == null ? Stream.of(null, null, null, null, null)
+				: Stream.of(passenger.getName(), passenger.getGender(), passenger.getAge(),
+						// a cancelled ticket's passengers have given their seat back
+						passenger.getSeatNumber() != null ? passenger.getSeatNumber() : passenger.getReleasedSeatNumber(),
+						passenger.getMealPreference());
+		return Stream.concat(ticketColumns, passengerColumns).map(BookingExport::csvField)
+				.collect(Collectors.joining(",", "", "\n"));
+	}
+
+	// RFC 4180 quoting: fields with a separator, quote or line break are quoted and quotes doubled.
+	private static String csvField(Object value) {
+		String field = Objects.toString(value, "");
+		if (field.contains(",") || field.contains("\"") || field.contains("\n") || field.contains("\r")) {
+			return "\"" + field.replace("\"", "\"\"") + "\"";
+		}
+		return field;
+	}
+}
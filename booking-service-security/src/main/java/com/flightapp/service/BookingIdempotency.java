@@ -0,0 +1,171 @@
+package com.flightapp.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.flightapp.dto.BookingOutcome;
+import com.flightapp.model.IdempotencyRecord;
+import com.flightapp.repository.IdempotencyRecordRepository;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+/**
+ * Runs a booking at most once per user and Idempotency-Key. The first request
+ * claims the key in Mongo and stores the PNR, or the waitlist entry id, once
+ * the booking completes, and replays get that outcome back. Duplicates on this instance share the original
+ * execution. Duplicates on other instances poll the stored record until it
+ * completes. A failed booking releases the key so it can be retried, and a
+ * claim left behind by a crashed instance is taken over once it is older than
+ * {@code booking.idempotency.claim-lease-ms}, which should exceed the longest
+ * booking.
+ */
+@Slf4j
+@Component
+public class BookingIdempotency {
+
+	static final int MAX_KEY_LENGTH = 255;
+
+	private final IdempotencyRecordRepository repository;
+	private final Duration pollInterval;
+	private final long maxPolls;
+	private final Duration claimLease;
+
+	private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+
+	public BookingIdempotency(IdempotencyRecordRepository repository,
+			@Value("${booking.idempotency.poll-interval-ms:200}") long pollIntervalMs,
+			@Value("${booking.idempotency.wait-timeout-ms:30000}") long waitTimeoutMs,
+			@Value("${booking.idempotency.claim-lease-ms:120000}") long claimLeaseMs) {
+		this.repository = repository;
+		this.pollInterval = Duration.ofMillis(pollIntervalMs);
+		this.maxPolls = Math.max(1, waitTimeoutMs / pollIntervalMs);
+		this.claimLease = Duration.ofMillis(claimLeaseMs);
+	}
+
+	public Mono<BookingOutcome> execute(String userEmail, String key, String fingerprint,
+			Supplier<Mono<BookingOutcome>> booking) {
+		if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+			return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+					"Idempotency-Key must be 1 to " + MAX_KEY_LENGTH + " characters"));
+		}
+		String id = userEmail + ":" + key;
+		return Mono.defer(() -> {
+			InFlight running = inFlight.computeIfAbsent(id, k -> new InFlight(fingerprint,
+					claimAndRun(k, fingerprint, booking).doFinally(signal -> inFlight.remove(k)).cache()));
+			if (!running.fingerprint().equals(fingerprint)) {
+				return Mono.error(keyReused());
+			}
+			return running.result();
+		});
+	}
+
+	private Mono<BookingOutcome> claimAndRun(String id, String fingerprint, Supplier<Mono<BookingOutcome>> booking) {
+		IdempotencyRecord claim = new IdempotencyRecord();
+		claim.setId(id);
+		claim.setFingerprint(fingerprint);
+		claim.setStatus(IdempotencyRecord.Status.IN_PROGRESS);
+		// Mongo keeps milliseconds, so the claim can be matched exactly when released.
+		Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+		claim.setCreatedAt(now);
+		claim.setClaimedAt(now);
+
+		return repository.insert(claim).thenReturn(true)
+				.onErrorReturn(DuplicateKeyException.class, false)
+				.flatMap(owner -> owner ? run(claim, booking) : awaitExisting(id, fingerprint, booking));
+	}
+
+	private Mono<BookingOutcome> run(IdempotencyRecord claim, Supplier<Mono<BookingOutcome>> booking) {
+		return Mono.defer(booking)
+				.onErrorResume(ex -> repository.deleteByIdAndClaimedAt(claim.getId(), claim.getClaimedAt())
+						.then(Mono.error(ex)))
+				.flatMap(outcome -> {
+					claim.setStatus(IdempotencyRecord.Status.COMPLETED);
+					if (outcome.waitlisted()) {
+						claim.setWaitlistEntryId(outcome.id());
+					} else {
+						claim.setPnr(outcome.id());
+					}
+					return repository.save(claim).thenReturn(outcome)
+							.onErrorResume(ex -> {
+								log.error("Booking {} succeeded but its idempotency record was not stored",
+										outcome.id(), ex);
+								return Mono.just(outcome);
+							});
+				});
+	}
+
+	private Mono<BookingOutcome> awaitExisting(String id, String fingerprint,
+			Supplier<Mono<BookingOutcome>> booking) {
+		return Mono.defer(() -> repository.findById(id))
+				.flatMap(existing -> {
+					if (!existing.getFingerprint().equals(fingerprint)) {
+						return Mono.<BookingOutcome>error(keyReused());
+					}
+					if (existing.getStatus() == IdempotencyRecord.Status.COMPLETED) {
+						return Mono.just(existing.getWaitlistEntryId() != null
+								? BookingOutcome.waitlisted(existing.getWaitlistEntryId())
+								: BookingOutcome.booked(existing.getPnr()));
+					}
+					if (isAbandoned(existing)) {
+						log.warn("Taking over idempotency key {} claimed at {}", id, existing.getClaimedAt());
+						return repository.deleteByIdAndClaimedAt(id, existing.getClaimedAt())
+								.then(Mono.defer(() -> claimAndRun(id, fingerprint, booking)));
+					}
+					return Mono.<BookingOutcome>error(new StillRunning());
+				})
+				// the original attempt failed and released the key
+				.switchIfEmpty(Mono.defer(() -> claimAndRun(id, fingerprint, booking)))
+				.retryWhen(Retry.fixedDelay(maxPolls, pollInterval).filter(StillRunning.class::isInstance)
+						.onRetryExhaustedThrow((spec, signal) -> new ResponseStatusException(HttpStatus.CONFLICT,
+								"A request with this Idempotency-Key is still being processed")));
+	}
+
+	private boolean isAbandoned(IdempotencyRecord claim) {
+		return claim.getClaimedAt() != null && claim.getClaimedAt().isBefore(Instant.now().minus(claimLease));
+	}
+
+	private static ResponseStatusException keyReused() {
+		return new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+				"Idempotency-Key was already used for a different booking request");
+	}
+
+	public static String fingerprint(String... parts) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			for (String part : parts) {
+				digest.update(String.valueOf(part).getBytes(StandardCharsets.UTF_8));
+				digest.update((byte) 0);
+			}
+			return HexFormat.of().formatHex(digest.digest());
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private record InFlight(String fingerprint, Mono<BookingOutcome> result) {
+	}
+
+	private static final class StillRunning extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		StillRunning() {
+			super(null, null, false, false);
+		}
+	}
+}
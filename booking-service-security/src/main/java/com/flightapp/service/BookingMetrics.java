@@ -0,0 +1,88 @@
+package com.flightapp.service;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Times the stages of booking, cancellation and history requests as the
+ * {@code booking.stage} timer, tagged by operation, stage, flight leg and
+ * outcome (success, error or cancelled). Stages that are not tied to one leg
+ * use {@link #NO_LEG} so every series carries the same tag keys.
+ */
+@Component
+public class BookingMetrics {
+
+	public static final String TIMER = "booking.stage";
+	public static final String NO_LEG = "none";
+
+	private static final String SUCCESS = "success";
+	private static final String ERROR = "error";
+	private static final String CANCELLED = "cancelled";
+
+	private final MeterRegistry registry;
+
+	public BookingMetrics(MeterRegistry registry) {
+		this.registry = registry;
+	}
+
+	public <T> Mono<T> time(String operation, String stage, Mono<T> call) {
+		return time(operation, stage, NO_LEG, call);
+	}
+
+	// A Mono counts as done on its value, before a failing downstream can cancel it.
+	public <T> Mono<T> time(String operation, String stage, String leg, Mono<T> call) {
+		return Mono.defer(() -> {
+			Stopwatch stopwatch = new Stopwatch(operation, stage, leg);
+			return call.doOnSuccess(value -> stopwatch.stop(SUCCESS))
+					.doOnError(e -> stopwatch.stop(ERROR))
+					.doOnCancel(() -> stopwatch.stop(CANCELLED));
+		});
+	}
+
+	public <T> Flux<T> time(String operation, String stage, Flux<T> call) {
+		return Flux.defer(() -> {
+			Stopwatch stopwatch = new Stopwatch(operation, stage, NO_LEG);
+			return call.doOnComplete(() -> stopwatch.stop(SUCCESS))
+					.doOnError(e -> stopwatch.stop(ERROR))
+					.doOnCancel(() -> stopwatch.stop(CANCELLED));
+		});
+	}
+
+	private Timer timer(String operation, String stage, String leg, String outcome) {
+		return Timer.builder(TIMER)
+				.description("Time spent in one stage of a booking-service operation")
+				.tag("operation", operation)
+				.tag("stage", stage)
+				.tag("leg", leg)
+				.tag("outcome", outcome)
+				.publishPercentiles(0.5, 0.95, 0.99)
+				.publishPercentileHistogram()
+				.register(registry);
+	}
+
+	private final class Stopwatch {
+		private final String operation;
+		private final String stage;
+		private final String leg;
+		private final Timer.Sample sample = Timer.start(registry);
+		private final AtomicBoolean stopped = new AtomicBoolean();
+
+		Stopwatch(String operation, String stage, String leg) {
+			this.operation = operation;
+			this.stage = stage;
+			this.leg = leg;
+		}
+
+		void stop(String outcome) {
+			if (stopped.compareAndSet(false, true)) {
+				sample.stop(timer(operation, stage, leg, outcome));
+			}
+		}
+	}
+}
@@ -0,0 +1,71 @@
+package com.flightapp.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.flightapp.dto.BookingStats;
+import com.flightapp.repository.TicketRepository;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import reactor.core.publisher.Mono;
+
+/**
+ * Revenue, seat and cancellation totals for the ops dashboards, computed by a
+ * Mongo aggregation over the tickets. Results are kept for
+ * {@code booking.stats.cache-ttl-ms} per grouping and date range, and
+ * concurrent requests for the same report share one pipeline run, so
+ * dashboards refreshing every few seconds hit Mongo at most once per TTL.
+ * Cache statistics are published as the "booking_stats" cache meters.
+ */
+@Component
+public class BookingReports {
+
+	private static final String OPERATION = "stats";
+
+	private final TicketRepository ticketRepository;
+	private final BookingMetrics metrics;
+	private final AsyncCache<Key, List<BookingStats>> reports;
+
+	public BookingReports(TicketRepository ticketRepository, BookingMetrics metrics, MeterRegistry meterRegistry,
+			@Value("${booking.stats.cache-ttl-ms:10000}") long ttlMs,
+			@Value("${booking.stats.cache-max-entries:100}") int maxEntries) {
+		this.ticketRepository = ticketRepository;
+		this.metrics = metrics;
+		this.reports = CaffeineCacheMetrics.monitor(meterRegistry, Caffeine.newBuilder()
+				.expireAfterWrite(Duration.ofMillis(ttlMs))
+				.maximumSize(maxEntries)
+				.executor(Runnable::run)
+				.recordStats()
+				.<Key, List<BookingStats>>buildAsync(), "booking_stats");
+	}
+
+	// A null 'to' means up to now, which keeps the cache key stable for rolling dashboards.
+	public Mono<List<BookingStats>> stats(String grouping, LocalDateTime from, LocalDateTime to) {
+		if (to != null && !from.isBefore(to)) {
+			return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "'from' must be before 'to'"));
+		}
+		BookingStats.Grouping groupBy;
+		try {
+			groupBy = BookingStats.Grouping.of(grouping);
+		} catch (ResponseStatusException e) {
+			return Mono.error(e);
+		}
+		Key key = new Key(groupBy, from, to);
+		return Mono.fromFuture(() -> reports.get(key, (k, executor) -> metrics.time(OPERATION,
+				k.grouping().name().toLowerCase(Locale.ROOT),
+				ticketRepository.aggregateStats(k.grouping(), k.from(), k.to()).collectList()).toFuture()), true);
+	}
+
+	private record Key(BookingStats.Grouping grouping, LocalDateTime from, LocalDateTime to) {
+	}
+}
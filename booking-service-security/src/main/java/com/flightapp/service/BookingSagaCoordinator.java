@@ -0,0 +1,141 @@
+package com.flightapp.service;
+
+import java.time.Instant;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import com.flightapp.exception.FlightBookingException;
+import com.flightapp.exception.SeatsUnavailableException;
+import com.flightapp.feign.FlightWebClient;
+import com.flightapp.model.BookingSaga;
+import com.flightapp.model.BookingSaga.State;
+import com.flightapp.repository.BookingSagaRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+/**
+ * Drives the seat reservations of a booking through a persisted saga:
+ * PENDING, DEP_RESERVED, RET_RESERVED, then CONFIRMED once the ticket is
+ * stored, or COMPENSATING and COMPENSATED when a step fails. Every state is
+ * saved before the next step, so {@link BookingSagaRecovery} can finish or
+ * undo sagas left behind by a failed release or a crashed instance.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BookingSagaCoordinator {
+
+	private final BookingSagaRepository sagaRepository;
+	private final FlightWebClient flightWebClient;
+	private final BookingMetrics metrics;
+	private final FlightCache flightCache;
+
+	public Mono<BookingSaga> start(String pnr, String departureFlightId, String returnFlightId, int seatCount) {
+		Instant now = Instant.now();
+		BookingSaga saga = new BookingSaga();
+		saga.setPnr(pnr);
+		saga.setDepartureFlightId(departureFlightId);
+		saga.setReturnFlightId(returnFlightId);
+		saga.setSeatCount(seatCount);
+		saga.setState(State.PENDING);
+		saga.setCreatedAt(now);
+		saga.setUpdatedAt(now);
+		return sagaRepository.save(saga);
+	}
+
+	public Mono<Void> reserve(BookingSaga saga, String token) {
+		Mono<Void> departure = reserveOrConflict(saga.getDepartureFlightId(), saga, "departure", token)
+				.then(Mono.defer(() -> advance(saga, State.DEP_RESERVED)));
+		if (saga.getReturnFlightId() == null) {
+			return departure;
+		}
+		return departure.then(Mono.defer(() -> reserveOrConflict(saga.getReturnFlightId(), saga, "return", token)
+				.onErrorMap(e -> new FlightBookingException("Failed to reserve return flight, rolled back departure",
+						e))
+				.then(Mono.defer(() -> advance(saga, State.RET_RESERVED)))));
+	}
+
+	// Called before the ticket is retried under a new PNR, so recovery looks up the right one.
+	public Mono<Void> assignPnr(BookingSaga saga, String pnr) {
+		saga.setPnr(pnr);
+		saga.setUpdatedAt(Instant.now());
+		return sagaRepository.save(saga).then();
+	}
+
+	// The ticket is already stored at this point, so a failed save is left to recovery.
+	public Mono<Void> confirm(BookingSaga saga) {
+		return advance(saga, State.CONFIRMED)
+				.onErrorResume(ex -> {
+					log.warn("Could not mark saga {} confirmed, recovery will retry", saga.getId(), ex);
+					return Mono.empty();
+				});
+	}
+
+	/**
+	 * Releases whatever the saga may have reserved. Releases carry the saga id, so
+	 * legs that were never reserved or are already released are left untouched.
+	 * Failures keep the saga in COMPENSATING for recovery and are not propagated.
+	 */
+	public Mono<Void> compensate(BookingSaga saga, String token, Throwable cause) {
+		if (cause != null) {
+			saga.setLastError(cause.toString());
+		}
+		Mono<Void> releaseReturn = saga.getReturnFlightId() != null
+				? release(saga.getReturnFlightId(), saga, token)
+				: Mono.empty();
+		return advance(saga, State.COMPENSATING)
+				.then(Mono.when(release(saga.getDepartureFlightId(), saga, token), releaseReturn))
+				.then(Mono.defer(() -> advance(saga, State.COMPENSATED)))
+				.onErrorResume(ex -> {
+					log.error("Compensation of saga {} failed, recovery will retry", saga.getId(), ex);
+					return Mono.empty();
+				});
+	}
+
+	/**
+	 * Records a release of a booked ticket that could not be done now as a
+	 * COMPENSATING saga under its reservation id, so {@link BookingSagaRecovery}
+	 * retries it. The original saga may have expired, so it is written in full.
+	 */
+	public Mono<Void> releaseLater(String sagaId, String pnr, String departureFlightId, String returnFlightId,
+			int seatCount, Throwable cause) {
+		BookingSaga saga = new BookingSaga();
+		saga.setId(sagaId);
+		saga.setPnr(pnr);
+		saga.setDepartureFlightId(departureFlightId);
+		saga.setReturnFlightId(returnFlightId);
+		saga.setSeatCount(seatCount);
+		saga.setCreatedAt(Instant.now());
+		saga.setLastError(cause.toString());
+		return advance(saga, State.COMPENSATING);
+	}
+
+	private Mono<Void> advance(BookingSaga saga, State state) {
+		Instant now = Instant.now();
+		saga.setState(state);
+		saga.setUpdatedAt(now);
+		if (state.isTerminal()) {
+			saga.setFinishedAt(now);
+		}
+		return sagaRepository.save(saga).then();
+	}
+
+	private Mono<Void> reserveOrConflict(String flightId, BookingSaga saga, String type, String token) {
+		return metrics.time("book", "reserve", type,
+				flightWebClient.reserveSeats(flightId, saga.getSeatCount(), saga.getId(), token)
+						.doOnTerminate(() -> flightCache.invalidate(flightId)))
+				.onErrorMap(WebClientResponseException.Conflict.class,
+						e -> new SeatsUnavailableException("Not enough seats in " + type + " flight"))
+				.then();
+	}
+
+	private Mono<Void> release(String flightId, BookingSaga saga, String token) {
+		return flightWebClient.releaseSeats(flightId, saga.getSeatCount(), saga.getId(), token)
+				.doOnTerminate(() -> flightCache.invalidate(flightId))
+				.onErrorResume(WebClientResponseException.NotFound.class, e -> Mono.empty())
+				.then();
+	}
+}
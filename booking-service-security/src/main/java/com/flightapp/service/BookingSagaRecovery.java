@@ -0,0 +1,93 @@
+package com.flightapp.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.flightapp.model.BookingSaga;
+import com.flightapp.model.BookingSaga.State;
+import com.flightapp.repository.BookingSagaRepository;
+import com.flightapp.repository.TicketRepository;
+import com.flightapp.security.ServiceTokenProvider;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+/**
+ * Resolves sagas that stopped short of a final state. A saga whose ticket was
+ * stored is confirmed and anything else is compensated. Only sagas untouched
+ * for {@code booking.saga.stale-after-ms} are picked up, so bookings still in
+ * progress on another instance are left alone.
+ */
+@Slf4j
+@Component
+public class BookingSagaRecovery {
+
+	private static final List<State> OPEN_STATES = List.of(State.PENDING, State.DEP_RESERVED, State.RET_RESERVED,
+			State.COMPENSATING);
+
+	private final BookingSagaRepository sagaRepository;
+	private final TicketRepository ticketRepository;
+	private final BookingSagaCoordinator coordinator;
+	private final ServiceTokenProvider serviceTokenProvider;
+	private final Duration staleAfter;
+
+	private final AtomicBoolean running = new AtomicBoolean();
+
+	public BookingSagaRecovery(BookingSagaRepository sagaRepository, TicketRepository ticketRepository,
+			BookingSagaCoordinator coordinator, ServiceTokenProvider serviceTokenProvider,
+			@Value("${booking.saga.stale-after-ms:300000}") long staleAfterMs) {
+		this.sagaRepository = sagaRepository;
+		this.ticketRepository = ticketRepository;
+		this.coordinator = coordinator;
+		this.serviceTokenProvider = serviceTokenProvider;
+		this.staleAfter = Duration.ofMillis(staleAfterMs);
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void recoverOnStartup() {
+		recoverStuckSagas();
+	}
+
+	@Scheduled(initialDelayString = "${booking.saga.recovery-interval-ms:60000}",
+			fixedDelayString = "${booking.saga.recovery-interval-ms:60000}")
+	public void recoverStuckSagas() {
+		if (!running.compareAndSet(false, true)) {
+			return;
+		}
+		recover().doFinally(signal -> running.set(false)).subscribe(
+				resolved -> {
+					if (resolved > 0) {
+						log.info("Resolved {} stuck booking sagas", resolved);
+					}
+				}, ex -> log.warn("Booking saga recovery pass failed", ex));
+	}
+
+	Mono<Long> recover() {
+		return sagaRepository.findByStateInAndUpdatedAtBefore(OPEN_STATES, Instant.now().minus(staleAfter))
+				.concatMap(saga -> resolve(saga).thenReturn(saga)
+						.onErrorResume(ex -> {
+							log.warn("Could not resolve saga {}", saga.getId(), ex);
+							return Mono.empty();
+						}))
+				.count();
+	}
+
+	private Mono<Void> resolve(BookingSaga saga) {
+		String token = serviceTokenProvider.bearerToken();
+		if (saga.getState() == State.COMPENSATING) {
+			return coordinator.compensate(saga, token, null);
+		}
+		return ticketRepository.findByPnr(saga.getPnr()).hasElement()
+				.flatMap(booked -> booked ? coordinator.confirm(saga)
+						: coordinator.compensate(saga, token,
+								new IllegalStateException("Abandoned in " + saga.getState())));
+	}
+}
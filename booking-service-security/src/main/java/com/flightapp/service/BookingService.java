@@ -2,6 +2,8 @@ package com.flightapp.service;
 
 import java.util.List;
 
+import com.flightapp.dto.BookingOutcome;
+import com.flightapp.dto.FlightCancellationResult;
 import com.flightapp.model.BookingHistoryResponse;
 import com.flightapp.model.FLIGHTTYPE;
 import com.flightapp.model.Passenger;
@@ -12,15 +14,30 @@ import reactor.core.publisher.Mono;
 
 public interface BookingService {
 
-	Mono<String> bookTicket( String departureFlightId, String returnFlightId,
+	// userEmail is the subject of the already verified JWT; token is only forwarded to flight-service.
+	Mono<String> bookTicket(String userEmail, String departureFlightId, String returnFlightId,
 			List<Passenger> passengers, FLIGHTTYPE tripType, String token);
 
+	// With autoAssignSeats the passengers' seat numbers are ignored and picked by the service.
+	// With joinWaitlist a full flight waitlists the request instead of failing it.
+	Mono<BookingOutcome> bookTicket(String userEmail, String departureFlightId, String returnFlightId,
+			List<Passenger> passengers, FLIGHTTYPE tripType, boolean autoAssignSeats, boolean joinWaitlist,
+			String token, String idempotencyKey);
+
+	// Queues the request for seats freed by later cancellations and returns the waitlist entry id.
+	Mono<String> joinWaitlist(String userEmail, String departureFlightId, String returnFlightId,
+			List<Passenger> passengers, FLIGHTTYPE tripType, boolean autoAssignSeats);
+
 	Mono<Ticket> getByPnr(String pnr);
 
 //	Flux<Ticket> historyByEmail(String email);
 	
 //	Flux<Ticket> history(Authentication authentication);
-	Flux<BookingHistoryResponse> historyByEmail(String email, String token);
+	// Newest first, at most limit bookings older than the 'before' cursor.
+	Flux<BookingHistoryResponse> historyByEmail(String email, String token, String before, int limit);
 
 	Mono<String> cancelByPnr(String pnr, String token);
+
+	// Airline-side cancellation of every active booking on the flight, departure or return leg.
+	Mono<FlightCancellationResult> cancelFlight(String flightId, String token);
 }	
\ No newline at end of file
@@ -0,0 +1,184 @@
+package com.flightapp.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.flightapp.exception.SeatsUnavailableException;
+import com.flightapp.model.FLIGHTTYPE;
+import com.flightapp.model.Passenger;
+import com.flightapp.model.WaitlistEntry;
+import com.flightapp.model.WaitlistEntry.Status;
+import com.flightapp.model.WaitlistEntry.WaitingPassenger;
+import com.flightapp.repository.WaitlistRepository;
+import com.mongodb.client.result.UpdateResult;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Per-flight waitlist kept in Mongo. When seats are freed, one query picks the
+ * oldest waiting requests that fit into them, each is claimed so only one
+ * instance promotes it, and they are booked one after another. A request that
+ * still finds the flight full goes back to waiting in its old place; any
+ * other failure ends it. A claim left behind by a crashed instance goes back
+ * to waiting once it is older than {@code booking.waitlist.promoting-lease-ms}.
+ * Outcomes are written only while the entry still carries the promotion's
+ * claim token, so a promotion whose claim was recovered meanwhile changes
+ * nothing.
+ */
+@Slf4j
+@Component
+public class BookingWaitlist {
+
+	private final WaitlistRepository waitlistRepository;
+	private final ReactiveMongoTemplate mongoTemplate;
+	private final int batchSize;
+	private final Duration promotingLease;
+
+	private final AtomicBoolean recovering = new AtomicBoolean();
+
+	public BookingWaitlist(WaitlistRepository waitlistRepository, ReactiveMongoTemplate mongoTemplate,
+			@Value("${booking.waitlist.batch-size:50}") int batchSize,
+			@Value("${booking.waitlist.promoting-lease-ms:300000}") long promotingLeaseMs) {
+		this.waitlistRepository = waitlistRepository;
+		this.mongoTemplate = mongoTemplate;
+		this.batchSize = batchSize;
+		this.promotingLease = Duration.ofMillis(promotingLeaseMs);
+	}
+
+	public Mono<WaitlistEntry> enqueue(String userEmail, String flightId, String returnFlightId,
+			List<Passenger> passengers, FLIGHTTYPE tripType, boolean autoAssignSeats) {
+		Instant now = Instant.now();
+		WaitlistEntry entry = new WaitlistEntry();
+		entry.setUserEmail(userEmail);
+		entry.setFlightId(flightId);
+		entry.setReturnFlightId(returnFlightId);
+		entry.setTripType(tripType);
+		entry.setPassengers(passengers.stream().map(WaitingPassenger::of).toList());
+		entry.setAutoAssignSeats(autoAssignSeats);
+		entry.setSeatCount(passengers.size());
+		entry.setStatus(Status.WAITING);
+		entry.setEnqueuedAt(now);
+		entry.setUpdatedAt(now);
+		return waitlistRepository.save(entry);
+	}
+
+	/**
+	 * Books waiting requests for the flight that fit into freedSeats, oldest
+	 * first, with booking making one normal booking per request.
+	 */
+	public Mono<Void> promote(String flightId, int freedSeats, Function<WaitlistEntry, Mono<String>> booking) {
+		return waitlistRepository
+				.findByFlightIdAndStatusOrderByEnqueuedAtAsc(flightId, Status.WAITING, PageRequest.of(0, batchSize))
+				.collectList()
+				.flatMapMany(waiting -> Flux.fromIterable(fitting(waiting, freedSeats)))
+				.concatMap(this::claim)
+				.concatMap(entry -> Mono.defer(() -> booking.apply(entry))
+						.flatMap(pnr -> finish(entry, Status.PROMOTED, pnr, null))
+						.onErrorResume(e -> isSeatShortage(e) ? requeue(entry, e)
+								: finish(entry, Status.FAILED, null, e)))
+				.then();
+	}
+
+	@Scheduled(initialDelayString = "${booking.waitlist.recovery-interval-ms:60000}",
+			fixedDelayString = "${booking.waitlist.recovery-interval-ms:60000}")
+	public void recoverStalePromotions() {
+		if (!recovering.compareAndSet(false, true)) {
+			return;
+		}
+		requeueStale().doFinally(signal -> recovering.set(false)).subscribe(
+				requeued -> {
+					if (requeued > 0) {
+						log.info("Returned {} stale waitlist promotions to waiting", requeued);
+					}
+				}, ex -> log.warn("Waitlist promotion recovery pass failed", ex));
+	}
+
+	// One update, so an entry finished meanwhile by its instance is not touched.
+	Mono<Long> requeueStale() {
+		Instant now = Instant.now();
+		Query stale = Query.query(Criteria.where("status").is(Status.PROMOTING).and("updatedAt")
+				.lt(now.minus(promotingLease)));
+		Update waiting = new Update().set("status", Status.WAITING).set("updatedAt", now)
+				.set("lastError", "Promotion lease expired");
+		return mongoTemplate.updateMulti(stale, waiting, WaitlistEntry.class).map(UpdateResult::getModifiedCount);
+	}
+
+	// Strictly first come first served: stops at the first request that does not fit.
+	private static List<WaitlistEntry> fitting(List<WaitlistEntry> waiting, int freedSeats) {
+		List<WaitlistEntry> batch = new ArrayList<>();
+		int seats = freedSeats;
+		for (WaitlistEntry entry : waiting) {
+			if (entry.getSeatCount() > seats) {
+				break;
+			}
+			batch.add(entry);
+			seats -= entry.getSeatCount();
+		}
+		return batch;
+	}
+
+	private Mono<WaitlistEntry> claim(WaitlistEntry entry) {
+		Query waiting = Query.query(Criteria.where("_id").is(entry.getId()).and("status").is(Status.WAITING));
+		Update promoting = new Update().set("status", Status.PROMOTING).set("updatedAt", Instant.now())
+				.set("claimToken", UUID.randomUUID().toString());
+		return mongoTemplate.findAndModify(waiting, promoting, FindAndModifyOptions.options().returnNew(true),
+				WaitlistEntry.class);
+	}
+
+	private Mono<Void> requeue(WaitlistEntry entry, Throwable cause) {
+		log.info("Waitlist entry {} still does not fit on flight {}", entry.getId(), entry.getFlightId());
+		Update waiting = new Update().set("status", Status.WAITING).set("updatedAt", Instant.now())
+				.set("lastError", cause.getMessage());
+		return release(entry, waiting);
+	}
+
+	private Mono<Void> finish(WaitlistEntry entry, Status status, String pnr, Throwable cause) {
+		Instant now = Instant.now();
+		Update finished = new Update().set("status", status).set("pnr", pnr).set("updatedAt", now)
+				.set("finishedAt", now);
+		if (cause != null) {
+			log.warn("Could not promote waitlist entry {}", entry.getId(), cause);
+			finished.set("lastError", cause.getMessage());
+		}
+		return release(entry, finished);
+	}
+
+	private Mono<Void> release(WaitlistEntry entry, Update outcome) {
+		Query claimed = Query.query(Criteria.where("_id").is(entry.getId()).and("status").is(Status.PROMOTING)
+				.and("claimToken").is(entry.getClaimToken()));
+		return mongoTemplate.updateFirst(claimed, outcome.unset("claimToken"), WaitlistEntry.class)
+				.doOnNext(result -> {
+					if (result.getModifiedCount() == 0) {
+						log.warn("Waitlist entry {} was no longer held by this promotion, leaving it as is",
+								entry.getId());
+					}
+				})
+				.then();
+	}
+
+	public static boolean isSeatShortage(Throwable e) {
+		for (Throwable t = e; t != null; t = t.getCause()) {
+			if (t instanceof SeatsUnavailableException) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,85 @@
+package com.flightapp.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.flightapp.dto.FlightDto;
+import com.flightapp.feign.FlightWebClient;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Short-lived per-flight cache in front of {@link FlightWebClient}. Concurrent
+ * misses for the same flight share one request to flight-service, and failed
+ * or empty lookups are not kept. Seat changes made through this service drop
+ * the flight; changes made elsewhere may show up a few seconds late, the
+ * reserve call on flight-service stays the authoritative seat check. Cache
+ * statistics are published as the "flights" cache meters.
+ */
+@Component
+public class FlightCache {
+
+	private final FlightWebClient flightWebClient;
+	private final AsyncCache<String, FlightDto> flights;
+
+	public FlightCache(FlightWebClient flightWebClient, MeterRegistry meterRegistry,
+			@Value("${booking.flight-cache.ttl-ms:3000}") long ttlMs,
+			@Value("${booking.flight-cache.max-size:1000}") int maxSize) {
+		this.flightWebClient = flightWebClient;
+		this.flights = CaffeineCacheMetrics.monitor(meterRegistry, Caffeine.newBuilder()
+				.expireAfterWrite(Duration.ofMillis(ttlMs))
+				.maximumSize(maxSize)
+				// eviction work is small, so it runs on the caller instead of the common pool
+				.executor(Runnable::run)
+				.recordStats()
+				.<String, FlightDto>buildAsync(), "flights");
+	}
+
+	// Completes empty when flight-service has no such flight.
+	public Mono<FlightDto> getFlight(String flightId, String auth) {
+		return Mono.fromFuture(() -> flights.get(flightId,
+				(id, executor) -> flightWebClient.getFlight(id, auth).toFuture()), true);
+	}
+
+	// Cached flights are served as is, the rest are fetched with one batch call.
+	public Flux<FlightDto> getFlights(Collection<String> flightIds, String auth) {
+		return Flux.defer(() -> {
+			Map<String, CompletableFuture<FlightDto>> toFetch = new LinkedHashMap<>();
+			List<CompletableFuture<FlightDto>> lookups = new ArrayList<>();
+			for (String flightId : new LinkedHashSet<>(flightIds)) {
+				lookups.add(flights.get(flightId, (id, executor) -> toFetch.computeIfAbsent(id,
+						k -> new CompletableFuture<>())));
+			}
+			if (!toFetch.isEmpty()) {
+				fetch(toFetch, auth);
+			}
+			return Flux.fromIterable(lookups).flatMap(lookup -> Mono.fromFuture(lookup, true));
+		});
+	}
+
+	// Called after every reserve or release, so the next read sees the new seat count.
+	public void invalidate(String flightId) {
+		flights.synchronous().invalidate(flightId);
+	}
+
+	// Not tied to the caller: other lookups may already be waiting on these entries.
+	private void fetch(Map<String, CompletableFuture<FlightDto>> pending, String auth) {
+		flightWebClient.getFlights(List.copyOf(pending.keySet()), auth).collectMap(FlightDto::getId)
+				.subscribe(found -> pending.forEach((id, flight) -> flight.complete(found.get(id))),
+						e -> pending.values().forEach(flight -> flight.completeExceptionally(e)));
+	}
+}
@@ -0,0 +1,146 @@
+package com.flightapp.service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.flightapp.dto.FlightCancellationResult;
+import com.flightapp.dto.SeatRelease;
+import com.flightapp.feign.FlightWebClient;
+import com.flightapp.messaging.BookingOutbox;
+import com.flightapp.model.Ticket;
+import com.flightapp.repository.TicketRepository;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Cancels every active booking on a flight the airline has cancelled. Tickets
+ * are streamed from the flight id indexes in batches of
+ * {@code booking.bulk-cancel.batch-size}; each batch is marked cancelled with
+ * one update and gets its cancellation events in one insert, so memory stays
+ * flat however many bookings the flight has. The seats of a batch are then
+ * released with one call per flight, each ticket under its saga id, and the
+ * 24 hour rule for passenger cancellations does not apply.
+ */
+@Slf4j
+@Component
+public class FlightCancellation {
+
+	static final String OPERATION = "cancel_flight";
+
+	private static final int RELEASE_CONCURRENCY = 8;
+
+	private final TicketRepository ticketRepository;
+	private final BookingOutbox bookingOutbox;
+	private final FlightWebClient flightWebClient;
+	private final BookingSagaCoordinator sagaCoordinator;
+	private final FlightCache flightCache;
+	private final TicketCache ticketCache;
+	private final BookingMetrics metrics;
+	private final int batchSize;
+
+	public FlightCancellation(TicketRepository ticketRepository, BookingOutbox bookingOutbox,
+			FlightWebClient flightWebClient, BookingSagaCoordinator sagaCoordinator, FlightCache flightCache,
+			TicketCache ticketCache, BookingMetrics metrics,
+			@Value("${booking.bulk-cancel.batch-size:500}") int batchSize) {
+		this.ticketRepository = ticketRepository;
+		this.bookingOutbox = bookingOutbox;
+		this.flightWebClient = flightWebClient;
+		this.sagaCoordinator = sagaCoordinator;
+		this.flightCache = flightCache;
+		this.ticketCache = ticketCache;
+		this.metrics = metrics;
+		this.batchSize = batchSize;
+	}
+
+	public Mono<FlightCancellationResult> cancel(String flightId, String token) {
+		return metrics.time(OPERATION, "total", Mono.defer(() -> {
+			// Seats released per flight; releases signal one at a time, so a plain map is enough.
+			Map<String, Integer> released = new LinkedHashMap<>();
+			return ticketRepository.findActiveByFlight(flightId, batchSize)
+					.buffer(batchSize)
+					.concatMap(this::cancelBatch)
+					.concatMap(cancelled -> release(cancelled, token)
+							.doOnNext(leg -> released.merge(leg.getKey(), leg.getValue(), Integer::sum))
+							.then(Mono.just((long) cancelled.size())))
+					.reduce(0L, Long::sum)
+					.map(cancelled -> new FlightCancellationResult(flightId, cancelled, released));
+		}));
+	}
+
+	// Only tickets this update flipped count: one cancelled by its passenger in the
+	// meantime already released its seats and recorded its own event.
+	private Mono<List<Ticket>> cancelBatch(List<Ticket> batch) {
+		List<String> ids = batch.stream().map(Ticket::getId).toList();
+		String cancellationId = UUID.randomUUID().toString();
+		Mono<List<Ticket>> cancelled = ticketRepository.markCancelled(ids, cancellationId).collect(Collectors.toSet())
+				.map(flipped -> batch.stream().filter(ticket -> flipped.contains(ticket.getId())).toList())
+				.flatMap(tickets -> tickets.isEmpty() ? Mono.just(tickets)
+						: bookingOutbox.recordAll("BOOKING_CANCELLED", tickets).thenReturn(tickets));
+		return metrics.time(OPERATION, "batch", bookingOutbox.inUnitOfWork(cancelled))
+				.doOnSuccess(tickets -> tickets.forEach(ticket -> ticketCache.invalidate(ticket.getPnr())));
+	}
+
+	// Releasing under the saga id makes flight-service apply it once and drop the
+	// reservation. The tickets of a failed call are handed to saga recovery to retry,
+	// once each even when both of their legs failed.
+	private Flux<Map.Entry<String, Integer>> release(List<Ticket> cancelled, String token) {
+		Map<String, List<Ticket>> byFlight = cancelled.stream()
+				.flatMap(ticket -> Stream.of(ticket.getDepartureFlightId(), ticket.getReturnFlightId())
+						.filter(Objects::nonNull)
+						.map(flight -> Map.entry(flight, ticket)))
+				.collect(Collectors.groupingBy(Map.Entry::getKey, LinkedHashMap::new,
+						Collectors.mapping(Map.Entry::getValue, Collectors.toList())));
+		Map<String, Throwable> failures = new ConcurrentHashMap<>();
+		return Flux.fromIterable(byFlight.entrySet())
+				.flatMap(leg -> release(leg.getKey(), leg.getValue(), token).onErrorResume(e -> {
+					leg.getValue().forEach(ticket -> failures.putIfAbsent(ticket.getId(), e));
+					return Mono.empty();
+				}), RELEASE_CONCURRENCY)
+				.concatWith(Flux.defer(() -> Flux.fromIterable(cancelled)
+						.filter(ticket -> failures.containsKey(ticket.getId()))
+						.concatMap(ticket -> retryLater(ticket, seatCount(ticket), failures.get(ticket.getId())))));
+	}
+
+	private Mono<Map.Entry<String, Integer>> release(String flight, List<Ticket> tickets, String token) {
+		List<SeatRelease> releases = tickets.stream()
+				.map(ticket -> new SeatRelease(ticket.getSagaId(), seatCount(ticket))).toList();
+		int seats = releases.stream().mapToInt(SeatRelease::seatCount).sum();
+		return metrics.time(OPERATION, "release", flightWebClient.releaseSeats(flight, releases, token)
+				.doOnTerminate(() -> flightCache.invalidate(flight)))
+				.thenReturn(Map.entry(flight, seats));
+	}
+
+	private Mono<Map.Entry<String, Integer>> retryLater(Ticket ticket, int seats, Throwable cause) {
+		if (ticket.getSagaId() == null) {
+			// Without a reservation id a repeated release could free seats twice.
+			log.error("Could not release seats of {} after cancelling its flight", ticket.getPnr(), cause);
+			return Mono.empty();
+		}
+		log.warn("Could not release seats of {} after cancelling its flight, recovery will retry", ticket.getPnr(),
+				cause);
+		return sagaCoordinator.releaseLater(ticket.getSagaId(), ticket.getPnr(), ticket.getDepartureFlightId(),
+				ticket.getReturnFlightId(), seats, cause)
+				.onErrorResume(ex -> {
+					log.error("Could not record the pending release of {}", ticket.getPnr(), ex);
+					return Mono.empty();
+				})
+				.then(Mono.empty());
+	}
+
+	private static int seatCount(Ticket ticket) {
+		return ticket.getSeatsBooked() != null && !ticket.getSeatsBooked().isEmpty()
+				? ticket.getSeatsBooked().split(",").length
+				: 1;
+	}
+}
@@ -0,0 +1,44 @@
+package com.flightapp.service;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Eight-character Crockford base-32 PNRs (40 random bits, no I, L, O or U).
+ * Each thread draws from its own self-seeded SHA1PRNG, so generation never
+ * contends on a shared SecureRandom while codes stay unguessable. Uniqueness is
+ * enforced by the unique index on Ticket.pnr; callers retry on duplicate key.
+ */
+@Component
+public class PnrGenerator {
+
+	static final int LENGTH = 8;
+	private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+
+	private static final ThreadLocal<SecureRandom> RANDOM = ThreadLocal.withInitial(PnrGenerator::newRandom);
+
+	public String next() {
+		byte[] bytes = new byte[5];
+		RANDOM.get().nextBytes(bytes);
+		long bits = 0;
+		for (byte b : bytes) {
+			bits = (bits << 8) | (b & 0xFF);
+		}
+		char[] pnr = new char[LENGTH];
+		for (int i = LENGTH - 1; i >= 0; i--) {
+			pnr[i] = ALPHABET[(int) (bits & 31)];
+			bits >>>= 5;
+		}
+		return new String(pnr);
+	}
+
+	private static SecureRandom newRandom() {
+		try {
+			return SecureRandom.getInstance("SHA1PRNG");
+		} catch (NoSuchAlgorithmException e) {
+			return new SecureRandom();
+		}
+	}
+}
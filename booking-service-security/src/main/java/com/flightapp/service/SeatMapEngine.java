@@ -0,0 +1,200 @@
+package com.flightapp.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.flightapp.exception.SeatsUnavailableException;
+import com.flightapp.model.Passenger;
+import com.flightapp.repository.PassengerRepository;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import reactor.core.publisher.Mono;
+
+/**
+ * In-process seat maps used to auto-assign seats. Each flight is laid out as
+ * rows of {@link #COLUMNS} seats named column letter then row ("A1", "F12"),
+ * and the taken seats are a bitset rebuilt from the passengers collection.
+ * Groups get the first run of adjacent free seats in one row, or the first
+ * free seats when no row has room. Seats are claimed under the map's lock,
+ * so bookings on this instance never pick the same seat. Maps expire after
+ * {@code booking.seat-map.ttl-ms} to pick up bookings from other instances;
+ * the unique seat index still rejects anything that slips through. At most
+ * {@code booking.seat-map.max-flights} maps are kept, published as the
+ * "seat_maps" cache meters.
+ */
+@Component
+public class SeatMapEngine {
+
+	static final String COLUMNS = "ABCDEF";
+
+	private final PassengerRepository passengerRepository;
+	private final AsyncCache<String, SeatMap> maps;
+
+	public SeatMapEngine(PassengerRepository passengerRepository, MeterRegistry meterRegistry,
+			@Value("${booking.seat-map.ttl-ms:30000}") long ttlMs,
+			@Value("${booking.seat-map.max-flights:500}") int maxFlights) {
+		this.passengerRepository = passengerRepository;
+		this.maps = CaffeineCacheMetrics.monitor(meterRegistry, Caffeine.newBuilder()
+				.expireAfterWrite(Duration.ofMillis(ttlMs))
+				.maximumSize(maxFlights)
+				.executor(Runnable::run)
+				.recordStats()
+				.<String, SeatMap>buildAsync(), "seat_maps");
+	}
+
+	/**
+	 * Claims count free seats on the flight, or fails with 409 when the seat map
+	 * has fewer free seats left.
+	 */
+	public Mono<List<String>> claim(String flightId, int totalSeats, int count) {
+		if (totalSeats <= 0) {
+			return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+					"Seats cannot be auto-assigned on this flight"));
+		}
+		return seatMap(flightId, totalSeats).flatMap(map -> {
+			List<String> seats = map.claim(count);
+			if (seats.isEmpty()) {
+				return Mono.error(new SeatsUnavailableException("Not enough free seats to auto-assign " + count));
+			}
+			return Mono.just(seats);
+		});
+	}
+
+	// Hands back seats claimed for a booking that did not go through.
+	public void release(String flightId, Collection<String> seats) {
+		ifLoaded(flightId, map -> map.release(seats));
+	}
+
+	// Marks seats booked by hand so they are not auto-assigned on this instance.
+	public void markTaken(String flightId, Collection<String> seats) {
+		ifLoaded(flightId, map -> map.markTaken(seats));
+	}
+
+	// Drops the map after a seat clash so the next claim starts from Mongo.
+	public void invalidate(String flightId) {
+		maps.synchronous().invalidate(flightId);
+	}
+
+	// A map still loading gets the change once the booked seats are in.
+	private void ifLoaded(String flightId, Consumer<SeatMap> change) {
+		CompletableFuture<SeatMap> map = maps.getIfPresent(flightId);
+		if (map != null) {
+			map.thenAccept(change);
+		}
+	}
+
+	private Mono<SeatMap> seatMap(String flightId, int totalSeats) {
+		return Mono.fromFuture(() -> maps.get(flightId, (id, executor) -> passengerRepository.findSeatsByFlightId(id)
+				.map(Passenger::getSeatNumber)
+				.collectList()
+				.map(seats -> {
+					SeatMap map = new SeatMap(totalSeats);
+					map.markTaken(seats);
+					return map;
+				})
+				.toFuture()), true);
+	}
+
+	static final class SeatMap {
+		private final int capacity;
+		private final BitSet taken;
+
+		SeatMap(int capacity) {
+			this.capacity = capacity;
+			this.taken = new BitSet(capacity);
+		}
+
+		synchronized List<String> claim(int count) {
+			int start = count <= COLUMNS.length() ? adjacentRun(count) : -1;
+			List<Integer> picked = new ArrayList<>(count);
+			if (start >= 0) {
+				for (int i = start; i < start + count; i++) {
+					picked.add(i);
+				}
+			} else {
+				for (int i = taken.nextClearBit(0); i < capacity && picked.size() < count;
+						i = taken.nextClearBit(i + 1)) {
+					picked.add(i);
+				}
+				if (picked.size() < count) {
+					return List.of();
+				}
+			}
+			List<String> seats = new ArrayList<>(count);
+			for (int index : picked) {
+				taken.set(index);
+				seats.add(label(index));
+			}
+			return seats;
+		}
+
+		synchronized void release(Collection<String> seats) {
+			seats.forEach(seat -> {
+				int index = index(seat);
+				if (index >= 0) {
+					taken.clear(index);
+				}
+			});
+		}
+
+		synchronized void markTaken(Collection<String> seats) {
+			seats.forEach(seat -> {
+				int index = index(seat);
+				if (index >= 0) {
+					taken.set(index);
+				}
+			});
+		}
+
+		// First seat of count free adjacent seats within one row, or -1.
+		private int adjacentRun(int count) {
+			int from = taken.nextClearBit(0);
+			while (from < capacity) {
+				int rowEnd = Math.min(capacity, (from / COLUMNS.length() + 1) * COLUMNS.length());
+				int runEnd = Math.min(rowEnd, nextTaken(from));
+				if (runEnd - from >= count) {
+					return from;
+				}
+				from = taken.nextClearBit(runEnd);
+			}
+			return -1;
+		}
+
+		private int nextTaken(int from) {
+			int next = taken.nextSetBit(from);
+			return next < 0 ? capacity : next;
+		}
+
+		private int index(String seat) {
+			if (seat == null || seat.length() < 2) {
+				return -1;
+			}
+			int column = COLUMNS.indexOf(Character.toUpperCase(seat.charAt(0)));
+			int row;
+			try {
+				row = Integer.parseInt(seat.substring(1));
+			} catch (NumberFormatException e) {
+				return -1;
+			}
+			int index = (row - 1) * COLUMNS.length() + column;
+			return column < 0 || row < 1 || index >= capacity ? -1 : index;
+		}
+
+		private static String label(int index) {
+			return COLUMNS.charAt(index % COLUMNS.length()) + String.valueOf(index / COLUMNS.length() + 1);
+		}
+	}
+}
@@ -0,0 +1,47 @@
+package com.flightapp.service;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.flightapp.model.Ticket;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import reactor.core.publisher.Mono;
+
+/**
+ * Size-bounded cache of tickets by PNR for the ticket lookup endpoint.
+ * Entries expire after {@code booking.ticket-cache.ttl-ms}, which also bounds
+ * how long another instance's cancellation can go unseen; cancellations on
+ * this instance invalidate the entry right away. Concurrent misses for one
+ * PNR share a single load, and unknown PNRs are not cached. Hit, miss, load
+ * and eviction counts are published as the "tickets" cache meters.
+ */
+@Component
+public class TicketCache {
+
+	private final AsyncCache<String, Ticket> tickets;
+
+	public TicketCache(MeterRegistry meterRegistry, @Value("${booking.ticket-cache.ttl-ms:60000}") long ttlMs,
+			@Value("${booking.ticket-cache.max-size:10000}") int maxSize) {
+		this.tickets = CaffeineCacheMetrics.monitor(meterRegistry, Caffeine.newBuilder()
+				.expireAfterWrite(Duration.ofMillis(ttlMs))
+				.maximumSize(maxSize)
+				.executor(Runnable::run)
+				.recordStats()
+				.<String, Ticket>buildAsync(), "tickets");
+	}
+
+	public Mono<Ticket> get(String pnr, Function<String, Mono<Ticket>> loader) {
+		return Mono.fromFuture(() -> tickets.get(pnr, (key, executor) -> loader.apply(key).toFuture()), true);
+	}
+
+	public void invalidate(String pnr) {
+		tickets.synchronous().invalidate(pnr);
+	}
+}
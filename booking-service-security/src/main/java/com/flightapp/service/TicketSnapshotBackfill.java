@@ -0,0 +1,128 @@
+package com.flightapp.service;
+
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import com.flightapp.dto.FlightDto;
+import com.flightapp.feign.FlightWebClient;
+import com.flightapp.model.FlightSnapshot;
+import com.flightapp.model.Ticket;
+import com.flightapp.repository.TicketRepository;
+import com.flightapp.security.ServiceTokenProvider;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+/**
+ * One-off migration that adds flight snapshots to tickets booked before
+ * snapshots were stored. Tickets are read in batches, each batch costs one
+ * flight-service call and one bulk update, and a marker in the migrations
+ * collection stops later startups from scanning again. Safe to run on several
+ * instances at once, since every update only sets the snapshot.
+ */
+@Slf4j
+@Component
+public class TicketSnapshotBackfill {
+
+	static final String MIGRATION_ID = "ticket-flight-snapshots";
+	private static final String MIGRATIONS = "migrations";
+
+	private final TicketRepository ticketRepository;
+	private final ReactiveMongoTemplate mongoTemplate;
+	private final FlightWebClient flightWebClient;
+	private final ServiceTokenProvider serviceTokenProvider;
+	private final boolean enabled;
+	private final int batchSize;
+
+	public TicketSnapshotBackfill(TicketRepository ticketRepository, ReactiveMongoTemplate mongoTemplate,
+			FlightWebClient flightWebClient, ServiceTokenProvider serviceTokenProvider,
+			@Value("${booking.migration.ticket-snapshots.enabled:true}") boolean enabled,
+			@Value("${booking.migration.ticket-snapshots.batch-size:500}") int batchSize) {
+		this.ticketRepository = ticketRepository;
+		this.mongoTemplate = mongoTemplate;
+		this.flightWebClient = flightWebClient;
+		this.serviceTokenProvider = serviceTokenProvider;
+		this.enabled = enabled;
+		this.batchSize = batchSize;
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void start() {
+		if (!enabled) {
+			return;
+		}
+		run().subscribe(count -> log.info("Ticket snapshot backfill finished, {} tickets updated", count),
+				ex -> log.error("Ticket snapshot backfill failed, it will resume on next startup", ex));
+	}
+
+	Mono<Long> run() {
+		Query marker = Query.query(Criteria.where("_id").is(MIGRATION_ID));
+		return mongoTemplate.exists(marker, MIGRATIONS).flatMap(done -> {
+			if (done) {
+				return Mono.just(0L);
+			}
+			return ticketRepository.findWithoutFlightSnapshot()
+					.buffer(batchSize)
+					.concatMap(this::backfill)
+					.reduce(0L, Long::sum)
+					.flatMap(count -> mongoTemplate.save(
+							new Document("_id", MIGRATION_ID).append("completedAt", new Date()), MIGRATIONS)
+							.thenReturn(count));
+		});
+	}
+
+	private Mono<Long> backfill(List<Ticket> tickets) {
+		Set<String> flightIds = new LinkedHashSet<>();
+		tickets.forEach(ticket -> {
+			flightIds.add(ticket.getDepartureFlightId());
+			if (ticket.getReturnFlightId() != null) {
+				flightIds.add(ticket.getReturnFlightId());
+			}
+		});
+		return flightWebClient.getFlights(flightIds, serviceTokenProvider.bearerToken())
+				.collectMap(FlightDto::getId, FlightSnapshot::of)
+				.flatMap(flights -> {
+					ReactiveBulkOperations bulk = mongoTemplate.bulkOps(BulkMode.UNORDERED, Ticket.class);
+					long updates = 0;
+					for (Ticket ticket : tickets) {
+						Update update = snapshotUpdate(ticket, flights);
+						if (update != null) {
+							bulk.updateOne(Query.query(Criteria.where("_id").is(ticket.getId())), update);
+							updates++;
+						}
+					}
+					return updates == 0 ? Mono.just(0L)
+							: bulk.execute().map(result -> (long) result.getModifiedCount());
+				});
+	}
+
+	// Flights no longer known to flight-service are left without a snapshot.
+	private static Update snapshotUpdate(Ticket ticket, Map<String, FlightSnapshot> flights) {
+		FlightSnapshot departure = flights.get(ticket.getDepartureFlightId());
+		if (departure == null) {
+			return null;
+		}
+		Update update = new Update().set("departureFlight", departure);
+		FlightSnapshot returnFlight = ticket.getReturnFlightId() != null ? flights.get(ticket.getReturnFlightId())
+				: null;
+		if (returnFlight != null) {
+			update.set("returnFlight", returnFlight);
+		}
+		return update;
+	}
+}
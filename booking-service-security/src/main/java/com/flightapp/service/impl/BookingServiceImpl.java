@@ -3,42 +3,58 @@ package com.flightapp.service.impl;
 //import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.log;
 
 import java.time.LocalDateTime;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
-import javax.crypto.SecretKey;
 
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DuplicateKeyException;
 import org.springframework.http.HttpStatus;
-import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 
+import com.flightapp.dto.BookingOutcome;
+import com.flightapp.dto.FlightCancellationResult;
 import com.flightapp.dto.FlightDto;
+import com.flightapp.dto.HistoryCursor;
 import com.flightapp.exception.FlightBookingException;
-import com.flightapp.feign.FlightClient;
+import com.flightapp.exception.SeatsUnavailableException;
 import com.flightapp.feign.FlightWebClient;
-import com.flightapp.messaging.BookingEvent;
+import com.flightapp.messaging.BookingOutbox;
 import com.flightapp.model.BookingHistoryResponse;
+import com.flightapp.model.BookingSaga;
 import com.flightapp.model.FLIGHTTYPE;
+import com.flightapp.model.FlightSnapshot;
 import com.flightapp.model.Passenger;
+import com.flightapp.model.ReturnFlightDTO;
 import com.flightapp.model.Ticket;
+import com.flightapp.model.WaitlistEntry;
 import com.flightapp.repository.PassengerRepository;
 import com.flightapp.repository.TicketRepository;
+import com.flightapp.security.ServiceTokenProvider;
+import com.flightapp.service.BookingIdempotency;
+import com.flightapp.service.BookingMetrics;
+import com.flightapp.service.BookingSagaCoordinator;
+import com.flightapp.service.FlightCache;
+import com.flightapp.service.FlightCancellation;
+import com.flightapp.service.PnrGenerator;
+import com.flightapp.service.SeatMapEngine;
+import com.flightapp.service.TicketCache;
 import com.flightapp.service.BookingService;
+import com.flightapp.service.BookingWaitlist;
 
 import feign.RequestInterceptor;
-import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.security.Keys;
-import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
 
 @Slf4j
 @Service
@@ -49,31 +65,35 @@ public class BookingServiceImpl implements BookingService {
 
 	private final TicketRepository ticketRepository;
 	private final PassengerRepository passengerRepository;
-	private final FlightClient flightClient;
-	private final KafkaTemplate<String, BookingEvent> kafkaTemplate;
+	private final BookingOutbox bookingOutbox;
 	private final FlightWebClient flightWebClient;
+	private final FlightCache flightCache;
+	private final BookingIdempotency bookingIdempotency;
+	private final BookingSagaCoordinator bookingSagas;
+	private final PnrGenerator pnrGenerator;
+	private final BookingMetrics metrics;
+	private final SeatMapEngine seatMaps;
+	private final BookingWaitlist bookingWaitlist;
+	private final ServiceTokenProvider serviceTokenProvider;
+	private final TicketCache ticketCache;
+	private final FlightCancellation flightCancellation;
+
+	private static final int MAX_HISTORY_LIMIT = 200;
+	private static final int MAX_PNR_ATTEMPTS = 5;
+	private static final int MAX_SEAT_ATTEMPTS = 3;
+
+	private static final String BOOK = "book";
+	private static final String CANCEL = "cancel";
+	private static final String HISTORY = "history";
 
-	private static final String TOPIC = "booking-events";
-
-	@Value("${spring.security.oauth2.resourceserver.jwt.secret}")
-	private String secret;
-
-	private SecretKey key;
-
-	@PostConstruct
-	public void init() {
-		key = Keys.hmacShaKeyFor(secret.getBytes());
-	}
-
-	private String extractEmail(String token) {
-		return Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token.replace("Bearer ", "")).getBody()
-				.getSubject();
+	@Override
+	public Mono<String> bookTicket(String userEmail, String departureFlightId, String returnFlightId,
+			List<Passenger> passengers, FLIGHTTYPE tripType, String token) {
+		return book(userEmail, departureFlightId, returnFlightId, passengers, tripType, false, token);
 	}
 
-	@Override
-	public Mono<String> bookTicket(String departureFlightId, String returnFlightId, List<Passenger> passengers,
-			FLIGHTTYPE tripType, String token) {
-		String userEmail = extractEmail(token);
+	private Mono<String> book(String userEmail, String departureFlightId, String returnFlightId,
+			List<Passenger> passengers, FLIGHTTYPE tripType, boolean autoAssignSeats, String token) {
 
 		if (passengers == null || passengers.isEmpty()) {
 			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Passengers list cannot be empty");
@@ -81,9 +101,14 @@ public class BookingServiceImpl implements BookingService {
 
 		int seatCount = passengers.size();
 
-		passengers.forEach(p -> {
-			p.setSeatNumber(p.getSeatNumber().trim().toUpperCase());
-		});
+		if (!autoAssignSeats) {
+			if (passengers.stream().anyMatch(p -> p.getSeatNumber() == null || p.getSeatNumber().isBlank())) {
+				throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Seat number cannot be blank");
+			}
+			passengers.forEach(p -> {
+				p.setSeatNumber(p.getSeatNumber().trim().toUpperCase());
+			});
+		}
 
 		passengers.forEach(p -> {
 			p.setFlightId(departureFlightId);
@@ -93,73 +118,163 @@ public class BookingServiceImpl implements BookingService {
 			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Return flight is required for round trip");
 		}
 
+		if (autoAssignSeats) {
+			return metrics.time(BOOK, "total", Mono.defer(() -> Mono.zip(
+					getFlightOrThrow(departureFlightId, seatCount, "Departure", token),
+					getReturnFlightIfNeeded(returnFlightId, tripType, seatCount, token)))
+					.flatMap(flights -> assignAndStore(userEmail, passengers, tripType, flights.getT1(),
+							flights.getT2().orElse(null), token, 1)));
+		}
+
 		Set<String> seats = passengers.stream().map(Passenger::getSeatNumber).collect(Collectors.toSet());
 
 		if (seats.size() != passengers.size()) {
 			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Duplicate seat numbers are not allowed");
 		}
 		
-		Mono<Void> seatAvailabilityCheck = Flux.fromIterable(passengers).flatMap(p -> passengerRepository
-				.existsByFlightIdAndSeatNumber(departureFlightId, p.getSeatNumber()).flatMap(exists -> {
-					if (exists) {
-						return Mono.error(new ResponseStatusException(HttpStatus.CONFLICT,
-								"Seat " + p.getSeatNumber() + " is already booked"));
+		Mono<Void> seatAvailabilityCheck = metrics.time(BOOK, "seat_check",
+				passengerRepository.findBookedSeats(departureFlightId, seats).map(Passenger::getSeatNumber).sort()
+						.collectList())
+				.flatMap(taken -> {
+					if (taken.isEmpty()) {
+						return Mono.empty();
 					}
-					return Mono.empty();
-				})).then();
+					String message = taken.size() == 1 ? "Seat " + taken.get(0) + " is already booked"
+							: "Seats " + String.join(", ", taken) + " are already booked";
+					return Mono.error(new ResponseStatusException(HttpStatus.CONFLICT, message));
+				});
+
+		// Both legs are fetched concurrently; reservation runs once both checks pass.
+		Mono<String> booking = seatAvailabilityCheck
+				.then(Mono.defer(() -> Mono.zip(getFlightOrThrow(departureFlightId, seatCount, "Departure", token),
+						getReturnFlightIfNeeded(returnFlightId, tripType, seatCount, token))))
+				.flatMap(flights -> reserveAndStore(userEmail, passengers, tripType, flights.getT1(),
+						flights.getT2().orElse(null), token))
+				.doOnSuccess(pnr -> seatMaps.markTaken(departureFlightId, seats));
+		return metrics.time(BOOK, "total", booking);
+	}
 
-		return seatAvailabilityCheck.then(Mono.fromCallable(() -> {
-			FlightDto depFlight = getFlightOrThrow(departureFlightId, seatCount, "Departure", token);
+	private Mono<String> reserveAndStore(String userEmail, List<Passenger> passengers, FLIGHTTYPE tripType,
+			FlightDto depFlight, FlightDto retFlight, String token) {
+		String pnr = pnrGenerator.next();
+		String returnLeg = retFlight != null ? retFlight.getId() : null;
+		return bookingSagas.start(pnr, depFlight.getId(), returnLeg, passengers.size())
+				.flatMap(saga -> bookingSagas.reserve(saga, token)
+						.then(Mono.defer(() -> createTicket(saga, userEmail, passengers, tripType,
+								depFlight, retFlight)))
+						.onErrorResume(e -> bookingSagas.compensate(saga, token, e).then(Mono.error(e)))
+						.flatMap(bookedPnr -> bookingSagas.confirm(saga).thenReturn(bookedPnr)));
+	}
 
-			FlightDto retFlight = getReturnFlightIfNeeded(returnFlightId, tripType, seatCount, token);
+	// A seat clash rebuilds the map from Mongo, so the next claim skips the seats
+	// other instances booked; only after MAX_SEAT_ATTEMPTS clashes is the 409 returned.
+	private Mono<String> assignAndStore(String userEmail, List<Passenger> passengers, FLIGHTTYPE tripType,
+			FlightDto depFlight, FlightDto retFlight, String token, int attempt) {
+		String flightId = depFlight.getId();
+		return claimSeats(flightId, depFlight, passengers)
+				.flatMap(claimed -> reserveAndStore(userEmail, passengers, tripType, depFlight, retFlight, token)
+						.onErrorResume(e -> {
+							returnSeats(flightId, claimed, e);
+							if (!isSeatClash(e) || attempt >= MAX_SEAT_ATTEMPTS) {
+								return Mono.error(e);
+							}
+							log.warn("Seats {} on flight {} already taken, assigning again", claimed, flightId);
+							passengers.forEach(p -> {
+								p.setId(null);
+								p.setTicketId(null);
+							});
+							return assignAndStore(userEmail, passengers, tripType, depFlight, retFlight, token,
+									attempt + 1);
+						}));
+	}
 
-			reserveFlights(retFlight, departureFlightId, returnFlightId, seatCount, token);
+	private Mono<List<String>> claimSeats(String flightId, FlightDto flight, List<Passenger> passengers) {
+		return metrics.time(BOOK, "seat_assign", seatMaps.claim(flightId, flight.getTotalSeats(), passengers.size()))
+				.doOnNext(claimed -> {
+					for (int i = 0; i < passengers.size(); i++) {
+						passengers.get(i).setSeatNumber(claimed.get(i));
+					}
+				});
+	}
 
-			return new CheckedFlights(depFlight, retFlight);
-		}).subscribeOn(Schedulers.boundedElastic()))
-				.flatMap(checked -> createTicket(userEmail, departureFlightId, returnFlightId, passengers, tripType,
-						checked.dep(), checked.ret()));
+	// A seat clash means the map missed a booking from another instance, so it is rebuilt.
+	private void returnSeats(String flightId, List<String> claimed, Throwable cause) {
+		if (isSeatClash(cause)) {
+			seatMaps.invalidate(flightId);
+		} else {
+			seatMaps.release(flightId, claimed);
+		}
 	}
 
-	private FlightDto getFlightOrThrow(String flightId, int seatCount, String type, String token) {
-		FlightDto flight = flightClient.getFlight(flightId, token);
-		if (flight == null)
-			throw new FlightBookingException(type + " flight not found");
-		if (flight.getAvailableSeats() < seatCount)
-			throw new FlightBookingException("Not enough seats in " + type.toLowerCase() + " flight");
-		return flight;
+	private static boolean isSeatClash(Throwable e) {
+		return e instanceof ResponseStatusException rse && rse.getStatusCode() == HttpStatus.CONFLICT
+				&& !(e instanceof SeatsUnavailableException);
 	}
 
-	private FlightDto getReturnFlightIfNeeded(String returnFlightId, FLIGHTTYPE tripType, int seatCount, String token) {
-		if (tripType == FLIGHTTYPE.ROUND_TRIP && returnFlightId != null) {
-			return getFlightOrThrow(returnFlightId, seatCount, "Return", token);
+	// The waitlist fallback runs inside the idempotent execution, so a retry with the
+	// same key gets the stored entry back instead of queueing the request again.
+	@Override
+	public Mono<BookingOutcome> bookTicket(String userEmail, String departureFlightId, String returnFlightId,
+			List<Passenger> passengers, FLIGHTTYPE tripType, boolean autoAssignSeats, boolean joinWaitlist,
+			String token, String idempotencyKey) {
+		Supplier<Mono<BookingOutcome>> booking = () -> Mono
+				.defer(() -> book(userEmail, departureFlightId, returnFlightId, passengers, tripType, autoAssignSeats,
+						token))
+				.map(BookingOutcome::booked)
+				.onErrorResume(e -> joinWaitlist && BookingWaitlist.isSeatShortage(e),
+						e -> joinWaitlist(userEmail, departureFlightId, returnFlightId, passengers, tripType,
+								autoAssignSeats).map(BookingOutcome::waitlisted));
+		if (idempotencyKey == null) {
+			return booking.get();
 		}
-		return null;
+		String fingerprint = BookingIdempotency.fingerprint(departureFlightId, returnFlightId, String.valueOf(tripType),
+				String.valueOf(autoAssignSeats), String.valueOf(joinWaitlist),
+				passengers == null ? "" : passengers.stream()
+						.map(p -> p.getName() + "|" + p.getAge() + "|" + p.getGender() + "|" + p.getSeatNumber())
+						.collect(Collectors.joining(";")));
+		return bookingIdempotency.execute(userEmail, idempotencyKey, fingerprint, booking);
 	}
 
-	private void reserveFlights(FlightDto retFlight, String departureFlightId, String returnFlightId, int seatCount,
-			String token) {
+	@Override
+	public Mono<String> joinWaitlist(String userEmail, String departureFlightId, String returnFlightId,
+			List<Passenger> passengers, FLIGHTTYPE tripType, boolean autoAssignSeats) {
+		return bookingWaitlist.enqueue(userEmail, departureFlightId, returnFlightId, passengers, tripType,
+				autoAssignSeats).map(WaitlistEntry::getId);
+	}
 
-		flightClient.reserveSeats(departureFlightId, seatCount, token);
+	private Mono<FlightDto> getFlightOrThrow(String flightId, int seatCount, String type, String token) {
+		return metrics.time(BOOK, "flight_fetch", type.toLowerCase(), flightCache.getFlight(flightId, token))
+				.switchIfEmpty(Mono.error(() -> new FlightBookingException(type + " flight not found")))
+				.flatMap(flight -> {
+					if (flight.getAvailableSeats() < seatCount) {
+						return Mono.error(
+								new SeatsUnavailableException("Not enough seats in " + type.toLowerCase() + " flight"));
+					}
+					return Mono.just(flight);
+				});
+	}
 
-		if (retFlight != null) {
-			try {
-				flightClient.reserveSeats(returnFlightId, seatCount, token);
-			} catch (Exception e) {
-				flightClient.releaseSeats(departureFlightId, seatCount, token);
-				throw new FlightBookingException("Failed to reserve return flight, rolled back departure", e);
-			}
+	private Mono<Optional<FlightDto>> getReturnFlightIfNeeded(String returnFlightId, FLIGHTTYPE tripType,
+			int seatCount, String token) {
+		if (tripType == FLIGHTTYPE.ROUND_TRIP && returnFlightId != null) {
+			return getFlightOrThrow(returnFlightId, seatCount, "Return", token).map(Optional::of);
 		}
+		return Mono.just(Optional.empty());
 	}
 
-	private Mono<String> createTicket(String userEmail, String departureFlightId, String returnFlightId,
-			List<Passenger> passengers, FLIGHTTYPE tripType, FlightDto depFlight, FlightDto retFlight) {
+	private Mono<String> createTicket(BookingSaga saga, String userEmail, List<Passenger> passengers,
+			FLIGHTTYPE tripType, FlightDto depFlight, FlightDto retFlight) {
 
 		Ticket ticket = new Ticket();
-		ticket.setPnr(UUID.randomUUID().toString().substring(0, 8));
+		ticket.setPnr(saga.getPnr());
+		ticket.setSagaId(saga.getId());
 		ticket.setUserEmail(userEmail);
-		ticket.setDepartureFlightId(departureFlightId);
-		ticket.setReturnFlightId(returnFlightId);
+		ticket.setDepartureFlightId(saga.getDepartureFlightId());
+		ticket.setReturnFlightId(saga.getReturnFlightId());
+		ticket.setDepartureFlight(FlightSnapshot.of(depFlight));
+		if (retFlight != null) {
+			ticket.setReturnFlight(FlightSnapshot.of(retFlight));
+		}
 		ticket.setTripType(tripType);
 		ticket.setBookingTime(LocalDateTime.now());
 		ticket.setSeatsBooked(passengers.stream().map(Passenger::getSeatNumber).collect(Collectors.joining(",")));
@@ -172,61 +287,114 @@ public class BookingServiceImpl implements BookingService {
 		ticket.setTotalPrice(total);
 		ticket.setCanceled(false);
 
-		return ticketRepository.save(ticket).flatMap(saved -> {
+		return storeTicket(ticket, passengers, saga, 1).map(Ticket::getPnr);
+	}
+
+	// A duplicate key on the ticket itself can only be a PNR collision (seat clashes
+	// surface as 409), so the whole unit of work is retried with a fresh PNR.
+	private Mono<Ticket> storeTicket(Ticket ticket, List<Passenger> passengers, BookingSaga saga, int attempt) {
+		Mono<Ticket> saveTicket = metrics.time(BOOK, "ticket_save", Mono.defer(() -> ticketRepository.save(ticket)));
+		Mono<Ticket> writes = saveTicket.flatMap(saved -> {
 			passengers.forEach(p -> p.setTicketId(saved.getId()));
-			return passengerRepository.saveAll(passengers)
+			return metrics.time(BOOK, "passenger_save", passengerRepository.saveAll(passengers))
 				    .onErrorMap(DuplicateKeyException.class,
 				        e -> new ResponseStatusException(
 				            HttpStatus.CONFLICT,
 				            "One or more seats are already booked"
 				        )
 				    )
-				    .then(Mono.just(saved));
-		}).doOnSuccess(saved -> {
-		    Mono.fromRunnable(() -> sendEvent("BOOKING_CONFIRMED", saved))
-	        .subscribeOn(Schedulers.boundedElastic())
-	        .subscribe();
-	})
-	.map(Ticket::getPnr);
+				    .then(metrics.time(BOOK, "event_publish", bookingOutbox.record("BOOKING_CONFIRMED", saved)))
+				    .thenReturn(saved);
+		});
+		return bookingOutbox.inUnitOfWork(writes).onErrorResume(DuplicateKeyException.class, e -> {
+			if (attempt >= MAX_PNR_ATTEMPTS) {
+				return Mono.error(e);
+			}
+			String pnr = pnrGenerator.next();
+			log.warn("PNR {} already taken, retrying with {}", ticket.getPnr(), pnr);
+			ticket.setId(null);
+			ticket.setPnr(pnr);
+			return bookingSagas.assignPnr(saga, pnr)
+					.then(Mono.defer(() -> storeTicket(ticket, passengers, saga, attempt + 1)));
+		});
 	}
 
 	@Override
 	public Mono<Ticket> getByPnr(String pnr) {
-		return ticketRepository.findByPnr(pnr);
+		return ticketCache.get(pnr, ticketRepository::findWithPassengersByPnr);
 	}
 	
 	@Override
-	public Flux<BookingHistoryResponse> historyByEmail(String email, String token) {
+	public Flux<BookingHistoryResponse> historyByEmail(String email, String token, String before, int limit) {
 
-		System.out.println("Fetching booking history for: " + email);
+		if (limit <= 0) {
+			return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Limit must be positive"));
+		}
+		HistoryCursor cursor;
+		try {
+			cursor = HistoryCursor.decode(before);
+		} catch (ResponseStatusException e) {
+			return Flux.error(e);
+		}
+		// One aggregation reads the page together with each ticket's passengers.
+		Flux<Ticket> rows = metrics.time(HISTORY, "ticket_query",
+				ticketRepository.findHistoryWithPassengers(email, cursor, Math.min(limit, MAX_HISTORY_LIMIT)));
 
 		String authHeader = token.startsWith("Bearer ") ? token : "Bearer " + token;
 
-		return ticketRepository.findByUserEmail(email)
-				.flatMap(ticket -> Mono.zip(flightWebClient.getFlight(ticket.getDepartureFlightId(), authHeader),
-						passengerRepository.findByTicketId(ticket.getId()).collectList()).map(tuple -> {
-							FlightDto flight = tuple.getT1();
-							List<Passenger> passengers = tuple.getT2();
-
-							return new BookingHistoryResponse(ticket.getId(), ticket.getPnr(), ticket.getTripType(),
-									ticket.getBookingTime(), ticket.getSeatsBooked(), ticket.getMealType(),
-									ticket.getTotalPrice(), ticket.isCanceled(),
-
-									// flight details
-									flight.getAirline(), flight.getFromPlace(), flight.getToPlace(),
-									flight.getDepartureTime(), flight.getArrivalTime(),
-
-									// passengers
-									passengers);
-						}))
-				.doOnNext(r -> System.out.println("History record created for PNR: " + r.getPnr()))
-				.doOnError(e -> System.err.println("History error: " + e.getMessage()));
+		// Responses come from the flight snapshots on the tickets. Tickets booked before
+		// snapshots existed share one batch call until the backfill reaches them.
+		return metrics.time(HISTORY, "total", rows.collectList().flatMapMany(tickets -> {
+			Set<String> missing = new LinkedHashSet<>();
+			tickets.forEach(ticket -> {
+				if (ticket.getDepartureFlight() == null) {
+					missing.add(ticket.getDepartureFlightId());
+				}
+				if (ticket.getReturnFlightId() != null && ticket.getReturnFlight() == null) {
+					missing.add(ticket.getReturnFlightId());
+				}
+			});
+
+			Mono<Map<String, FlightSnapshot>> fetched = missing.isEmpty() ? Mono.just(Map.of())
+					: metrics.time(HISTORY, "flight_fetch", flightCache.getFlights(missing, authHeader)
+							.collectMap(FlightDto::getId, FlightSnapshot::of));
+			return fetched.flatMapMany(flights -> Flux.fromIterable(tickets)
+					.map(ticket -> toHistory(ticket, flights)));
+		}));
+	}
+
+	private BookingHistoryResponse toHistory(Ticket ticket, Map<String, FlightSnapshot> fetched) {
+		FlightSnapshot flight = ticket.getDepartureFlight() != null ? ticket.getDepartureFlight()
+				: fetched.get(ticket.getDepartureFlightId());
+
+		BookingHistoryResponse response = new BookingHistoryResponse(ticket.getId(), ticket.getPnr(),
+				ticket.getTripType(), ticket.getBookingTime(), ticket.getSeatsBooked(), ticket.getMealType(),
+				ticket.getTotalPrice(), ticket.isCanceled(),
+
+				// flight details
+				flight != null ? flight.getAirline() : null, flight != null ? flight.getFromPlace() : null,
+				flight != null ? flight.getToPlace() : null, flight != null ? flight.getDepartureTime() : null,
+				flight != null ? flight.getArrivalTime() : null,
+
+				// passengers
+				ticket.getPassengers());
+
+		FlightSnapshot returnFlight = ticket.getReturnFlight();
+		if (returnFlight == null && ticket.getReturnFlightId() != null) {
+			returnFlight = fetched.get(ticket.getReturnFlightId());
+		}
+		if (returnFlight != null) {
+			response.setReturnFlight(new ReturnFlightDTO(returnFlight.getAirline(), returnFlight.getFromPlace(),
+					returnFlight.getToPlace(), returnFlight.getDepartureTime(), returnFlight.getArrivalTime()));
+		}
+		response.setCursor(HistoryCursor.of(ticket).encode());
+		return response;
 	}
 
 	@Override
 	public Mono<String> cancelByPnr(String pnr, String token) {
 
-		return ticketRepository.findByPnr(pnr)
+		Mono<String> cancellation = metrics.time(CANCEL, "ticket_lookup", ticketRepository.findByPnr(pnr))
 				.switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "PNR not found")))
 				.flatMap(ticket -> {
 
@@ -239,66 +407,103 @@ public class BookingServiceImpl implements BookingService {
 							? ticket.getSeatsBooked().split(",").length
 							: 1;
 
-					Mono<FlightDto> depFlightMono = Mono.fromCallable(() -> {
-						FlightDto depFlight = flightClient.getFlight(ticket.getDepartureFlightId(), token);
-						if (depFlight == null)
-							throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Departure flight not found");
+					Mono<FlightDto> depFlightMono = metrics.time(CANCEL, "flight_fetch", "departure",
+							flightCache.getFlight(ticket.getDepartureFlightId(), token))
+							.switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
+									"Departure flight not found")))
+							.flatMap(depFlight -> {
+								LocalDateTime now = LocalDateTime.now();
+								if (depFlight.getDepartureTime().minusHours(24).isBefore(now)) {
+									return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+											"Cannot cancel ticket within 24 hours of departure"));
+								}
+								return Mono.just(depFlight);
+							});
+
+					// Seats are only given back once this request has flipped the ticket, so a
+					// failed flip never leaves an active ticket whose seats were sold again.
+					return depFlightMono.then(Mono.defer(() -> updateCancellation(ticket)))
+							.flatMap(done -> releaseSeats(ticket, seatCount, token)
+									.doOnNext(released -> {
+										if (released) {
+											promoteWaitlist(ticket, seatCount);
+										}
+									})
+									.thenReturn(done));
+				});
+		return metrics.time(CANCEL, "total", cancellation);
+	}
 
-						LocalDateTime now = LocalDateTime.now();
-						if (depFlight.getDepartureTime().minusHours(24).isBefore(now)) {
-							throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
-									"Cannot cancel ticket within 24 hours of departure");
-						}
-						return depFlight;
-					}).subscribeOn(Schedulers.boundedElastic());
+	@Override
+	public Mono<FlightCancellationResult> cancelFlight(String flightId, String token) {
+		return flightCancellation.cancel(flightId, token).doOnSuccess(result -> Flux
+				.fromIterable(result.seatsReleased().entrySet())
+				.filter(freed -> !freed.getKey().equals(flightId))
+				.concatMap(freed -> bookingWaitlist.promote(freed.getKey(), freed.getValue(), this::bookFromWaitlist))
+				.subscribe(null, e -> log.error("Waitlist promotion after cancelling flight {} failed", flightId, e)));
+	}
 
-					Mono<Void> releaseSeatsMono = Mono.fromRunnable(() -> {
+	// Emits whether both legs were released; a failed release is handed to saga recovery.
+	private Mono<Boolean> releaseSeats(Ticket ticket, int seatCount, String token) {
+		return Mono.when(
+				metrics.time(CANCEL, "release", "departure",
+						release(ticket.getDepartureFlightId(), seatCount, ticket.getSagaId(), token)),
+				ticket.getReturnFlightId() != null
+						? metrics.time(CANCEL, "release", "return",
+								release(ticket.getReturnFlightId(), seatCount, ticket.getSagaId(), token))
+						: Mono.empty())
+				.thenReturn(true)
+				.onErrorResume(e -> releaseLater(ticket, seatCount, e).thenReturn(false));
+	}
 
-						flightClient.releaseSeats(ticket.getDepartureFlightId(), seatCount, token);
+	// Released legs are not freed twice: flight-service applies a reservation id's release once.
+	private Mono<Void> releaseLater(Ticket ticket, int seatCount, Throwable cause) {
+		if (ticket.getSagaId() == null) {
+			log.error("Could not release seats of cancelled ticket {}", ticket.getPnr(), cause);
+			return Mono.empty();
+		}
+		log.warn("Could not release seats of cancelled ticket {}, recovery will retry", ticket.getPnr(), cause);
+		return bookingSagas.releaseLater(ticket.getSagaId(), ticket.getPnr(), ticket.getDepartureFlightId(),
+				ticket.getReturnFlightId(), seatCount, cause)
+				.onErrorResume(ex -> {
+					log.error("Could not record the pending release of {}", ticket.getPnr(), ex);
+					return Mono.empty();
+				});
+	}
 
-						if (ticket.getReturnFlightId() != null) {
-							flightClient.releaseSeats(ticket.getReturnFlightId(), seatCount, token);
-						}
-					}).subscribeOn(Schedulers.boundedElastic()).then();
+	// The cached flight is dropped either way, so the waitlist promotion sees the freed seats.
+	private Mono<FlightDto> release(String flightId, int seatCount, String reservationId, String token) {
+		return flightWebClient.releaseSeats(flightId, seatCount, reservationId, token)
+				.doOnTerminate(() -> flightCache.invalidate(flightId));
+	}
 
-					Mono<String> updateCancelMono = updateCancellation(ticket);
+	// Runs after the cancellation has been answered; each freed flight gets one promotion pass.
+	private void promoteWaitlist(Ticket ticket, int freedSeats) {
+		Flux.fromStream(Stream.of(ticket.getDepartureFlightId(), ticket.getReturnFlightId()).filter(Objects::nonNull))
+				.concatMap(flightId -> bookingWaitlist.promote(flightId, freedSeats, this::bookFromWaitlist))
+				.subscribe(null, e -> log.error("Waitlist promotion after cancelling {} failed", ticket.getPnr(), e));
+	}
 
-					return depFlightMono.then(releaseSeatsMono).then(updateCancelMono);
-				});
+	private Mono<String> bookFromWaitlist(WaitlistEntry entry) {
+		List<Passenger> passengers = entry.getPassengers().stream().map(WaitlistEntry.WaitingPassenger::toPassenger)
+				.toList();
+		return book(entry.getUserEmail(), entry.getFlightId(), entry.getReturnFlightId(), passengers,
+				entry.getTripType(), entry.isAutoAssignSeats(), serviceTokenProvider.bearerToken());
 	}
 
+	// Conditional on the ticket still being active, so a concurrent flight cancellation
+	// and this one never both record the event.
 	private Mono<String> updateCancellation(Ticket ticket) {
 		ticket.setCanceled(true);
-		return ticketRepository.save(ticket).doOnSuccess(saved -> sendEvent("BOOKING_CANCELLED", saved))
+		return bookingOutbox
+				.inUnitOfWork(metrics.time(CANCEL, "ticket_save", ticketRepository
+						.markCancelled(List.of(ticket.getId()), UUID.randomUUID().toString()).hasElements())
+						.flatMap(flipped -> flipped
+								? metrics.time(CANCEL, "event_publish", bookingOutbox.record("BOOKING_CANCELLED", ticket))
+								: Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+										"Ticket already cancelled"))))
+				.doOnSuccess(done -> ticketCache.invalidate(ticket.getPnr()))
 				.thenReturn("Cancelled Successfully");
 	}
 
-	private void sendEvent(String eventType, Ticket ticket) {
-		BookingEvent event = BookingEvent.builder().eventType(eventType).pnr(ticket.getPnr())
-				.userEmail(ticket.getUserEmail()).totalPrice(ticket.getTotalPrice()).build();
-//		try {
-//			kafkaTemplate.send(TOPIC, ticket.getPnr(), event);
-//		} catch (Exception ex) {
-//			// log
-//		}
-		try {
-	        kafkaTemplate.send(TOPIC, ticket.getPnr(),
-	                BookingEvent.builder()
-	                        .eventType(eventType)
-	                        .pnr(ticket.getPnr())
-	                        .userEmail(ticket.getUserEmail())
-	                        .totalPrice(ticket.getTotalPrice())
-	                        .build()
-	        ).whenComplete((res, ex) -> {
-	            if (ex != null) {
-	                log.error("Kafka failed, booking still successful", ex);
-	            }
-	        });
-	    } catch (Exception e) {
-	        log.error("Kafka producer error", e);
-	    }
-	}
-
-	private record CheckedFlights(FlightDto dep, FlightDto ret) {
-	}
 }
\ No newline at end of file
@@ -0,0 +1,122 @@
+package com.flightapp.feign;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.flightapp.dto.SeatRelease;
+
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.timelimiter.TimeLimiterConfig;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+class FlightWebClientTest {
+
+	private final CircuitBreakerRegistry circuitBreakers = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+			.slidingWindowSize(2).minimumNumberOfCalls(2).failureRateThreshold(50)
+			.recordException(new FlightServiceFailurePredicate()).build());
+
+	private FlightWebClient client(ExchangeFunction exchange, int maxConcurrentCalls, Duration timeout) {
+		return new FlightWebClient(WebClient.builder().exchangeFunction(exchange), circuitBreakers,
+				BulkheadRegistry.of(BulkheadConfig.custom().maxConcurrentCalls(maxConcurrentCalls)
+						.maxWaitDuration(Duration.ZERO).build()),
+				TimeLimiterRegistry.of(TimeLimiterConfig.custom().timeoutDuration(timeout).build()));
+	}
+
+	private static boolean unavailable(Throwable e) {
+		return e instanceof ResponseStatusException rse && rse.getStatusCode() == HttpStatus.SERVICE_UNAVAILABLE;
+	}
+
+	@Test
+	void slowCallsTimeOutAndOpenTheBreaker() {
+		AtomicInteger calls = new AtomicInteger();
+		FlightWebClient client = client(request -> {
+			calls.incrementAndGet();
+			return Mono.never();
+		}, 10, Duration.ofMillis(200));
+
+		StepVerifier.create(client.getFlight("FL1", "t")).expectErrorMatches(FlightWebClientTest::unavailable)
+				.verify(Duration.ofSeconds(10));
+		StepVerifier.create(client.getFlight("FL1", "t")).expectErrorMatches(FlightWebClientTest::unavailable)
+				.verify(Duration.ofSeconds(10));
+
+		assertEquals(CircuitBreaker.State.OPEN,
+				circuitBreakers.circuitBreaker(FlightWebClient.FLIGHT_SERVICE).getState());
+		StepVerifier.create(client.getFlight("FL1", "t")).expectErrorMatches(FlightWebClientTest::unavailable)
+				.verify(Duration.ofSeconds(10));
+		assertEquals(2, calls.get());
+	}
+
+	@Test
+	void clientErrorsDoNotOpenTheBreaker() {
+		FlightWebClient client = client(request -> Mono.just(ClientResponse.create(HttpStatus.CONFLICT).build()), 10,
+				Duration.ofSeconds(30));
+
+		for (int i = 0; i < 3; i++) {
+			StepVerifier.create(client.reserveSeats("FL1", 1, "S1", "t"))
+					.expectErrorMatches(e -> !unavailable(e)).verify();
+		}
+
+		assertEquals(CircuitBreaker.State.CLOSED,
+				circuitBreakers.circuitBreaker(FlightWebClient.FLIGHT_SERVICE).getState());
+	}
+
+	@Test
+	void notFoundStillCompletesEmpty() {
+		FlightWebClient client = client(request -> Mono.just(ClientResponse.create(HttpStatus.NOT_FOUND).build()), 10,
+				Duration.ofSeconds(30));
+
+		StepVerifier.create(client.getFlight("FL1", "t")).verifyComplete();
+	}
+
+	@Test
+	void batchReleaseIsSentInChunksToTheFlightsReleaseEndpoint() {
+		List<ClientRequest> requests = new CopyOnWriteArrayList<>();
+		FlightWebClient client = client(request -> {
+			requests.add(request);
+			return Mono.just(ClientResponse.create(HttpStatus.OK)
+					.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE).body("{}").build());
+		}, 10, Duration.ofSeconds(30));
+		List<SeatRelease> releases = IntStream.range(0, 501).mapToObj(i -> new SeatRelease("S" + i, 1)).toList();
+
+		StepVerifier.create(client.releaseSeats("FL1", releases, "t")).expectNextCount(1).verifyComplete();
+
+		assertEquals(2, requests.size());
+		for (ClientRequest request : requests) {
+			assertEquals(HttpMethod.PUT, request.method());
+			assertEquals("/api/flight/internal/FL1/release", request.url().getPath());
+		}
+	}
+
+	@Test
+	void bulkheadRejectsCallsBeyondTheLimit() {
+		FlightWebClient client = client(request -> Mono.never(), 1, Duration.ofSeconds(30));
+
+		StepVerifier.create(Mono.when(client.getFlight("FL1", "t"), client.getFlight("FL2", "t")))
+				.expectErrorMatches(e -> unavailable(e)
+						&& e.getCause() instanceof BulkheadFullException)
+				.verify(Duration.ofSeconds(10));
+	}
+}
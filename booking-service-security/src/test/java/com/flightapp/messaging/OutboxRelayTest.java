@@ -0,0 +1,227 @@
+package com.flightapp.messaging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+
+import com.flightapp.model.OutboxEvent;
+import com.flightapp.repository.OutboxRepository;
+import com.mongodb.client.result.UpdateResult;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+class OutboxRelayTest {
+
+	@Mock
+	private OutboxRepository outboxRepository;
+
+	@Mock
+	private ReactiveMongoTemplate mongoTemplate;
+
+	@Mock
+	private KafkaTemplate<String, BookingEvent> kafkaTemplate;
+
+	private OutboxRelay relay;
+
+	@BeforeEach
+	void setUp() {
+		MockitoAnnotations.openMocks(this);
+		relay = new OutboxRelay(outboxRepository, mongoTemplate, kafkaTemplate, 2, 1000, 60_000);
+		when(mongoTemplate.updateMulti(any(Query.class), any(Update.class), eq(OutboxEvent.class)))
+				.thenReturn(Mono.just(UpdateResult.acknowledged(1, 1L, null)));
+		// every due row is won by this instance unless a test says otherwise
+		when(mongoTemplate.find(any(Query.class), eq(OutboxEvent.class))).thenAnswer(i -> {
+			Document ids = (Document) ((Query) i.getArgument(0)).getQueryObject().get("_id");
+			return Flux.fromIterable((List<?>) ids.get("$in")).map(id -> pending((String) id, "PNR" + id));
+		});
+		when(outboxRepository.save(any(OutboxEvent.class))).thenAnswer(i -> Mono.just(i.getArgument(0)));
+	}
+
+	private static OutboxEvent pending(String id, String pnr) {
+		OutboxEvent event = new OutboxEvent();
+		event.setId(id);
+		event.setPnr(pnr);
+		event.setEventType("BOOKING_CONFIRMED");
+		event.setStatus(OutboxEvent.Status.PENDING);
+		return event;
+	}
+
+	@Test
+	void drainPublishesBatchAndMarksRowsPublishedTogether() {
+		when(outboxRepository.findByStatusAndNextAttemptAtLessThanEqualOrderByNextAttemptAtAsc(
+				eq(OutboxEvent.Status.PENDING), any(Instant.class), any(Pageable.class)))
+				.thenReturn(Flux.just(pending("1", "PNR1")));
+		when(kafkaTemplate.send(eq(OutboxRelay.TOPIC), eq("PNR1"), any(BookingEvent.class)))
+				.thenReturn(CompletableFuture.completedFuture(new SendResult<>(null, null)));
+
+		StepVerifier.create(relay.drain()).expectNext(1L).verifyComplete();
+
+		verify(mongoTemplate, times(1)).updateMulti(any(Query.class), argThat(OutboxRelayTest::claims),
+				eq(OutboxEvent.class));
+		verify(mongoTemplate, times(1)).updateMulti(any(Query.class), argThat(OutboxRelayTest::publishes),
+				eq(OutboxEvent.class));
+		verify(outboxRepository, never()).save(any(OutboxEvent.class));
+	}
+
+	@Test
+	void drainKeepsGoingWhileBatchesAreFull() {
+		when(outboxRepository.findByStatusAndNextAttemptAtLessThanEqualOrderByNextAttemptAtAsc(
+				eq(OutboxEvent.Status.PENDING), any(Instant.class), any(Pageable.class)))
+				.thenReturn(Flux.just(pending("1", "PNR1"), pending("2", "PNR2")))
+				.thenReturn(Flux.just(pending("3", "PNR3")));
+		when(kafkaTemplate.send(eq(OutboxRelay.TOPIC), any(String.class), any(BookingEvent.class)))
+				.thenReturn(CompletableFuture.completedFuture(new SendResult<>(null, null)));
+
+		StepVerifier.create(relay.drain()).expectNext(3L).verifyComplete();
+
+		verify(mongoTemplate, times(2)).updateMulti(any(Query.class), argThat(OutboxRelayTest::publishes),
+				eq(OutboxEvent.class));
+	}
+
+	@Test
+	void failedSendIsRescheduledWithBackoff() {
+		OutboxEvent row = pending("1", "PNR1");
+		when(outboxRepository.findByStatusAndNextAttemptAtLessThanEqualOrderByNextAttemptAtAsc(
+				eq(OutboxEvent.Status.PENDING), any(Instant.class), any(Pageable.class)))
+				.thenReturn(Flux.just(row));
+		when(kafkaTemplate.send(eq(OutboxRelay.TOPIC), eq("PNR1"), any(BookingEvent.class)))
+				.thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+
+		StepVerifier.create(relay.drain()).expectNext(0L).verifyComplete();
+
+		ArgumentCaptor<OutboxEvent> saved = ArgumentCaptor.forClass(OutboxEvent.class);
+		verify(outboxRepository).save(saved.capture());
+		assertEquals(1, saved.getValue().getAttempts());
+		assertEquals(OutboxEvent.Status.PENDING, saved.getValue().getStatus());
+		assertTrue(saved.getValue().getNextAttemptAt().isAfter(Instant.now()));
+		verify(mongoTemplate, never()).updateMulti(any(Query.class), argThat(OutboxRelayTest::publishes),
+				eq(OutboxEvent.class));
+	}
+
+	@Test
+	void rowsClaimedByAnotherInstanceAreNotSent() {
+		when(outboxRepository.findByStatusAndNextAttemptAtLessThanEqualOrderByNextAttemptAtAsc(
+				eq(OutboxEvent.Status.PENDING), any(Instant.class), any(Pageable.class)))
+				.thenReturn(Flux.just(pending("1", "PNR1"), pending("2", "PNR2")))
+				.thenReturn(Flux.empty());
+		when(mongoTemplate.find(any(Query.class), eq(OutboxEvent.class))).thenReturn(Flux.just(pending("2", "PNR2")));
+		when(kafkaTemplate.send(eq(OutboxRelay.TOPIC), any(String.class), any(BookingEvent.class)))
+				.thenReturn(CompletableFuture.completedFuture(new SendResult<>(null, null)));
+
+		StepVerifier.create(relay.drain()).expectNext(1L).verifyComplete();
+
+		verify(kafkaTemplate, never()).send(eq(OutboxRelay.TOPIC), eq("PNR1"), any(BookingEvent.class));
+		verify(kafkaTemplate).send(eq(OutboxRelay.TOPIC), eq("PNR2"), any(BookingEvent.class));
+	}
+
+	@Test
+	void nothingIsSentWhenEveryRowWasClaimedElsewhere() {
+		when(outboxRepository.findByStatusAndNextAttemptAtLessThanEqualOrderByNextAttemptAtAsc(
+				eq(OutboxEvent.Status.PENDING), any(Instant.class), any(Pageable.class)))
+				.thenReturn(Flux.just(pending("1", "PNR1")));
+		when(mongoTemplate.updateMulti(any(Query.class), argThat(OutboxRelayTest::claims), eq(OutboxEvent.class)))
+				.thenReturn(Mono.just(UpdateResult.acknowledged(0, 0L, null)));
+
+		StepVerifier.create(relay.drain()).expectNext(0L).verifyComplete();
+
+		verify(kafkaTemplate, never()).send(any(String.class), any(String.class), any(BookingEvent.class));
+		verify(mongoTemplate, never()).find(any(Query.class), eq(OutboxEvent.class));
+	}
+
+	@Test
+	void eventsOfOnePnrAreSentOneAfterAnother() {
+		OutboxEvent confirmed = pending("1", "PNR1");
+		OutboxEvent cancelled = pending("2", "PNR1");
+		cancelled.setEventType("BOOKING_CANCELLED");
+		when(outboxRepository.findByStatusAndNextAttemptAtLessThanEqualOrderByNextAttemptAtAsc(
+				eq(OutboxEvent.Status.PENDING), any(Instant.class), any(Pageable.class)))
+				.thenReturn(Flux.just(confirmed, cancelled))
+				.thenReturn(Flux.empty());
+		when(mongoTemplate.find(any(Query.class), eq(OutboxEvent.class))).thenReturn(Flux.just(confirmed, cancelled));
+		CompletableFuture<SendResult<String, BookingEvent>> firstSend = new CompletableFuture<>();
+		List<Boolean> firstDoneAtSecondSend = new ArrayList<>();
+		when(kafkaTemplate.send(eq(OutboxRelay.TOPIC), eq("PNR1"), any(BookingEvent.class)))
+				.thenAnswer(i -> {
+					firstSend.completeAsync(() -> new SendResult<>(null, null),
+							CompletableFuture.delayedExecutor(100, TimeUnit.MILLISECONDS));
+					return firstSend;
+				})
+				.thenAnswer(i -> {
+					firstDoneAtSecondSend.add(firstSend.isDone());
+					return CompletableFuture.completedFuture(new SendResult<>(null, null));
+				});
+
+		StepVerifier.create(relay.drain()).expectNext(2L).verifyComplete();
+
+		assertEquals(List.of(true), firstDoneAtSecondSend);
+		InOrder order = inOrder(kafkaTemplate);
+		order.verify(kafkaTemplate).send(eq(OutboxRelay.TOPIC), eq("PNR1"),
+				argThat(e -> "BOOKING_CONFIRMED".equals(e.getEventType())));
+		order.verify(kafkaTemplate).send(eq(OutboxRelay.TOPIC), eq("PNR1"),
+				argThat(e -> "BOOKING_CANCELLED".equals(e.getEventType())));
+	}
+
+	@Test
+	void failedSendHoldsBackTheLaterEventsOfItsPnr() {
+		OutboxEvent confirmed = pending("1", "PNR1");
+		OutboxEvent cancelled = pending("2", "PNR1");
+		cancelled.setEventType("BOOKING_CANCELLED");
+		when(outboxRepository.findByStatusAndNextAttemptAtLessThanEqualOrderByNextAttemptAtAsc(
+				eq(OutboxEvent.Status.PENDING), any(Instant.class), any(Pageable.class)))
+				.thenReturn(Flux.just(confirmed, cancelled))
+				.thenReturn(Flux.empty());
+		when(mongoTemplate.find(any(Query.class), eq(OutboxEvent.class))).thenReturn(Flux.just(confirmed, cancelled));
+		when(kafkaTemplate.send(eq(OutboxRelay.TOPIC), eq("PNR1"), any(BookingEvent.class)))
+				.thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+
+		StepVerifier.create(relay.drain()).expectNext(0L).verifyComplete();
+
+		verify(kafkaTemplate, times(1)).send(eq(OutboxRelay.TOPIC), eq("PNR1"), any(BookingEvent.class));
+		assertEquals(0, cancelled.getAttempts());
+		assertTrue(cancelled.getNextAttemptAt().isAfter(confirmed.getNextAttemptAt()));
+	}
+
+	private static boolean claims(Update update) {
+		return update != null && ((Document) update.getUpdateObject().get("$set")).containsKey("claimToken");
+	}
+
+	private static boolean publishes(Update update) {
+		return update != null && ((Document) update.getUpdateObject().get("$set")).containsKey("publishedAt");
+	}
+
+	@Test
+	void backoffIsCapped() {
+		assertEquals(Duration.ofSeconds(2), OutboxRelay.backoff(1));
+		assertEquals(Duration.ofMinutes(5), OutboxRelay.backoff(30));
+	}
+}
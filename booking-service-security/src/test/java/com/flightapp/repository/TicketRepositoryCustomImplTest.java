@@ -0,0 +1,72 @@
+package com.flightapp.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.flightapp.model.Passenger;
+import com.flightapp.model.Ticket;
+import com.mongodb.client.result.UpdateResult;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+class TicketRepositoryCustomImplTest {
+
+	private ReactiveMongoTemplate mongoTemplate;
+	private TicketRepositoryCustomImpl repository;
+
+	@BeforeEach
+	void setUp() {
+		mongoTemplate = mock(ReactiveMongoTemplate.class);
+		repository = new TicketRepositoryCustomImpl(mongoTemplate);
+		when(mongoTemplate.updateMulti(any(Query.class), any(Update.class), eq(Passenger.class)))
+				.thenReturn(Mono.just(UpdateResult.acknowledged(1, 1L, null)));
+	}
+
+	private static Ticket ticket(String id) {
+		Ticket ticket = new Ticket();
+		ticket.setId(id);
+		return ticket;
+	}
+
+	@Test
+	void markCancelledReleasesTheSeatsOfFlippedTicketsOnly() {
+		when(mongoTemplate.updateMulti(any(Query.class), any(Update.class), eq(Ticket.class)))
+				.thenReturn(Mono.just(UpdateResult.acknowledged(1, 1L, null)));
+		when(mongoTemplate.find(any(Query.class), eq(Ticket.class))).thenReturn(Flux.just(ticket("T1")));
+
+		StepVerifier.create(repository.markCancelled(List.of("T1", "T2"), "C1")).expectNext("T1").verifyComplete();
+
+		ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+		ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+		verify(mongoTemplate).updateMulti(query.capture(), update.capture(), eq(Passenger.class));
+		assertEquals(new Document("$in", List.of("T1")), query.getValue().getQueryObject().get("ticketId"));
+		assertEquals(new Document("seatNumber", "releasedSeatNumber"), update.getValue().getUpdateObject().get("$rename"));
+	}
+
+	@Test
+	void markCancelledLeavesPassengersAloneWhenNothingWasFlipped() {
+		when(mongoTemplate.updateMulti(any(Query.class), any(Update.class), eq(Ticket.class)))
+				.thenReturn(Mono.just(UpdateResult.acknowledged(0, 0L, null)));
+
+		StepVerifier.create(repository.markCancelled(List.of("T1"), "C1")).verifyComplete();
+
+		verify(mongoTemplate, never()).updateMulti(any(Query.class), any(Update.class), eq(Passenger.class));
+	}
+}
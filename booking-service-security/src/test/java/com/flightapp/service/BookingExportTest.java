@@ -0,0 +1,94 @@
+package com.flightapp.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.flightapp.model.FLIGHTTYPE;
+import com.flightapp.model.Passenger;
+import com.flightapp.model.Ticket;
+import com.flightapp.repository.TicketRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+class BookingExportTest {
+
+	private static final LocalDateTime FROM = LocalDateTime.of(2025, 1, 1, 0, 0);
+	private static final LocalDateTime TO = LocalDateTime.of(2025, 2, 1, 0, 0);
+
+	@Mock
+	private TicketRepository ticketRepository;
+
+	private BookingExport export;
+
+	@BeforeEach
+	void setUp() {
+		MockitoAnnotations.openMocks(this);
+		export = new BookingExport(ticketRepository, new BookingMetrics(new SimpleMeterRegistry()), 100);
+	}
+
+	private static Ticket ticket(String pnr, Passenger... passengers) {
+		Ticket ticket = new Ticket();
+		ticket.setPnr(pnr);
+		ticket.setBookingTime(LocalDateTime.of(2025, 1, 5, 9, 30));
+		ticket.setUserEmail("pooja@gmail.com");
+		ticket.setTripType(FLIGHTTYPE.ONE_WAY);
+		ticket.setDepartureFlightId("FL1");
+		ticket.setSeatsBooked("A1,A2");
+		ticket.setTotalPrice(200.0);
+		ticket.setPassengers(List.of(passengers));
+		return ticket;
+	}
+
+	private static Passenger passenger(String name, String seat) {
+		Passenger passenger = new Passenger();
+		passenger.setName(name);
+		passenger.setGender("F");
+		passenger.setAge(30);
+		passenger.setSeatNumber(seat);
+		return passenger;
+	}
+
+	@Test
+	void csvHasOneRowPerPassengerAfterTheHeader() {
+		when(ticketRepository.findWithPassengersBookedBetween(FROM, TO, 100)).thenReturn(
+				Flux.just(ticket("PNR1", passenger("Pooja", "A1"), passenger("Ravi", "A2")), ticket("PNR2")));
+
+		StepVerifier.create(export.csv(FROM, TO))
+				.expectNext(BookingExport.CSV_HEADER)
+				.expectNext("PNR1,2025-01-05T09:30,pooja@gmail.com,ONE_WAY,FL1,,\"A1,A2\",,200.0,false,Pooja,F,30,A1,\n")
+				.expectNext("PNR1,2025-01-05T09:30,pooja@gmail.com,ONE_WAY,FL1,,\"A1,A2\",,200.0,false,Ravi,F,30,A2,\n")
+				.expectNext("PNR2,2025-01-05T09:30,pooja@gmail.com,ONE_WAY,FL1,,\"A1,A2\",,200.0,false,,,,,\n")
+				.verifyComplete();
+	}
+
+	@Test
+	void quotesAreDoubledInsideQuotedFields() {
+		List<String> rows = BookingExport.csvRows(ticket("PNR1", passenger("Pooja \"PJ\" Rao", "A1")));
+
+		assertEquals(1, rows.size());
+		assertTrue(rows.get(0).contains(",\"Pooja \"\"PJ\"\" Rao\",F,"));
+	}
+
+	@Test
+	void emptyOrReversedRangeIsRejected() {
+		StepVerifier.create(export.tickets(TO, FROM))
+				.expectErrorMatches(e -> e instanceof ResponseStatusException rse
+						&& rse.getStatusCode() == HttpStatus.BAD_REQUEST)
+				.verify();
+		verifyNoInteractions(ticketRepository);
+	}
+}
@@ -0,0 +1,185 @@
+package com.flightapp.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.flightapp.dto.BookingOutcome;
+import com.flightapp.model.IdempotencyRecord;
+import com.flightapp.repository.IdempotencyRecordRepository;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+class BookingIdempotencyTest {
+
+	private static final String FINGERPRINT = BookingIdempotency.fingerprint("FL1", null, "ONE_WAY", "A1");
+
+	@Mock
+	private IdempotencyRecordRepository repository;
+
+	private BookingIdempotency idempotency;
+
+	@BeforeEach
+	void setUp() {
+		MockitoAnnotations.openMocks(this);
+		idempotency = new BookingIdempotency(repository, 10, 50, 60_000);
+		when(repository.save(any(IdempotencyRecord.class))).thenAnswer(i -> Mono.just(i.getArgument(0)));
+		when(repository.deleteByIdAndClaimedAt(any(String.class), any(Instant.class))).thenReturn(Mono.just(1L));
+	}
+
+	private static IdempotencyRecord stored(IdempotencyRecord.Status status, String fingerprint, String pnr) {
+		IdempotencyRecord record = new IdempotencyRecord();
+		record.setId("pooja@gmail.com:key-1");
+		record.setStatus(status);
+		record.setFingerprint(fingerprint);
+		record.setPnr(pnr);
+		return record;
+	}
+
+	private static Mono<BookingOutcome> booked(String pnr) {
+		return Mono.just(BookingOutcome.booked(pnr));
+	}
+
+	@Test
+	void firstRequestRunsBookingAndStoresPnr() {
+		when(repository.insert(any(IdempotencyRecord.class))).thenAnswer(i -> Mono.just(i.getArgument(0)));
+
+		StepVerifier.create(idempotency.execute("pooja@gmail.com", "key-1", FINGERPRINT, () -> booked("PNR1")))
+				.expectNext(BookingOutcome.booked("PNR1")).verifyComplete();
+
+		verify(repository).save(org.mockito.ArgumentMatchers.argThat(
+				r -> r.getStatus() == IdempotencyRecord.Status.COMPLETED && "PNR1".equals(r.getPnr())));
+	}
+
+	@Test
+	void replayReturnsStoredPnrWithoutBooking() {
+		when(repository.insert(any(IdempotencyRecord.class)))
+				.thenReturn(Mono.error(new DuplicateKeyException("duplicate")));
+		when(repository.findById("pooja@gmail.com:key-1"))
+				.thenReturn(Mono.just(stored(IdempotencyRecord.Status.COMPLETED, FINGERPRINT, "PNR1")));
+		AtomicInteger bookings = new AtomicInteger();
+
+		StepVerifier.create(idempotency.execute("pooja@gmail.com", "key-1", FINGERPRINT, () -> {
+			bookings.incrementAndGet();
+			return booked("PNR2");
+		})).expectNext(BookingOutcome.booked("PNR1")).verifyComplete();
+
+		assertEquals(0, bookings.get());
+	}
+
+	@Test
+	void waitlistedRequestIsStoredAndReplayedAsWaitlisted() {
+		when(repository.insert(any(IdempotencyRecord.class))).thenAnswer(i -> Mono.just(i.getArgument(0)));
+
+		StepVerifier.create(idempotency.execute("pooja@gmail.com", "key-1", FINGERPRINT,
+				() -> Mono.just(BookingOutcome.waitlisted("W1"))))
+				.expectNext(BookingOutcome.waitlisted("W1")).verifyComplete();
+
+		verify(repository).save(org.mockito.ArgumentMatchers.argThat(r -> "W1".equals(r.getWaitlistEntryId())
+				&& r.getPnr() == null));
+
+		IdempotencyRecord replay = stored(IdempotencyRecord.Status.COMPLETED, FINGERPRINT, null);
+		replay.setWaitlistEntryId("W1");
+		when(repository.insert(any(IdempotencyRecord.class)))
+				.thenReturn(Mono.error(new DuplicateKeyException("duplicate")));
+		when(repository.findById("pooja@gmail.com:key-1")).thenReturn(Mono.just(replay));
+
+		StepVerifier.create(idempotency.execute("pooja@gmail.com", "key-1", FINGERPRINT, () -> booked("PNR2")))
+				.expectNext(BookingOutcome.waitlisted("W1")).verifyComplete();
+	}
+
+	@Test
+	void concurrentDuplicateSharesOriginalExecution() {
+		when(repository.insert(any(IdempotencyRecord.class))).thenAnswer(i -> Mono.just(i.getArgument(0)));
+		Sinks.One<String> result = Sinks.one();
+		AtomicInteger bookings = new AtomicInteger();
+
+		Mono<BookingOutcome> first = idempotency.execute("pooja@gmail.com", "key-1", FINGERPRINT, () -> {
+			bookings.incrementAndGet();
+			return result.asMono().map(BookingOutcome::booked);
+		});
+		Mono<BookingOutcome> second = idempotency.execute("pooja@gmail.com", "key-1", FINGERPRINT, () -> {
+			bookings.incrementAndGet();
+			return booked("PNR2");
+		});
+
+		StepVerifier.create(Mono.zip(first, second)).then(() -> result.tryEmitValue("PNR1"))
+				.expectNextMatches(t -> t.getT1().id().equals("PNR1") && t.getT2().id().equals("PNR1"))
+				.verifyComplete();
+		assertEquals(1, bookings.get());
+	}
+
+	@Test
+	void duplicateFromOtherInstanceWaitsForCompletion() {
+		when(repository.insert(any(IdempotencyRecord.class)))
+				.thenReturn(Mono.error(new DuplicateKeyException("duplicate")));
+		when(repository.findById("pooja@gmail.com:key-1"))
+				.thenReturn(Mono.just(stored(IdempotencyRecord.Status.IN_PROGRESS, FINGERPRINT, null)))
+				.thenReturn(Mono.just(stored(IdempotencyRecord.Status.COMPLETED, FINGERPRINT, "PNR1")));
+
+		StepVerifier.create(idempotency.execute("pooja@gmail.com", "key-1", FINGERPRINT, () -> booked("PNR2")))
+				.expectNext(BookingOutcome.booked("PNR1")).verifyComplete();
+	}
+
+	@Test
+	void abandonedClaimIsTakenOverAfterTheLease() {
+		IdempotencyRecord abandoned = stored(IdempotencyRecord.Status.IN_PROGRESS, FINGERPRINT, null);
+		abandoned.setClaimedAt(Instant.now().minusSeconds(120));
+		when(repository.insert(any(IdempotencyRecord.class)))
+				.thenReturn(Mono.error(new DuplicateKeyException("duplicate")))
+				.thenAnswer(i -> Mono.just(i.getArgument(0)));
+		when(repository.findById("pooja@gmail.com:key-1")).thenReturn(Mono.just(abandoned));
+
+		StepVerifier.create(idempotency.execute("pooja@gmail.com", "key-1", FINGERPRINT, () -> booked("PNR2")))
+				.expectNext(BookingOutcome.booked("PNR2")).verifyComplete();
+
+		verify(repository).deleteByIdAndClaimedAt("pooja@gmail.com:key-1", abandoned.getClaimedAt());
+	}
+
+	@Test
+	void keyReusedForDifferentRequestIsRejected() {
+		when(repository.insert(any(IdempotencyRecord.class)))
+				.thenReturn(Mono.error(new DuplicateKeyException("duplicate")));
+		when(repository.findById("pooja@gmail.com:key-1")).thenReturn(Mono.just(
+				stored(IdempotencyRecord.Status.COMPLETED, BookingIdempotency.fingerprint("FL9"), "PNR1")));
+
+		StepVerifier.create(idempotency.execute("pooja@gmail.com", "key-1", FINGERPRINT, () -> booked("PNR2")))
+				.expectErrorMatches(e -> e instanceof ResponseStatusException rse
+						&& rse.getStatusCode() == HttpStatus.UNPROCESSABLE_ENTITY)
+				.verify();
+	}
+
+	@Test
+	void failedBookingReleasesKey() {
+		when(repository.insert(any(IdempotencyRecord.class))).thenAnswer(i -> Mono.just(i.getArgument(0)));
+
+		StepVerifier.create(idempotency.execute("pooja@gmail.com", "key-1", FINGERPRINT,
+				() -> Mono.error(new ResponseStatusException(HttpStatus.CONFLICT, "Seat A1 is already booked"))))
+				.expectError(ResponseStatusException.class).verify();
+
+		verify(repository).deleteByIdAndClaimedAt(eq("pooja@gmail.com:key-1"), any(Instant.class));
+		verify(repository, never()).save(any(IdempotencyRecord.class));
+	}
+
+	@Test
+	void fingerprintDistinguishesFieldBoundaries() {
+		assertNotEquals(BookingIdempotency.fingerprint("ab", "c"), BookingIdempotency.fingerprint("a", "bc"));
+	}
+}
@@ -0,0 +1,96 @@
+package com.flightapp.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.flightapp.dto.BookingStats;
+import com.flightapp.dto.BookingStats.Grouping;
+import com.flightapp.repository.TicketRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+class BookingReportsTest {
+
+	private static final LocalDateTime FROM = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+	@Mock
+	private TicketRepository ticketRepository;
+
+	private SimpleMeterRegistry meterRegistry;
+	private final BookingStats route = new BookingStats("BLR-DEL", 4, 1, 0.25, 300.0, 5);
+
+	@BeforeEach
+	void setUp() {
+		MockitoAnnotations.openMocks(this);
+		meterRegistry = new SimpleMeterRegistry();
+	}
+
+	private BookingReports reports(long ttlMs) {
+		return new BookingReports(ticketRepository, new BookingMetrics(meterRegistry), meterRegistry, ttlMs, 10);
+	}
+
+	@Test
+	void concurrentAndRepeatedRequestsShareOnePipelineRun() {
+		AtomicInteger runs = new AtomicInteger();
+		when(ticketRepository.aggregateStats(Grouping.ROUTE, FROM, null)).thenReturn(Flux.defer(() -> {
+			runs.incrementAndGet();
+			return Flux.just(route).delayElements(Duration.ofMillis(50));
+		}));
+		BookingReports reports = reports(60_000);
+
+		StepVerifier.create(Flux.merge(reports.stats("route", FROM, null), reports.stats("ROUTE", FROM, null)))
+				.expectNextCount(2).verifyComplete();
+		StepVerifier.create(reports.stats("route", FROM, null)).expectNext(List.of(route)).verifyComplete();
+
+		assertEquals(1, runs.get());
+		assertEquals(2, meterRegistry.get("cache.gets").tag("cache", "booking_stats").tag("result", "hit")
+				.functionCounter().count());
+	}
+
+	@Test
+	void expiredAndFailedResultsAreComputedAgain() {
+		when(ticketRepository.aggregateStats(eq(Grouping.DAY), eq(FROM), any()))
+				.thenReturn(Flux.error(new IllegalStateException("mongo down")), Flux.just(route));
+		BookingReports reports = reports(0);
+
+		StepVerifier.create(reports.stats("day", FROM, null)).verifyError(IllegalStateException.class);
+		StepVerifier.create(reports.stats("day", FROM, null)).expectNextCount(1).verifyComplete();
+		StepVerifier.create(reports.stats("day", FROM, null)).expectNextCount(1).verifyComplete();
+
+		verify(ticketRepository, times(3)).aggregateStats(Grouping.DAY, FROM, null);
+	}
+
+	@Test
+	void unknownGroupingAndEmptyRangeAreRejected() {
+		BookingReports reports = reports(60_000);
+
+		StepVerifier.create(reports.stats("airline", FROM, null))
+				.expectErrorMatches(e -> e instanceof ResponseStatusException rse
+						&& rse.getStatusCode() == HttpStatus.BAD_REQUEST)
+				.verify();
+		StepVerifier.create(reports.stats("flight", FROM, FROM))
+				.expectErrorMatches(e -> e instanceof ResponseStatusException rse
+						&& rse.getStatusCode() == HttpStatus.BAD_REQUEST)
+				.verify();
+		verifyNoInteractions(ticketRepository);
+	}
+}
@@ -0,0 +1,114 @@
+package com.flightapp.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.flightapp.dto.FlightDto;
+import com.flightapp.feign.FlightWebClient;
+import com.flightapp.model.BookingSaga;
+import com.flightapp.model.Ticket;
+import com.flightapp.repository.BookingSagaRepository;
+import com.flightapp.repository.TicketRepository;
+import com.flightapp.security.ServiceTokenProvider;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+class BookingSagaRecoveryTest {
+
+	@Mock
+	private BookingSagaRepository sagaRepository;
+
+	@Mock
+	private TicketRepository ticketRepository;
+
+	@Mock
+	private FlightWebClient flightWebClient;
+
+	@Mock
+	private ServiceTokenProvider serviceTokenProvider;
+
+	private BookingSagaRecovery recovery;
+
+	@BeforeEach
+	void setUp() {
+		MockitoAnnotations.openMocks(this);
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		recovery = new BookingSagaRecovery(sagaRepository, ticketRepository,
+				new BookingSagaCoordinator(sagaRepository, flightWebClient, new BookingMetrics(meterRegistry),
+						new FlightCache(flightWebClient, meterRegistry, 60_000, 10)),
+				serviceTokenProvider, 300_000);
+		when(serviceTokenProvider.bearerToken()).thenReturn("Bearer service");
+		when(sagaRepository.save(any(BookingSaga.class))).thenAnswer(i -> Mono.just(i.getArgument(0)));
+	}
+
+	private static BookingSaga saga(BookingSaga.State state, String returnFlightId) {
+		BookingSaga saga = new BookingSaga();
+		saga.setId("S1");
+		saga.setPnr("PNR1");
+		saga.setDepartureFlightId("FL1");
+		saga.setReturnFlightId(returnFlightId);
+		saga.setSeatCount(2);
+		saga.setState(state);
+		saga.setUpdatedAt(Instant.now().minusSeconds(3600));
+		return saga;
+	}
+
+	@Test
+	void sagaWithStoredTicketIsConfirmed() {
+		BookingSaga stuck = saga(BookingSaga.State.RET_RESERVED, "FL2");
+		when(sagaRepository.findByStateInAndUpdatedAtBefore(anyCollection(), any(Instant.class)))
+				.thenReturn(Flux.just(stuck));
+		when(ticketRepository.findByPnr("PNR1")).thenReturn(Mono.just(new Ticket()));
+
+		StepVerifier.create(recovery.recover()).expectNext(1L).verifyComplete();
+
+		assertEquals(BookingSaga.State.CONFIRMED, stuck.getState());
+		verify(flightWebClient, never()).releaseSeats(anyString(), anyInt(), any(), anyString());
+	}
+
+	@Test
+	void sagaWithoutTicketReleasesBothLegs() {
+		BookingSaga stuck = saga(BookingSaga.State.DEP_RESERVED, "FL2");
+		when(sagaRepository.findByStateInAndUpdatedAtBefore(anyCollection(), any(Instant.class)))
+				.thenReturn(Flux.just(stuck));
+		when(ticketRepository.findByPnr("PNR1")).thenReturn(Mono.empty());
+		when(flightWebClient.releaseSeats("FL1", 2, "S1", "Bearer service")).thenReturn(Mono.just(new FlightDto()));
+		when(flightWebClient.releaseSeats("FL2", 2, "S1", "Bearer service")).thenReturn(Mono.just(new FlightDto()));
+
+		StepVerifier.create(recovery.recover()).expectNext(1L).verifyComplete();
+
+		assertEquals(BookingSaga.State.COMPENSATED, stuck.getState());
+		verify(flightWebClient).releaseSeats("FL1", 2, "S1", "Bearer service");
+		verify(flightWebClient).releaseSeats("FL2", 2, "S1", "Bearer service");
+	}
+
+	@Test
+	void failedReleaseLeavesSagaCompensatingForNextPass() {
+		BookingSaga stuck = saga(BookingSaga.State.COMPENSATING, null);
+		when(sagaRepository.findByStateInAndUpdatedAtBefore(anyCollection(), any(Instant.class)))
+				.thenReturn(Flux.just(stuck));
+		when(flightWebClient.releaseSeats("FL1", 2, "S1", "Bearer service"))
+				.thenReturn(Mono.error(new IllegalStateException("flight-service down")));
+
+		StepVerifier.create(recovery.recover()).expectNext(1L).verifyComplete();
+
+		assertEquals(BookingSaga.State.COMPENSATING, stuck.getState());
+		verify(ticketRepository, never()).findByPnr(anyString());
+	}
+}
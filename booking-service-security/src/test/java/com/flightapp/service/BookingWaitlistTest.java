@@ -0,0 +1,181 @@
+package com.flightapp.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.flightapp.exception.FlightBookingException;
+import com.flightapp.exception.SeatsUnavailableException;
+import com.flightapp.model.WaitlistEntry;
+import com.flightapp.model.WaitlistEntry.Status;
+import com.flightapp.repository.WaitlistRepository;
+import com.mongodb.client.result.UpdateResult;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+class BookingWaitlistTest {
+
+	@Mock
+	private WaitlistRepository waitlistRepository;
+
+	@Mock
+	private ReactiveMongoTemplate mongoTemplate;
+
+	private BookingWaitlist waitlist;
+
+	@BeforeEach
+	void setUp() {
+		MockitoAnnotations.openMocks(this);
+		waitlist = new BookingWaitlist(waitlistRepository, mongoTemplate, 50, 300_000);
+		when(waitlistRepository.save(any(WaitlistEntry.class))).thenAnswer(i -> Mono.just(i.getArgument(0)));
+		when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(WaitlistEntry.class)))
+				.thenReturn(Mono.just(UpdateResult.acknowledged(1, 1L, null)));
+		when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+				eq(WaitlistEntry.class))).thenAnswer(i -> {
+					String id = String.valueOf(((Query) i.getArgument(0)).getQueryObject().get("_id"));
+					WaitlistEntry claimed = new WaitlistEntry();
+					claimed.setId(id);
+					claimed.setFlightId("FL1");
+					claimed.setSeatCount(Integer.parseInt(id.substring(1)));
+					claimed.setStatus(Status.PROMOTING);
+					claimed.setClaimToken((String) set(i.getArgument(1)).get("claimToken"));
+					return Mono.just(claimed);
+				});
+	}
+
+	// The id encodes the seat count so the claim stub can rebuild the entry.
+	private static WaitlistEntry waiting(String id, int seats) {
+		WaitlistEntry entry = new WaitlistEntry();
+		entry.setId(id);
+		entry.setFlightId("FL1");
+		entry.setSeatCount(seats);
+		entry.setStatus(Status.WAITING);
+		entry.setEnqueuedAt(Instant.now());
+		return entry;
+	}
+
+	private static Document set(Update update) {
+		return (Document) update.getUpdateObject().get("$set");
+	}
+
+	// Outcome written for the entry, checking it was conditioned on the promotion's claim.
+	private Document outcome(String id) {
+		ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+		ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+		verify(mongoTemplate, atLeastOnce()).updateFirst(query.capture(), update.capture(), eq(WaitlistEntry.class));
+		for (int i = 0; i < query.getAllValues().size(); i++) {
+			Document filter = query.getAllValues().get(i).getQueryObject();
+			if (id.equals(filter.get("_id"))) {
+				assertEquals(Status.PROMOTING, filter.get("status"));
+				assertNotNull(filter.get("claimToken"));
+				return set(update.getAllValues().get(i));
+			}
+		}
+		throw new AssertionError("No outcome written for " + id);
+	}
+
+	@Test
+	void promotesOldestRequestsThatFitInOneQuery() {
+		when(waitlistRepository.findByFlightIdAndStatusOrderByEnqueuedAtAsc(eq("FL1"), eq(Status.WAITING),
+				any(Pageable.class)))
+				.thenReturn(Flux.just(waiting("a2", 2), waiting("b1", 1), waiting("c3", 3), waiting("d1", 1)));
+		List<String> booked = new ArrayList<>();
+
+		StepVerifier.create(waitlist.promote("FL1", 4, entry -> {
+			booked.add(entry.getId());
+			return Mono.just("PNR-" + entry.getId());
+		})).verifyComplete();
+
+		// c3 does not fit into the one seat left, and d1 may not jump ahead of it
+		assertEquals(List.of("a2", "b1"), booked);
+		Document promoted = outcome("a2");
+		assertEquals(Status.PROMOTED, promoted.get("status"));
+		assertEquals("PNR-a2", promoted.get("pnr"));
+		assertNotNull(promoted.get("finishedAt"));
+	}
+
+	@Test
+	void fullFlightsRequeueAndOtherFailuresEndTheEntry() {
+		when(waitlistRepository.findByFlightIdAndStatusOrderByEnqueuedAtAsc(eq("FL1"), eq(Status.WAITING),
+				any(Pageable.class))).thenReturn(Flux.just(waiting("a1", 1), waiting("b1", 1)));
+
+		StepVerifier.create(waitlist.promote("FL1", 2, entry -> entry.getId().equals("a1")
+				? Mono.error(new FlightBookingException("Failed to reserve return flight",
+						new SeatsUnavailableException("Not enough seats in return flight")))
+				: Mono.error(new IllegalStateException("seat A1 taken")))).verifyComplete();
+
+		Document requeued = outcome("a1");
+		assertEquals(Status.WAITING, requeued.get("status"));
+		assertNull(requeued.get("finishedAt"));
+		Document failed = outcome("b1");
+		assertEquals(Status.FAILED, failed.get("status"));
+		assertEquals("seat A1 taken", failed.get("lastError"));
+	}
+
+	@Test
+	void entriesClaimedElsewhereAreSkipped() {
+		when(waitlistRepository.findByFlightIdAndStatusOrderByEnqueuedAtAsc(eq("FL1"), eq(Status.WAITING),
+				any(Pageable.class))).thenReturn(Flux.just(waiting("a1", 1)));
+		when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+				eq(WaitlistEntry.class))).thenReturn(Mono.empty());
+
+		StepVerifier.create(waitlist.promote("FL1", 1, entry -> Mono.just("PNR"))).verifyComplete();
+
+		verify(mongoTemplate, never()).updateFirst(any(Query.class), any(Update.class), eq(WaitlistEntry.class));
+	}
+
+	@Test
+	void outcomeIsDroppedWhenTheClaimWasTakenOver() {
+		when(waitlistRepository.findByFlightIdAndStatusOrderByEnqueuedAtAsc(eq("FL1"), eq(Status.WAITING),
+				any(Pageable.class))).thenReturn(Flux.just(waiting("a1", 1)));
+		when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(WaitlistEntry.class)))
+				.thenReturn(Mono.just(UpdateResult.acknowledged(0, 0L, null)));
+
+		StepVerifier.create(waitlist.promote("FL1", 1, entry -> Mono.just("PNR"))).verifyComplete();
+
+		assertEquals(Status.PROMOTED, outcome("a1").get("status"));
+		verify(waitlistRepository, never()).save(any(WaitlistEntry.class));
+	}
+
+	@Test
+	void stalePromotionsGoBackToWaiting() {
+		when(mongoTemplate.updateMulti(any(Query.class), any(Update.class), eq(WaitlistEntry.class)))
+				.thenReturn(Mono.just(UpdateResult.acknowledged(2, 2L, null)));
+		Instant before = Instant.now().minusMillis(300_000);
+
+		StepVerifier.create(waitlist.requeueStale()).expectNext(2L).verifyComplete();
+
+		ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+		ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+		verify(mongoTemplate).updateMulti(query.capture(), update.capture(), eq(WaitlistEntry.class));
+		assertEquals(Status.PROMOTING, query.getValue().getQueryObject().get("status"));
+		Instant staleBefore = (Instant) ((Document) query.getValue().getQueryObject().get("updatedAt")).get("$lt");
+		assertTrue(!staleBefore.isBefore(before) && staleBefore.isBefore(Instant.now().minusMillis(299_000)));
+		assertEquals(Status.WAITING, ((Document) update.getValue().getUpdateObject().get("$set")).get("status"));
+	}
+}
@@ -0,0 +1,121 @@
+package com.flightapp.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.flightapp.dto.FlightDto;
+import com.flightapp.feign.FlightWebClient;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+class FlightCacheTest {
+
+	@Mock
+	private FlightWebClient flightWebClient;
+
+	private SimpleMeterRegistry meterRegistry;
+	private FlightCache cache;
+
+	@BeforeEach
+	void setUp() {
+		MockitoAnnotations.openMocks(this);
+		meterRegistry = new SimpleMeterRegistry();
+		cache = new FlightCache(flightWebClient, meterRegistry, 60_000, 2);
+	}
+
+	private static FlightDto flight(String id) {
+		FlightDto flight = new FlightDto();
+		flight.setId(id);
+		return flight;
+	}
+
+	private double requests(String result) {
+		return meterRegistry.get("cache.gets").tag("cache", "flights").tag("result", result).functionCounter().count();
+	}
+
+	@Test
+	void concurrentMissesShareOneRequest() {
+		AtomicInteger subscriptions = new AtomicInteger();
+		when(flightWebClient.getFlight("FL1", "t")).thenReturn(Mono.just(flight("FL1"))
+				.delayElement(Duration.ofMillis(50)).doOnSubscribe(s -> subscriptions.incrementAndGet()));
+
+		StepVerifier.create(Flux.merge(cache.getFlight("FL1", "t"), cache.getFlight("FL1", "t"),
+				cache.getFlight("FL1", "t"))).expectNextCount(3).verifyComplete();
+		StepVerifier.create(cache.getFlight("FL1", "t")).expectNextCount(1).verifyComplete();
+
+		assertEquals(1, subscriptions.get());
+		assertEquals(1, requests("miss"));
+		assertEquals(3, requests("hit"));
+	}
+
+	@Test
+	void expiredEntriesAreFetchedAgain() {
+		cache = new FlightCache(flightWebClient, meterRegistry, 0, 2);
+		when(flightWebClient.getFlight("FL1", "t")).thenAnswer(i -> Mono.just(flight("FL1")));
+
+		StepVerifier.create(cache.getFlight("FL1", "t")).expectNextCount(1).verifyComplete();
+		StepVerifier.create(cache.getFlight("FL1", "t")).expectNextCount(1).verifyComplete();
+
+		verify(flightWebClient, times(2)).getFlight("FL1", "t");
+	}
+
+	@Test
+	void failuresAndMissingFlightsAreNotCached() {
+		when(flightWebClient.getFlight("FL1", "t")).thenReturn(Mono.error(new RuntimeException("down")))
+				.thenReturn(Mono.just(flight("FL1")));
+		when(flightWebClient.getFlight("FL2", "t")).thenReturn(Mono.empty());
+
+		StepVerifier.create(cache.getFlight("FL1", "t")).verifyError(RuntimeException.class);
+		StepVerifier.create(cache.getFlight("FL1", "t")).expectNextCount(1).verifyComplete();
+		StepVerifier.create(cache.getFlight("FL2", "t")).verifyComplete();
+		StepVerifier.create(cache.getFlight("FL2", "t")).verifyComplete();
+
+		verify(flightWebClient, times(2)).getFlight("FL1", "t");
+		verify(flightWebClient, times(2)).getFlight("FL2", "t");
+	}
+
+	@Test
+	void batchLookupOnlyFetchesUncachedFlights() {
+		when(flightWebClient.getFlight("FL1", "t")).thenReturn(Mono.just(flight("FL1")));
+		when(flightWebClient.getFlights(argThat(ids -> ids.equals(List.of("FL2"))), anyString()))
+				.thenReturn(Flux.just(flight("FL2")));
+
+		StepVerifier.create(cache.getFlight("FL1", "t")).expectNextCount(1).verifyComplete();
+		StepVerifier.create(cache.getFlights(List.of("FL1", "FL2"), "t").map(FlightDto::getId).sort())
+				.expectNext("FL1", "FL2").verifyComplete();
+		StepVerifier.create(cache.getFlights(List.of("FL1", "FL2"), "t")).expectNextCount(2).verifyComplete();
+
+		verify(flightWebClient, times(1)).getFlights(any(), anyString());
+	}
+
+	@Test
+	void sizeStaysBounded() {
+		when(flightWebClient.getFlight(anyString(), anyString()))
+				.thenAnswer(i -> Mono.just(flight(i.getArgument(0))));
+
+		for (String id : List.of("FL1", "FL2", "FL3", "FL4")) {
+			StepVerifier.create(cache.getFlight(id, "t")).expectNextCount(1).verifyComplete();
+		}
+
+		assertEquals(2, meterRegistry.get("cache.size").tag("cache", "flights").gauge().value());
+		verify(flightWebClient, never()).getFlights(any(), anyString());
+	}
+}
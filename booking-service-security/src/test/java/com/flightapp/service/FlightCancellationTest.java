@@ -0,0 +1,178 @@
+package com.flightapp.service;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.flightapp.dto.FlightDto;
+import com.flightapp.dto.SeatRelease;
+import com.flightapp.feign.FlightWebClient;
+import com.flightapp.messaging.BookingOutbox;
+import com.flightapp.model.Ticket;
+import com.flightapp.repository.TicketRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+class FlightCancellationTest {
+
+	private static final String TOKEN = "Bearer admin-token";
+
+	@Mock
+	private TicketRepository ticketRepository;
+
+	@Mock
+	private BookingOutbox bookingOutbox;
+
+	@Mock
+	private FlightWebClient flightWebClient;
+
+	@Mock
+	private BookingSagaCoordinator sagaCoordinator;
+
+	private TicketCache ticketCache;
+	private FlightCancellation cancellation;
+
+	@BeforeEach
+	void setUp() {
+		MockitoAnnotations.openMocks(this);
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		ticketCache = new TicketCache(meterRegistry, 60_000, 10);
+		cancellation = new FlightCancellation(ticketRepository, bookingOutbox, flightWebClient, sagaCoordinator,
+				new FlightCache(flightWebClient, meterRegistry, 60_000, 10), ticketCache,
+				new BookingMetrics(meterRegistry), 2);
+		when(bookingOutbox.inUnitOfWork(any())).thenAnswer(i -> i.getArgument(0));
+		when(ticketRepository.markCancelled(any(), anyString()))
+				.thenAnswer(i -> Flux.fromIterable((Collection<?>) i.getArgument(0)).cast(String.class));
+		when(bookingOutbox.recordAll(eq("BOOKING_CANCELLED"), anyList()))
+				.thenAnswer(i -> Mono.just((long) ((List<?>) i.getArgument(1)).size()));
+		when(flightWebClient.releaseSeats(any(), anyList(), eq(TOKEN))).thenReturn(Mono.just(new FlightDto()));
+		when(sagaCoordinator.releaseLater(any(), any(), any(), any(), anyInt(), any())).thenReturn(Mono.empty());
+	}
+
+	private static Ticket ticket(String id, String seats, String returnFlightId) {
+		Ticket ticket = new Ticket();
+		ticket.setId(id);
+		ticket.setPnr("PNR-" + id);
+		ticket.setDepartureFlightId("FL1");
+		ticket.setReturnFlightId(returnFlightId);
+		ticket.setSeatsBooked(seats);
+		ticket.setSagaId("S-" + id);
+		return ticket;
+	}
+
+	@Test
+	void cancelsInBatchesAndReleasesEachFlightOncePerBatch() {
+		when(ticketRepository.findActiveByFlight("FL1", 2)).thenReturn(Flux.just(ticket("t1", "A1,A2", null),
+				ticket("t2", "B1", "FL2"), ticket("t3", "C1,C2,C3", null)));
+		StepVerifier.create(ticketCache.get("PNR-t1", pnr -> Mono.just(new Ticket()))).expectNextCount(1)
+				.verifyComplete();
+
+		StepVerifier.create(cancellation.cancel("FL1", TOKEN))
+				.expectNextMatches(result -> result.ticketsCancelled() == 3
+						&& result.seatsReleased().equals(Map.of("FL1", 6, "FL2", 1)))
+				.verifyComplete();
+
+		verify(ticketRepository).markCancelled(eq(List.of("t1", "t2")), anyString());
+		verify(ticketRepository).markCancelled(eq(List.of("t3")), anyString());
+		verify(bookingOutbox, times(2)).recordAll(eq("BOOKING_CANCELLED"), anyList());
+		verify(flightWebClient).releaseSeats("FL1", List.of(new SeatRelease("S-t1", 2), new SeatRelease("S-t2", 1)),
+				TOKEN);
+		verify(flightWebClient).releaseSeats("FL2", List.of(new SeatRelease("S-t2", 1)), TOKEN);
+		verify(flightWebClient).releaseSeats("FL1", List.of(new SeatRelease("S-t3", 3)), TOKEN);
+		verify(flightWebClient, times(3)).releaseSeats(anyString(), anyList(), anyString());
+		// the cached ticket was dropped, so the next read loads it again
+		StepVerifier.create(ticketCache.get("PNR-t1", pnr -> Mono.empty())).verifyComplete();
+	}
+
+	@Test
+	void ticketsCancelledConcurrentlyAreNotCountedOrRecordedAgain() {
+		Ticket first = ticket("t1", "A1,A2", null);
+		when(ticketRepository.findActiveByFlight("FL1", 2)).thenReturn(Flux.just(first, ticket("t2", "B1", "FL2")));
+		doReturn(Flux.just("t1")).when(ticketRepository).markCancelled(eq(List.of("t1", "t2")), anyString());
+
+		StepVerifier.create(cancellation.cancel("FL1", TOKEN))
+				.expectNextMatches(result -> result.ticketsCancelled() == 1
+						&& result.seatsReleased().equals(Map.of("FL1", 2)))
+				.verifyComplete();
+
+		verify(bookingOutbox).recordAll("BOOKING_CANCELLED", List.of(first));
+		verify(flightWebClient).releaseSeats("FL1", List.of(new SeatRelease("S-t1", 2)), TOKEN);
+		verify(flightWebClient, never()).releaseSeats(eq("FL2"), anyList(), any());
+	}
+
+	@Test
+	void failedReleaseIsLeftOutOfTheResultAndHandedToRecovery() {
+		when(ticketRepository.findActiveByFlight("FL1", 2)).thenReturn(Flux.just(ticket("t1", "A1", "FL2")));
+		IllegalStateException down = new IllegalStateException("flight-service down");
+		when(flightWebClient.releaseSeats("FL2", List.of(new SeatRelease("S-t1", 1)), TOKEN))
+				.thenReturn(Mono.error(down));
+
+		StepVerifier.create(cancellation.cancel("FL1", TOKEN))
+				.expectNextMatches(result -> result.ticketsCancelled() == 1
+						&& result.seatsReleased().equals(Map.of("FL1", 1)))
+				.verifyComplete();
+
+		verify(sagaCoordinator).releaseLater("S-t1", "PNR-t1", "FL1", "FL2", 1, down);
+	}
+
+	@Test
+	void ticketWhoseLegsBothFailIsHandedToRecoveryOnce() {
+		Ticket ticket = ticket("t1", "A1,A2", "FL2");
+		when(ticketRepository.findActiveByFlight("FL1", 2)).thenReturn(Flux.just(ticket, ticket("t2", "B1", null)));
+		when(flightWebClient.releaseSeats(any(), anyList(), eq(TOKEN)))
+				.thenReturn(Mono.error(new IllegalStateException("flight-service down")));
+
+		StepVerifier.create(cancellation.cancel("FL1", TOKEN))
+				.expectNextMatches(result -> result.ticketsCancelled() == 2 && result.seatsReleased().isEmpty())
+				.verifyComplete();
+
+		verify(sagaCoordinator).releaseLater(eq("S-t1"), eq("PNR-t1"), eq("FL1"), eq("FL2"), eq(2), any());
+		verify(sagaCoordinator).releaseLater(eq("S-t2"), eq("PNR-t2"), eq("FL1"), eq(null), eq(1), any());
+		verify(sagaCoordinator, times(2)).releaseLater(any(), any(), any(), any(), anyInt(), any());
+	}
+
+	@Test
+	void failedReleaseWithoutSagaIsNotRetried() {
+		Ticket legacy = ticket("t1", "A1", null);
+		legacy.setSagaId(null);
+		when(ticketRepository.findActiveByFlight("FL1", 2)).thenReturn(Flux.just(legacy));
+		when(flightWebClient.releaseSeats("FL1", List.of(new SeatRelease(null, 1)), TOKEN))
+				.thenReturn(Mono.error(new IllegalStateException("flight-service down")));
+
+		StepVerifier.create(cancellation.cancel("FL1", TOKEN))
+				.expectNextMatches(result -> result.ticketsCancelled() == 1 && result.seatsReleased().isEmpty())
+				.verifyComplete();
+
+		verifyNoInteractions(sagaCoordinator);
+	}
+
+	@Test
+	void flightWithoutBookingsReleasesNothing() {
+		when(ticketRepository.findActiveByFlight("FL1", 2)).thenReturn(Flux.empty());
+
+		StepVerifier.create(cancellation.cancel("FL1", TOKEN))
+				.expectNextMatches(result -> result.ticketsCancelled() == 0 && result.seatsReleased().isEmpty())
+				.verifyComplete();
+		verifyNoInteractions(flightWebClient);
+	}
+}
@@ -0,0 +1,61 @@
+package com.flightapp.service;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares PnrGenerator with the UUID-prefix PNRs it replaced, single-threaded
+ * and under contention. Not part of the test run; start it with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.flightapp.service.PnrGeneratorBenchmark} or from the IDE.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PnrGeneratorBenchmark {
+
+	private final PnrGenerator generator = new PnrGenerator();
+
+	@Benchmark
+	public String uuidPrefix() {
+		return UUID.randomUUID().toString().substring(0, 8);
+	}
+
+	@Benchmark
+	public String pnrGenerator() {
+		return generator.next();
+	}
+
+	@Benchmark
+	@Threads(8)
+	public String uuidPrefixContended() {
+		return UUID.randomUUID().toString().substring(0, 8);
+	}
+
+	@Benchmark
+	@Threads(8)
+	public String pnrGeneratorContended() {
+		return generator.next();
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(PnrGeneratorBenchmark.class.getSimpleName()).build()).run();
+	}
+}
@@ -0,0 +1,33 @@
+package com.flightapp.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class PnrGeneratorTest {
+
+	private final PnrGenerator generator = new PnrGenerator();
+
+	@Test
+	void generatesEightCharacterCrockfordCodes() {
+		for (int i = 0; i < 1000; i++) {
+			String pnr = generator.next();
+			assertEquals(PnrGenerator.LENGTH, pnr.length());
+			assertTrue(pnr.matches("[0-9A-HJKMNP-TV-Z]+"), pnr);
+		}
+	}
+
+	@Test
+	void codesDoNotRepeatInPractice() {
+		Set<String> seen = new HashSet<>();
+		for (int i = 0; i < 100_000; i++) {
+			seen.add(generator.next());
+		}
+		// 40 random bits: a repeat within 100k draws has a probability below 0.5%
+		assertTrue(seen.size() >= 99_999);
+	}
+}
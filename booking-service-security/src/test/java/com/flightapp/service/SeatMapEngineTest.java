@@ -0,0 +1,86 @@
+package com.flightapp.service;
+
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.flightapp.model.Passenger;
+import com.flightapp.repository.PassengerRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+class SeatMapEngineTest {
+
+	@Mock
+	private PassengerRepository passengerRepository;
+
+	private SeatMapEngine engine;
+
+	@BeforeEach
+	void setUp() {
+		MockitoAnnotations.openMocks(this);
+		engine = new SeatMapEngine(passengerRepository, new SimpleMeterRegistry(), 60_000, 10);
+	}
+
+	private static Passenger seat(String seatNumber) {
+		Passenger passenger = new Passenger();
+		passenger.setSeatNumber(seatNumber);
+		return passenger;
+	}
+
+	@Test
+	void groupsGetAdjacentSeatsInOneRow() {
+		when(passengerRepository.findSeatsByFlightId("FL1"))
+				.thenReturn(Flux.just(seat("B1"), seat("E1"), seat("A2")));
+
+		StepVerifier.create(engine.claim("FL1", 18, 3)).expectNext(List.of("B2", "C2", "D2")).verifyComplete();
+		StepVerifier.create(engine.claim("FL1", 18, 2)).expectNext(List.of("C1", "D1")).verifyComplete();
+		StepVerifier.create(engine.claim("FL1", 18, 1)).expectNext(List.of("A1")).verifyComplete();
+
+		verify(passengerRepository, times(1)).findSeatsByFlightId("FL1");
+	}
+
+	@Test
+	void scattersGroupsWhenNoRowHasRoom() {
+		when(passengerRepository.findSeatsByFlightId("FL1"))
+				.thenReturn(Flux.just(seat("B1"), seat("D1"), seat("F1"), seat("B2"), seat("D2")));
+
+		StepVerifier.create(engine.claim("FL1", 12, 3)).expectNext(List.of("A1", "C1", "E1")).verifyComplete();
+	}
+
+	@Test
+	void rejectsGroupsLargerThanTheFreeSeats() {
+		when(passengerRepository.findSeatsByFlightId("FL1")).thenReturn(Flux.just(seat("A1")));
+
+		StepVerifier.create(engine.claim("FL1", 3, 3))
+				.expectErrorMatches(e -> e instanceof ResponseStatusException rse
+						&& rse.getStatusCode() == HttpStatus.CONFLICT)
+				.verify();
+		StepVerifier.create(engine.claim("FL1", 3, 2)).expectNext(List.of("B1", "C1")).verifyComplete();
+	}
+
+	@Test
+	void releasedSeatsAreOfferedAgainAndInvalidateReloads() {
+		when(passengerRepository.findSeatsByFlightId("FL1")).thenReturn(Flux.empty());
+
+		StepVerifier.create(engine.claim("FL1", 6, 2)).expectNext(List.of("A1", "B1")).verifyComplete();
+		engine.release("FL1", List.of("A1", "B1"));
+		engine.markTaken("FL1", List.of("a1"));
+		StepVerifier.create(engine.claim("FL1", 6, 2)).expectNext(List.of("B1", "C1")).verifyComplete();
+
+		engine.invalidate("FL1");
+		StepVerifier.create(engine.claim("FL1", 6, 1)).expectNext(List.of("A1")).verifyComplete();
+		verify(passengerRepository, times(2)).findSeatsByFlightId("FL1");
+	}
+}
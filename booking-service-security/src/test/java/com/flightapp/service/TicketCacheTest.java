@@ -0,0 +1,76 @@
+package com.flightapp.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+import com.flightapp.model.Ticket;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+class TicketCacheTest {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final List<String> loaded = new ArrayList<>();
+
+	private final Function<String, Mono<Ticket>> loader = pnr -> {
+		loaded.add(pnr);
+		Ticket ticket = new Ticket();
+		ticket.setPnr(pnr);
+		return Mono.just(ticket);
+	};
+
+	private double gets(String result) {
+		return meterRegistry.get("cache.gets").tag("cache", "tickets").tag("result", result).functionCounter()
+				.count();
+	}
+
+	@Test
+	void concurrentReadsShareOneLoad() {
+		TicketCache cache = new TicketCache(meterRegistry, 60_000, 10);
+		Function<String, Mono<Ticket>> slow = pnr -> loader.apply(pnr).delayElement(Duration.ofMillis(50));
+
+		StepVerifier.create(Flux.merge(cache.get("P1", slow), cache.get("P1", slow), cache.get("P1", slow)))
+				.expectNextCount(3).verifyComplete();
+
+		assertEquals(List.of("P1"), loaded);
+		assertEquals(2, gets("hit"));
+		assertEquals(1, gets("miss"));
+	}
+
+	@Test
+	void sizeStaysBoundedAndEvictionsAreCounted() {
+		TicketCache cache = new TicketCache(meterRegistry, 60_000, 2);
+
+		for (String pnr : List.of("P1", "P2", "P3", "P4")) {
+			StepVerifier.create(cache.get(pnr, loader)).expectNextCount(1).verifyComplete();
+		}
+
+		assertEquals(2, meterRegistry.get("cache.size").tag("cache", "tickets").gauge().value());
+		assertEquals(2, meterRegistry.get("cache.evictions").tag("cache", "tickets").functionCounter().count());
+	}
+
+	@Test
+	void expiredInvalidatedAndUnknownTicketsAreLoadedAgain() {
+		TicketCache expiring = new TicketCache(meterRegistry, 0, 10);
+		StepVerifier.create(expiring.get("P1", loader)).expectNextCount(1).verifyComplete();
+		StepVerifier.create(expiring.get("P1", loader)).expectNextCount(1).verifyComplete();
+
+		TicketCache cache = new TicketCache(new SimpleMeterRegistry(), 60_000, 10);
+		StepVerifier.create(cache.get("P2", loader)).expectNextCount(1).verifyComplete();
+		cache.invalidate("P2");
+		StepVerifier.create(cache.get("P2", loader)).expectNextCount(1).verifyComplete();
+		StepVerifier.create(cache.get("P3", pnr -> Mono.empty())).verifyComplete();
+		StepVerifier.create(cache.get("P3", loader)).expectNextCount(1).verifyComplete();
+
+		assertEquals(List.of("P1", "P1", "P2", "P2", "P3"), loaded);
+	}
+}
@@ -0,0 +1,104 @@
+package com.flightapp.service;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.flightapp.dto.FlightDto;
+import com.flightapp.feign.FlightWebClient;
+import com.flightapp.model.Ticket;
+import com.flightapp.repository.TicketRepository;
+import com.flightapp.security.ServiceTokenProvider;
+import com.mongodb.bulk.BulkWriteResult;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+class TicketSnapshotBackfillTest {
+
+	@Mock
+	private TicketRepository ticketRepository;
+
+	@Mock
+	private ReactiveMongoTemplate mongoTemplate;
+
+	@Mock
+	private ReactiveBulkOperations bulkOps;
+
+	@Mock
+	private FlightWebClient flightWebClient;
+
+	@Mock
+	private ServiceTokenProvider serviceTokenProvider;
+
+	private TicketSnapshotBackfill backfill;
+
+	@BeforeEach
+	void setUp() {
+		MockitoAnnotations.openMocks(this);
+		backfill = new TicketSnapshotBackfill(ticketRepository, mongoTemplate, flightWebClient, serviceTokenProvider,
+				true, 2);
+		when(serviceTokenProvider.bearerToken()).thenReturn("Bearer service");
+		when(mongoTemplate.bulkOps(BulkMode.UNORDERED, Ticket.class)).thenReturn(bulkOps);
+		when(bulkOps.updateOne(any(Query.class), any(Update.class))).thenReturn(bulkOps);
+		when(mongoTemplate.save(any(Document.class), eq("migrations"))).thenAnswer(i -> Mono.just(i.getArgument(0)));
+	}
+
+	private static Ticket ticket(String id, String departure, String ret) {
+		Ticket ticket = new Ticket();
+		ticket.setId(id);
+		ticket.setDepartureFlightId(departure);
+		ticket.setReturnFlightId(ret);
+		return ticket;
+	}
+
+	private static FlightDto flight(String id) {
+		FlightDto flight = new FlightDto();
+		flight.setId(id);
+		return flight;
+	}
+
+	@Test
+	void skipsWhenAlreadyMigrated() {
+		when(mongoTemplate.exists(any(Query.class), eq("migrations"))).thenReturn(Mono.just(true));
+
+		StepVerifier.create(backfill.run()).expectNext(0L).verifyComplete();
+
+		verify(ticketRepository, never()).findWithoutFlightSnapshot();
+	}
+
+	@Test
+	void backfillsInBatchesWithOneFlightCallEach() {
+		when(mongoTemplate.exists(any(Query.class), eq("migrations"))).thenReturn(Mono.just(false));
+		when(ticketRepository.findWithoutFlightSnapshot())
+				.thenReturn(Flux.just(ticket("T1", "FL1", null), ticket("T2", "FL1", "FL2"), ticket("T3", "FL9", null)));
+		when(flightWebClient.getFlights(any(), eq("Bearer service")))
+				.thenReturn(Flux.just(flight("FL1"), flight("FL2")))
+				.thenReturn(Flux.empty());
+		when(bulkOps.execute()).thenReturn(Mono.just(BulkWriteResult.acknowledged(0, 2, 0, 2, List.of(), List.of())));
+
+		StepVerifier.create(backfill.run()).expectNext(2L).verifyComplete();
+
+		verify(flightWebClient, times(2)).getFlights(any(), anyString());
+		verify(bulkOps, times(2)).updateOne(any(Query.class), any(Update.class));
+		verify(mongoTemplate).save(any(Document.class), eq("migrations"));
+	}
+}
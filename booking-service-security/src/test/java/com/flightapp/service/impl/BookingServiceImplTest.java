@@ -1,35 +1,65 @@
 package com.flightapp.service.impl;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
+import org.bson.types.ObjectId;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.http.HttpStatus;
-import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.web.server.ResponseStatusException;
 
+import com.flightapp.dto.BookingOutcome;
+import com.flightapp.dto.FlightCancellationResult;
 import com.flightapp.dto.FlightDto;
-import com.flightapp.feign.FlightClient;
-import com.flightapp.messaging.BookingEvent;
+import com.flightapp.dto.HistoryCursor;
+import com.flightapp.exception.FlightBookingException;
+import com.flightapp.feign.FlightWebClient;
+import com.flightapp.messaging.BookingOutbox;
+import com.flightapp.model.BookingSaga;
 import com.flightapp.model.FLIGHTTYPE;
+import com.flightapp.model.FlightSnapshot;
+import com.flightapp.model.OutboxEvent;
 import com.flightapp.model.Passenger;
 import com.flightapp.model.Ticket;
+import com.flightapp.model.WaitlistEntry;
+import com.flightapp.repository.BookingSagaRepository;
 import com.flightapp.repository.PassengerRepository;
 import com.flightapp.repository.TicketRepository;
-
+import com.flightapp.security.ServiceTokenProvider;
+import com.flightapp.service.BookingIdempotency;
+import com.flightapp.service.BookingMetrics;
+import com.flightapp.service.BookingSagaCoordinator;
+import com.flightapp.service.BookingWaitlist;
+import com.flightapp.service.FlightCache;
+import com.flightapp.service.FlightCancellation;
+import com.flightapp.service.PnrGenerator;
+import com.flightapp.service.SeatMapEngine;
+import com.flightapp.service.TicketCache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
@@ -43,13 +73,28 @@ class BookingServiceImplTest {
 	private PassengerRepository passengerRepository;
 
 	@Mock
-	private FlightClient flightClient;
+	private BookingOutbox bookingOutbox;
+
+	@Mock
+	private FlightWebClient flightWebClient;
+
+	@Mock
+	private BookingIdempotency bookingIdempotency;
+
+	@Mock
+	private BookingSagaRepository sagaRepository;
+
+	@Mock
+	private BookingWaitlist bookingWaitlist;
+
+	@Mock
+	private ServiceTokenProvider serviceTokenProvider;
 
 	@Mock
-	private KafkaTemplate<String, BookingEvent> kafkaTemplate;
+	private FlightCancellation flightCancellation;
 
-	@InjectMocks
 	private BookingServiceImpl bookingService;
+	private SimpleMeterRegistry meterRegistry;
 
 	private Passenger passenger;
 	private FlightDto depFlight;
@@ -58,6 +103,24 @@ class BookingServiceImplTest {
 	@BeforeEach
 	void setUp() {
 		MockitoAnnotations.openMocks(this);
+		meterRegistry = new SimpleMeterRegistry();
+		BookingMetrics metrics = new BookingMetrics(meterRegistry);
+		FlightCache flightCache = new FlightCache(flightWebClient, meterRegistry, 5000, 100);
+		bookingService = new BookingServiceImpl(null, ticketRepository, passengerRepository, bookingOutbox,
+				flightWebClient, flightCache, bookingIdempotency,
+				new BookingSagaCoordinator(sagaRepository, flightWebClient, metrics, flightCache),
+				new PnrGenerator(), metrics, new SeatMapEngine(passengerRepository, meterRegistry, 30_000, 10), bookingWaitlist,
+				serviceTokenProvider, new TicketCache(meterRegistry, 60_000, 100), flightCancellation);
+		when(bookingWaitlist.promote(anyString(), anyInt(), any())).thenReturn(Mono.empty());
+		when(sagaRepository.save(any(BookingSaga.class))).thenAnswer(i -> {
+			BookingSaga saga = i.getArgument(0);
+			if (saga.getId() == null) {
+				saga.setId("S1");
+			}
+			return Mono.just(saga);
+		});
+		when(bookingOutbox.inUnitOfWork(any())).thenAnswer(i -> i.getArgument(0));
+		when(bookingOutbox.record(anyString(), any(Ticket.class))).thenReturn(Mono.just(new OutboxEvent()));
 
 		passenger = new Passenger();
 		passenger.setName("Poojith");
@@ -100,9 +163,35 @@ class BookingServiceImplTest {
 	void testGetByPnr() {
 		Ticket ticket = new Ticket();
 		ticket.setPnr("PNR123");
+		ticket.setPassengers(List.of(passenger));
+		when(ticketRepository.findWithPassengersByPnr("PNR123")).thenReturn(Mono.just(ticket));
+
+		StepVerifier.create(bookingService.getByPnr("PNR123"))
+				.expectNextMatches(t -> t.getPassengers().equals(List.of(passenger))).verifyComplete();
+		verify(passengerRepository, never()).findByTicketId(anyString());
+	}
+
+	@Test
+	void testGetByPnrIsServedFromCacheUntilCancelled() {
+		Ticket ticket = new Ticket();
+		ticket.setId("T1");
+		ticket.setPnr("PNR123");
+		ticket.setDepartureFlightId("FL1");
+		ticket.setSeatsBooked("A1");
+		depFlight.setDepartureTime(LocalDateTime.now().plusDays(2));
 		when(ticketRepository.findByPnr("PNR123")).thenReturn(Mono.just(ticket));
+		when(ticketRepository.findWithPassengersByPnr("PNR123")).thenReturn(Mono.just(ticket));
+		when(ticketRepository.markCancelled(eq(List.of("T1")), anyString())).thenReturn(Flux.just("T1"));
+		when(flightWebClient.getFlight("FL1", token)).thenReturn(Mono.just(depFlight));
+		when(flightWebClient.releaseSeats("FL1", 1, null, token)).thenReturn(Mono.just(depFlight));
 
 		StepVerifier.create(bookingService.getByPnr("PNR123")).expectNext(ticket).verifyComplete();
+		StepVerifier.create(bookingService.getByPnr("PNR123")).expectNext(ticket).verifyComplete();
+		verify(ticketRepository, times(1)).findWithPassengersByPnr("PNR123");
+
+		StepVerifier.create(bookingService.cancelByPnr("PNR123", token)).expectNextCount(1).verifyComplete();
+		StepVerifier.create(bookingService.getByPnr("PNR123")).expectNext(ticket).verifyComplete();
+		verify(ticketRepository, times(2)).findWithPassengersByPnr("PNR123");
 	}
 
 //	@Test
@@ -117,6 +206,7 @@ class BookingServiceImplTest {
 	@Test
 	void testCancelByPnrSuccess() {
 		Ticket ticket = new Ticket();
+		ticket.setId("T1");
 		ticket.setPnr("PNR123");
 		ticket.setDepartureFlightId("FL1");
 		ticket.setSeatsBooked("A1");
@@ -125,15 +215,215 @@ class BookingServiceImplTest {
 		depFlight.setDepartureTime(LocalDateTime.now().plusDays(2));
 
 		when(ticketRepository.findByPnr("PNR123")).thenReturn(Mono.just(ticket));
-		when(ticketRepository.save(any(Ticket.class))).thenReturn(Mono.just(ticket));
-		when(flightClient.getFlight("FL1", token)).thenReturn(depFlight);
-		when(flightClient.releaseSeats("FL1", 1, token)).thenReturn("OK");
+		when(ticketRepository.markCancelled(eq(List.of("T1")), anyString())).thenReturn(Flux.just("T1"));
+		when(flightWebClient.getFlight("FL1", token)).thenReturn(Mono.just(depFlight));
+		when(flightWebClient.releaseSeats("FL1", 1, null, token)).thenReturn(Mono.just(depFlight));
 
 		StepVerifier.create(bookingService.cancelByPnr("PNR123", token)).expectNext("Cancelled Successfully")
 				.verifyComplete();
 
-		verify(flightClient).releaseSeats("FL1", 1, token);
-		verify(ticketRepository).save(any(Ticket.class));
+		verify(flightWebClient).releaseSeats("FL1", 1, null, token);
+		verify(ticketRepository).markCancelled(eq(List.of("T1")), anyString());
+		verify(bookingOutbox).record("BOOKING_CANCELLED", ticket);
+		verify(bookingWaitlist).promote(eq("FL1"), eq(1), any());
+	}
+
+	@Test
+	void testCancelByPnrLosingToConcurrentCancellationRecordsNoEvent() {
+		Ticket ticket = new Ticket();
+		ticket.setId("T1");
+		ticket.setPnr("PNR123");
+		ticket.setDepartureFlightId("FL1");
+		ticket.setSeatsBooked("A1");
+		depFlight.setDepartureTime(LocalDateTime.now().plusDays(2));
+
+		when(ticketRepository.findByPnr("PNR123")).thenReturn(Mono.just(ticket));
+		when(ticketRepository.markCancelled(eq(List.of("T1")), anyString())).thenReturn(Flux.empty());
+		when(flightWebClient.getFlight("FL1", token)).thenReturn(Mono.just(depFlight));
+		when(flightWebClient.releaseSeats("FL1", 1, null, token)).thenReturn(Mono.just(depFlight));
+
+		StepVerifier.create(bookingService.cancelByPnr("PNR123", token))
+				.expectErrorMatches(ex -> ex instanceof ResponseStatusException rse
+						&& rse.getStatusCode() == HttpStatus.BAD_REQUEST)
+				.verify();
+
+		verify(bookingOutbox, never()).record(eq("BOOKING_CANCELLED"), any(Ticket.class));
+		verify(bookingWaitlist, never()).promote(anyString(), anyInt(), any());
+	}
+
+	@Test
+	void testCancelByPnrFlipsTicketBeforeReleasingSeats() {
+		Ticket ticket = new Ticket();
+		ticket.setId("T1");
+		ticket.setPnr("PNR123");
+		ticket.setDepartureFlightId("FL1");
+		ticket.setSeatsBooked("A1");
+		depFlight.setDepartureTime(LocalDateTime.now().plusDays(2));
+
+		when(ticketRepository.findByPnr("PNR123")).thenReturn(Mono.just(ticket));
+		when(ticketRepository.markCancelled(eq(List.of("T1")), anyString()))
+				.thenReturn(Flux.error(new IllegalStateException("mongo down")));
+		when(flightWebClient.getFlight("FL1", token)).thenReturn(Mono.just(depFlight));
+
+		StepVerifier.create(bookingService.cancelByPnr("PNR123", token)).expectError(IllegalStateException.class)
+				.verify();
+
+		verify(flightWebClient, never()).releaseSeats(anyString(), anyInt(), any(), anyString());
+	}
+
+	@Test
+	void testCancelByPnrHandsFailedReleaseToSagaRecovery() {
+		Ticket ticket = new Ticket();
+		ticket.setId("T1");
+		ticket.setPnr("PNR123");
+		ticket.setSagaId("S9");
+		ticket.setDepartureFlightId("FL1");
+		ticket.setReturnFlightId("FL2");
+		ticket.setSeatsBooked("A1");
+		depFlight.setDepartureTime(LocalDateTime.now().plusDays(2));
+
+		when(ticketRepository.findByPnr("PNR123")).thenReturn(Mono.just(ticket));
+		when(ticketRepository.markCancelled(eq(List.of("T1")), anyString())).thenReturn(Flux.just("T1"));
+		when(flightWebClient.getFlight("FL1", token)).thenReturn(Mono.just(depFlight));
+		when(flightWebClient.releaseSeats("FL1", 1, "S9", token)).thenReturn(Mono.just(depFlight));
+		when(flightWebClient.releaseSeats("FL2", 1, "S9", token))
+				.thenReturn(Mono.error(new IllegalStateException("flight-service down")));
+
+		StepVerifier.create(bookingService.cancelByPnr("PNR123", token)).expectNext("Cancelled Successfully")
+				.verifyComplete();
+
+		verify(sagaRepository).save(argThat(saga -> "S9".equals(saga.getId())
+				&& saga.getState() == BookingSaga.State.COMPENSATING && "FL2".equals(saga.getReturnFlightId())));
+		verify(bookingOutbox).record("BOOKING_CANCELLED", ticket);
+		verify(bookingWaitlist, never()).promote(anyString(), anyInt(), any());
+	}
+
+	@Test
+	void testWaitlistPromotionBooksThroughTheNormalPathWithServiceToken() {
+		Ticket ticket = new Ticket();
+		ticket.setId("T1");
+		ticket.setPnr("PNR123");
+		ticket.setDepartureFlightId("FL1");
+		ticket.setSeatsBooked("A1");
+		depFlight.setDepartureTime(LocalDateTime.now().plusDays(2));
+		String serviceToken = "Bearer service-token";
+
+		WaitlistEntry entry = new WaitlistEntry();
+		entry.setUserEmail("ravi@gmail.com");
+		entry.setFlightId("FL1");
+		entry.setTripType(FLIGHTTYPE.ONE_WAY);
+		entry.setPassengers(List.of(WaitlistEntry.WaitingPassenger.of(passenger)));
+
+		when(ticketRepository.findByPnr("PNR123")).thenReturn(Mono.just(ticket));
+		when(ticketRepository.markCancelled(eq(List.of("T1")), anyString())).thenReturn(Flux.just("T1"));
+		when(ticketRepository.save(any(Ticket.class))).thenAnswer(i -> Mono.just(i.getArgument(0)));
+		when(flightWebClient.getFlight(eq("FL1"), anyString())).thenReturn(Mono.just(depFlight));
+		when(flightWebClient.releaseSeats("FL1", 1, null, token)).thenReturn(Mono.just(depFlight));
+		when(serviceTokenProvider.bearerToken()).thenReturn(serviceToken);
+		when(passengerRepository.findBookedSeats(eq("FL1"), any())).thenReturn(Flux.empty());
+		when(flightWebClient.reserveSeats("FL1", 1, "S1", serviceToken)).thenReturn(Mono.just(depFlight));
+		when(passengerRepository.saveAll(anyList())).thenReturn(Flux.just(passenger));
+		List<String> promoted = new ArrayList<>();
+		when(bookingWaitlist.promote(eq("FL1"), eq(1), any())).thenAnswer(i -> {
+			Function<WaitlistEntry, Mono<String>> booking = i.getArgument(2);
+			return booking.apply(entry).doOnNext(promoted::add).then();
+		});
+
+		StepVerifier.create(bookingService.cancelByPnr("PNR123", token)).expectNext("Cancelled Successfully")
+				.verifyComplete();
+
+		assertEquals(1, promoted.size());
+		verify(ticketRepository).save(argThat(t -> "ravi@gmail.com".equals(t.getUserEmail())));
+		verify(bookingOutbox).record(eq("BOOKING_CONFIRMED"), any(Ticket.class));
+	}
+
+	@Test
+	void testWaitlistPromotionAfterCancelDoesNotUseTheCachedFullFlight() {
+		Ticket ticket = new Ticket();
+		ticket.setId("T1");
+		ticket.setPnr("PNR123");
+		ticket.setDepartureFlightId("FL1");
+		ticket.setSeatsBooked("A1");
+		FlightDto full = new FlightDto();
+		full.setId("FL1");
+		full.setAvailableSeats(0);
+		full.setPrice(100.0);
+		full.setDepartureTime(LocalDateTime.now().plusDays(2));
+		depFlight.setAvailableSeats(1);
+		depFlight.setDepartureTime(full.getDepartureTime());
+		String serviceToken = "Bearer service-token";
+
+		WaitlistEntry entry = new WaitlistEntry();
+		entry.setUserEmail("ravi@gmail.com");
+		entry.setFlightId("FL1");
+		entry.setTripType(FLIGHTTYPE.ONE_WAY);
+		entry.setPassengers(List.of(WaitlistEntry.WaitingPassenger.of(passenger)));
+
+		when(ticketRepository.findByPnr("PNR123")).thenReturn(Mono.just(ticket));
+		when(ticketRepository.markCancelled(eq(List.of("T1")), anyString())).thenReturn(Flux.just("T1"));
+		when(ticketRepository.save(any(Ticket.class))).thenAnswer(i -> Mono.just(i.getArgument(0)));
+		when(flightWebClient.getFlight(eq("FL1"), anyString())).thenReturn(Mono.just(full), Mono.just(depFlight));
+		when(flightWebClient.releaseSeats("FL1", 1, null, token)).thenReturn(Mono.just(depFlight));
+		when(serviceTokenProvider.bearerToken()).thenReturn(serviceToken);
+		when(passengerRepository.findBookedSeats(eq("FL1"), any())).thenReturn(Flux.empty());
+		when(flightWebClient.reserveSeats("FL1", 1, "S1", serviceToken)).thenReturn(Mono.just(depFlight));
+		when(passengerRepository.saveAll(anyList())).thenReturn(Flux.just(passenger));
+		List<String> promoted = new ArrayList<>();
+		when(bookingWaitlist.promote(eq("FL1"), eq(1), any())).thenAnswer(i -> {
+			Function<WaitlistEntry, Mono<String>> booking = i.getArgument(2);
+			return booking.apply(entry).doOnNext(promoted::add).then();
+		});
+
+		StepVerifier.create(bookingService.cancelByPnr("PNR123", token)).expectNext("Cancelled Successfully")
+				.verifyComplete();
+
+		assertEquals(1, promoted.size());
+		verify(flightWebClient, times(2)).getFlight(eq("FL1"), anyString());
+	}
+
+	@Test
+	void testCancelFlightPromotesWaitlistOnOtherFlightsOnly() {
+		FlightCancellationResult result = new FlightCancellationResult("FL1", 3, Map.of("FL1", 5, "FL2", 2));
+		when(flightCancellation.cancel("FL1", token)).thenReturn(Mono.just(result));
+
+		StepVerifier.create(bookingService.cancelFlight("FL1", token)).expectNext(result).verifyComplete();
+
+		verify(bookingWaitlist).promote(eq("FL2"), eq(2), any());
+		verify(bookingWaitlist, never()).promote(eq("FL1"), anyInt(), any());
+	}
+
+	@Test
+	void testBookTicketReportsFullFlightAsSeatShortage() {
+		depFlight.setAvailableSeats(0);
+		when(passengerRepository.findBookedSeats(eq("FL1"), any())).thenReturn(Flux.empty());
+		when(flightWebClient.getFlight("FL1", token)).thenReturn(Mono.just(depFlight));
+
+		StepVerifier.create(bookingService.bookTicket("pooja@gmail.com", "FL1", null, List.of(passenger),
+				FLIGHTTYPE.ONE_WAY, token))
+				.expectErrorMatches(e -> BookingWaitlist.isSeatShortage(e)
+						&& ((ResponseStatusException) e).getStatusCode() == HttpStatus.CONFLICT)
+				.verify();
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	void testFullFlightIsWaitlistedInsideTheIdempotentExecution() {
+		depFlight.setAvailableSeats(0);
+		WaitlistEntry entry = new WaitlistEntry();
+		entry.setId("W1");
+		when(passengerRepository.findBookedSeats(eq("FL1"), any())).thenReturn(Flux.empty());
+		when(flightWebClient.getFlight("FL1", token)).thenReturn(Mono.just(depFlight));
+		when(bookingWaitlist.enqueue(eq("pooja@gmail.com"), eq("FL1"), isNull(), anyList(), eq(FLIGHTTYPE.ONE_WAY),
+				eq(false))).thenReturn(Mono.just(entry));
+		when(bookingIdempotency.execute(eq("pooja@gmail.com"), eq("key-1"), anyString(), any()))
+				.thenAnswer(i -> ((Supplier<Mono<BookingOutcome>>) i.getArgument(3)).get());
+
+		StepVerifier.create(bookingService.bookTicket("pooja@gmail.com", "FL1", null, List.of(passenger),
+				FLIGHTTYPE.ONE_WAY, false, true, token, "key-1"))
+				.expectNext(BookingOutcome.waitlisted("W1")).verifyComplete();
+
+		verify(bookingIdempotency).execute(eq("pooja@gmail.com"), eq("key-1"), anyString(), any());
+		verify(ticketRepository, never()).save(any(Ticket.class));
 	}
 
 	@Test
@@ -208,6 +498,7 @@ class BookingServiceImplTest {
 	@Test
 	void testCancelByPnrCalculatesSeatCount() {
 		Ticket ticket = new Ticket();
+		ticket.setId("T1");
 		ticket.setPnr("PNR123");
 		ticket.setDepartureFlightId("FL1");
 		ticket.setReturnFlightId("FL2");
@@ -218,25 +509,25 @@ class BookingServiceImplTest {
 
 		when(ticketRepository.findByPnr("PNR123")).thenReturn(Mono.just(ticket));
 
-		when(flightClient.getFlight("FL1", token)).thenReturn(depFlight);
-		when(flightClient.getFlight("FL2", token)).thenReturn(depFlight);
+		when(flightWebClient.getFlight("FL1", token)).thenReturn(Mono.just(depFlight));
 
-		when(flightClient.releaseSeats(eq("FL1"), eq(2), eq(token))).thenReturn("OK");
-		when(flightClient.releaseSeats(eq("FL2"), eq(2), eq(token))).thenReturn("OK");
+		when(flightWebClient.releaseSeats(eq("FL1"), eq(2), isNull(), eq(token))).thenReturn(Mono.just(depFlight));
+		when(flightWebClient.releaseSeats(eq("FL2"), eq(2), isNull(), eq(token))).thenReturn(Mono.just(depFlight));
 
-		when(ticketRepository.save(any(Ticket.class))).thenReturn(Mono.just(ticket));
+		when(ticketRepository.markCancelled(eq(List.of("T1")), anyString())).thenReturn(Flux.just("T1"));
 
 		StepVerifier.create(bookingService.cancelByPnr("PNR123", token)).expectNext("Cancelled Successfully")
 				.verifyComplete();
 
-		verify(flightClient).releaseSeats("FL1", 2, token);
-		verify(flightClient).releaseSeats("FL2", 2, token);
+		verify(flightWebClient).releaseSeats("FL1", 2, null, token);
+		verify(flightWebClient).releaseSeats("FL2", 2, null, token);
 	}
 
 	@Test
 	void testCancelByPnrNoReturnFlight() {
 
 		Ticket ticket = new Ticket();
+		ticket.setId("T1");
 		ticket.setPnr("PNR123");
 		ticket.setDepartureFlightId("FL1");
 		ticket.setReturnFlightId(null);
@@ -249,16 +540,343 @@ class BookingServiceImplTest {
 
 		when(ticketRepository.findByPnr("PNR123")).thenReturn(Mono.just(ticket));
 
-		when(ticketRepository.save(any(Ticket.class))).thenReturn(Mono.just(ticket));
+		when(ticketRepository.markCancelled(eq(List.of("T1")), anyString())).thenReturn(Flux.just("T1"));
 
-		when(flightClient.getFlight("FL1", token)).thenReturn(depFlight);
+		when(flightWebClient.getFlight("FL1", token)).thenReturn(Mono.just(depFlight));
 
-		when(flightClient.releaseSeats("FL1", 1, token)).thenReturn("OK");
+		when(flightWebClient.releaseSeats("FL1", 1, null, token)).thenReturn(Mono.just(depFlight));
 
 		StepVerifier.create(bookingService.cancelByPnr("PNR123", token)).expectNext("Cancelled Successfully")
 				.verifyComplete();
 
-		verify(flightClient).releaseSeats("FL1", 1, token);
-		verify(flightClient, never()).releaseSeats(eq("FL2"), anyInt(), eq(token));
+		verify(flightWebClient).releaseSeats("FL1", 1, null, token);
+		verify(flightWebClient, never()).releaseSeats(eq("FL2"), anyInt(), any(), eq(token));
+	}
+
+	@Test
+	void testHistoryByEmailFetchesFlightsInOneBatch() {
+		Ticket oneWay = new Ticket();
+		oneWay.setId(new ObjectId().toHexString());
+		oneWay.setPnr("PNR1");
+		oneWay.setDepartureFlightId("FL1");
+		oneWay.setBookingTime(LocalDateTime.now());
+
+		Ticket roundTrip = new Ticket();
+		roundTrip.setId(new ObjectId().toHexString());
+		roundTrip.setBookingTime(LocalDateTime.now().minusDays(1));
+		roundTrip.setPnr("PNR2");
+		roundTrip.setDepartureFlightId("FL1");
+		roundTrip.setReturnFlightId("FL2");
+
+		depFlight.setAirline("Indigo");
+		FlightDto retFlight = new FlightDto();
+		retFlight.setId("FL2");
+		retFlight.setAirline("Vistara");
+
+		oneWay.setPassengers(List.of(passenger));
+		roundTrip.setPassengers(List.of(passenger));
+		when(ticketRepository.findHistoryWithPassengers("pooja@gmail.com", null, 50))
+				.thenReturn(Flux.just(oneWay, roundTrip));
+		when(flightWebClient.getFlights(argThat(ids -> ids.size() == 2 && ids.containsAll(List.of("FL1", "FL2"))),
+				eq(token))).thenReturn(Flux.just(depFlight, retFlight));
+
+		StepVerifier.create(bookingService.historyByEmail("pooja@gmail.com", token, null, 50))
+				.expectNextMatches(r -> r.getPnr().equals("PNR1") && r.getAirline().equals("Indigo")
+						&& r.getReturnFlight() == null)
+				.expectNextMatches(r -> r.getPnr().equals("PNR2") && r.getReturnFlight().getAirline().equals("Vistara")
+						&& r.getPassengers().equals(List.of(passenger)))
+				.verifyComplete();
+
+		verify(flightWebClient, never()).getFlight(anyString(), anyString());
+		verify(passengerRepository, never()).findByTicketId(anyString());
+	}
+
+	@Test
+	void testHistoryByEmailUsesTicketSnapshotsWithoutFlightService() {
+		Ticket ticket = new Ticket();
+		ticket.setId(new ObjectId().toHexString());
+		ticket.setPnr("PNR1");
+		ticket.setBookingTime(LocalDateTime.now());
+		ticket.setDepartureFlightId("FL1");
+		ticket.setReturnFlightId("FL2");
+		ticket.setDepartureFlight(new FlightSnapshot("FL1", null, "Indigo", "BLR", "DEL", null, null, 100.0));
+		ticket.setReturnFlight(new FlightSnapshot("FL2", null, "Vistara", "DEL", "BLR", null, null, 150.0));
+
+		ticket.setPassengers(List.of(passenger));
+		when(ticketRepository.findHistoryWithPassengers("pooja@gmail.com", null, 50)).thenReturn(Flux.just(ticket));
+
+		StepVerifier.create(bookingService.historyByEmail("pooja@gmail.com", token, null, 50))
+				.expectNextMatches(r -> r.getAirline().equals("Indigo") && r.getFromPlace().equals("BLR")
+						&& r.getReturnFlight().getAirline().equals("Vistara"))
+				.verifyComplete();
+
+		verify(flightWebClient, never()).getFlights(any(), anyString());
+	}
+
+	@Test
+	void testHistoryByEmailContinuesAfterCursor() {
+		Ticket older = new Ticket();
+		older.setId(new ObjectId().toHexString());
+		older.setPnr("PNR0");
+		older.setDepartureFlightId("FL1");
+		older.setBookingTime(LocalDateTime.of(2025, 1, 1, 10, 0));
+		Ticket newer = new Ticket();
+		newer.setId(new ObjectId().toHexString());
+		newer.setBookingTime(LocalDateTime.of(2025, 1, 2, 10, 0));
+		HistoryCursor cursor = HistoryCursor.of(newer);
+
+		older.setPassengers(List.of(passenger));
+		when(ticketRepository.findHistoryWithPassengers("pooja@gmail.com", cursor, 200)).thenReturn(Flux.just(older));
+		when(flightWebClient.getFlights(any(), eq(token))).thenReturn(Flux.just(depFlight));
+
+		StepVerifier.create(bookingService.historyByEmail("pooja@gmail.com", token, cursor.encode(), 1000))
+				.expectNextMatches(r -> r.getPnr().equals("PNR0")
+						&& HistoryCursor.decode(r.getCursor()).equals(HistoryCursor.of(older)))
+				.verifyComplete();
+		verify(ticketRepository, never()).findHistoryWithPassengers(anyString(), isNull(), anyInt());
+	}
+
+	@Test
+	void testHistoryByEmailRejectsBadPaging() {
+		StepVerifier.create(bookingService.historyByEmail("pooja@gmail.com", token, null, 0))
+				.expectErrorMatches(e -> e instanceof ResponseStatusException rse
+						&& rse.getStatusCode() == HttpStatus.BAD_REQUEST)
+				.verify();
+		StepVerifier.create(bookingService.historyByEmail("pooja@gmail.com", token, "not-a-cursor", 10))
+				.expectErrorMatches(e -> e instanceof ResponseStatusException rse
+						&& rse.getStatusCode() == HttpStatus.BAD_REQUEST)
+				.verify();
+	}
+
+	@Test
+	void testBookTicketRoundTripReservesBothLegsWithoutBlockingClient() {
+		String bearer = token;
+		FlightDto retFlight = new FlightDto();
+		retFlight.setId("FL2");
+		retFlight.setAvailableSeats(5);
+		retFlight.setPrice(150.0);
+
+		when(passengerRepository.findBookedSeats(eq("FL1"), any())).thenReturn(Flux.empty());
+		when(flightWebClient.getFlight("FL1", bearer)).thenReturn(Mono.just(depFlight));
+		when(flightWebClient.getFlight("FL2", bearer)).thenReturn(Mono.just(retFlight));
+		when(flightWebClient.reserveSeats("FL1", 1, "S1", bearer)).thenReturn(Mono.just(depFlight));
+		when(flightWebClient.reserveSeats("FL2", 1, "S1", bearer)).thenReturn(Mono.just(retFlight));
+		when(ticketRepository.save(any(Ticket.class))).thenAnswer(i -> Mono.just(i.getArgument(0)));
+		when(passengerRepository.saveAll(anyList())).thenReturn(Flux.just(passenger));
+
+		StepVerifier.create(bookingService.bookTicket("pooja@gmail.com", "FL1", "FL2", List.of(passenger), FLIGHTTYPE.ROUND_TRIP, bearer))
+				.expectNextMatches(pnr -> pnr != null && !pnr.isEmpty()).verifyComplete();
+
+		verify(ticketRepository)
+				.save(argThat(ticket -> ticket.getTotalPrice() == 250.0 && "S1".equals(ticket.getSagaId())
+						&& "pooja@gmail.com".equals(ticket.getUserEmail())
+						&& ticket.getDepartureFlight().getFlightId().equals("FL1")
+						&& ticket.getReturnFlight().getFlightId().equals("FL2")));
+		verify(sagaRepository, atLeastOnce()).save(argThat(saga -> saga.getState() == BookingSaga.State.CONFIRMED));
+		verify(bookingOutbox).record(eq("BOOKING_CONFIRMED"), any(Ticket.class));
+		assertEquals(1, stageCount("book", "reserve", "return", "success"));
+		assertEquals(1, stageCount("book", "passenger_save", BookingMetrics.NO_LEG, "success"));
+		assertEquals(1, stageCount("book", "total", BookingMetrics.NO_LEG, "success"));
+	}
+
+	private long stageCount(String operation, String stage, String leg, String outcome) {
+		return meterRegistry.get(BookingMetrics.TIMER).tags("operation", operation, "stage", stage, "leg", leg,
+				"outcome", outcome).timer().count();
+	}
+
+	@Test
+	void testBookTicketAutoAssignsAdjacentSeats() {
+		Passenger second = new Passenger();
+		second.setName("Ravi");
+		passenger.setSeatNumber(null);
+		depFlight.setTotalSeats(12);
+		Passenger takenA1 = new Passenger();
+		takenA1.setSeatNumber("A1");
+		Passenger takenC1 = new Passenger();
+		takenC1.setSeatNumber("C1");
+
+		when(passengerRepository.findSeatsByFlightId("FL1")).thenReturn(Flux.just(takenA1, takenC1));
+		when(flightWebClient.getFlight("FL1", token)).thenReturn(Mono.just(depFlight));
+		when(flightWebClient.reserveSeats("FL1", 2, "S1", token)).thenReturn(Mono.just(depFlight));
+		when(ticketRepository.save(any(Ticket.class))).thenAnswer(i -> Mono.just(i.getArgument(0)));
+		when(passengerRepository.saveAll(anyList())).thenReturn(Flux.just(passenger, second));
+
+		StepVerifier.create(bookingService.bookTicket("pooja@gmail.com", "FL1", null, List.of(passenger, second),
+				FLIGHTTYPE.ONE_WAY, true, false, token, null)).expectNextCount(1).verifyComplete();
+
+		assertEquals("D1", passenger.getSeatNumber());
+		assertEquals("E1", second.getSeatNumber());
+		verify(passengerRepository, never()).findBookedSeats(anyString(), any());
+		verify(ticketRepository).save(argThat(ticket -> "D1,E1".equals(ticket.getSeatsBooked())));
+	}
+
+	@Test
+	void testBookTicketAutoAssignHandsSeatsBackOnFailure() {
+		passenger.setSeatNumber(null);
+		depFlight.setTotalSeats(1);
+
+		when(passengerRepository.findSeatsByFlightId("FL1")).thenReturn(Flux.empty());
+		when(flightWebClient.getFlight("FL1", token)).thenReturn(Mono.just(depFlight));
+		when(flightWebClient.reserveSeats("FL1", 1, "S1", token))
+				.thenReturn(Mono.error(new RuntimeException("boom")))
+				.thenReturn(Mono.just(depFlight));
+		when(flightWebClient.releaseSeats("FL1", 1, "S1", token)).thenReturn(Mono.just(depFlight));
+		when(ticketRepository.save(any(Ticket.class))).thenAnswer(i -> Mono.just(i.getArgument(0)));
+		when(passengerRepository.saveAll(anyList())).thenReturn(Flux.just(passenger));
+
+		StepVerifier.create(bookingService.bookTicket("pooja@gmail.com", "FL1", null, List.of(passenger),
+				FLIGHTTYPE.ONE_WAY, true, false, token, null)).expectError(RuntimeException.class).verify();
+		StepVerifier.create(bookingService.bookTicket("pooja@gmail.com", "FL1", null, List.of(passenger),
+				FLIGHTTYPE.ONE_WAY, true, false, token, null)).expectNextCount(1).verifyComplete();
+
+		assertEquals("A1", passenger.getSeatNumber());
+	}
+
+	@Test
+	void testBookTicketAutoAssignRebuildsSeatMapAndRetriesAfterSeatClash() {
+		passenger.setSeatNumber(null);
+		depFlight.setTotalSeats(12);
+		Passenger takenA1 = new Passenger();
+		takenA1.setSeatNumber("A1");
+
+		when(passengerRepository.findSeatsByFlightId("FL1")).thenReturn(Flux.empty())
+				.thenReturn(Flux.just(takenA1));
+		when(flightWebClient.getFlight("FL1", token)).thenReturn(Mono.just(depFlight));
+		when(flightWebClient.reserveSeats("FL1", 1, "S1", token)).thenReturn(Mono.just(depFlight));
+		when(flightWebClient.releaseSeats("FL1", 1, "S1", token)).thenReturn(Mono.just(depFlight));
+		when(ticketRepository.save(any(Ticket.class))).thenAnswer(i -> Mono.just(i.getArgument(0)));
+		when(passengerRepository.saveAll(anyList()))
+				.thenReturn(Flux.error(new DuplicateKeyException("seat taken")))
+				.thenReturn(Flux.just(passenger));
+
+		StepVerifier.create(bookingService.bookTicket("pooja@gmail.com", "FL1", null, List.of(passenger),
+				FLIGHTTYPE.ONE_WAY, true, false, token, null)).expectNextCount(1).verifyComplete();
+
+		assertEquals("B1", passenger.getSeatNumber());
+		verify(passengerRepository, times(2)).findSeatsByFlightId("FL1");
+		verify(flightWebClient).releaseSeats("FL1", 1, "S1", token);
+		verify(ticketRepository).save(argThat(ticket -> "B1".equals(ticket.getSeatsBooked())));
+	}
+
+	@Test
+	void testBookTicketAutoAssignGivesUpAfterRepeatedSeatClashes() {
+		passenger.setSeatNumber(null);
+		depFlight.setTotalSeats(12);
+
+		when(passengerRepository.findSeatsByFlightId("FL1")).thenReturn(Flux.empty());
+		when(flightWebClient.getFlight("FL1", token)).thenReturn(Mono.just(depFlight));
+		when(flightWebClient.reserveSeats("FL1", 1, "S1", token)).thenReturn(Mono.just(depFlight));
+		when(flightWebClient.releaseSeats("FL1", 1, "S1", token)).thenReturn(Mono.just(depFlight));
+		when(ticketRepository.save(any(Ticket.class))).thenAnswer(i -> Mono.just(i.getArgument(0)));
+		when(passengerRepository.saveAll(anyList())).thenReturn(Flux.error(new DuplicateKeyException("seat taken")));
+
+		StepVerifier.create(bookingService.bookTicket("pooja@gmail.com", "FL1", null, List.of(passenger),
+				FLIGHTTYPE.ONE_WAY, true, false, token, null))
+				.expectErrorMatches(e -> e instanceof ResponseStatusException rse
+						&& rse.getStatusCode() == HttpStatus.CONFLICT)
+				.verify();
+
+		verify(passengerRepository, times(3)).saveAll(anyList());
+		verify(passengerRepository, times(3)).findSeatsByFlightId("FL1");
+		verify(flightWebClient, times(3)).releaseSeats("FL1", 1, "S1", token);
+	}
+
+	@Test
+	void testBookTicketRequiresSeatNumbersUnlessAutoAssigned() {
+		passenger.setSeatNumber(" ");
+
+		ResponseStatusException e = assertThrows(ResponseStatusException.class,
+				() -> bookingService.bookTicket("pooja@gmail.com", "FL1", null, List.of(passenger),
+						FLIGHTTYPE.ONE_WAY, token));
+		assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+	}
+
+	@Test
+	void testBookTicketRetriesWithNewPnrOnCollision() {
+		String bearer = token;
+		when(passengerRepository.findBookedSeats(eq("FL1"), any())).thenReturn(Flux.empty());
+		when(flightWebClient.getFlight("FL1", bearer)).thenReturn(Mono.just(depFlight));
+		when(flightWebClient.reserveSeats("FL1", 1, "S1", bearer)).thenReturn(Mono.just(depFlight));
+		when(ticketRepository.save(any(Ticket.class)))
+				.thenReturn(Mono.error(new DuplicateKeyException("E11000 duplicate key pnr")))
+				.thenAnswer(i -> Mono.just(i.getArgument(0)));
+		when(passengerRepository.saveAll(anyList())).thenReturn(Flux.just(passenger));
+
+		List<String> pnrs = new ArrayList<>();
+		StepVerifier.create(bookingService.bookTicket("pooja@gmail.com", "FL1", null, List.of(passenger), FLIGHTTYPE.ONE_WAY, bearer))
+				.consumeNextWith(pnrs::add).verifyComplete();
+
+		verify(ticketRepository, times(2)).save(any(Ticket.class));
+		verify(sagaRepository, atLeastOnce()).save(argThat(saga -> pnrs.get(0).equals(saga.getPnr())
+				&& saga.getState() == BookingSaga.State.CONFIRMED));
+		verify(flightWebClient, never()).releaseSeats(anyString(), anyInt(), any(), anyString());
+	}
+
+	@Test
+	void testBookTicketReturnReservationFailureReleasesDeparture() {
+		String bearer = token;
+		FlightDto retFlight = new FlightDto();
+		retFlight.setId("FL2");
+		retFlight.setAvailableSeats(5);
+
+		when(passengerRepository.findBookedSeats(eq("FL1"), any())).thenReturn(Flux.empty());
+		when(flightWebClient.getFlight("FL1", bearer)).thenReturn(Mono.just(depFlight));
+		when(flightWebClient.getFlight("FL2", bearer)).thenReturn(Mono.just(retFlight));
+		when(flightWebClient.reserveSeats("FL1", 1, "S1", bearer)).thenReturn(Mono.just(depFlight));
+		when(flightWebClient.reserveSeats("FL2", 1, "S1", bearer)).thenReturn(Mono.error(new RuntimeException("boom")));
+		when(flightWebClient.releaseSeats("FL1", 1, "S1", bearer)).thenReturn(Mono.just(depFlight));
+		when(flightWebClient.releaseSeats("FL2", 1, "S1", bearer)).thenReturn(Mono.just(retFlight));
+
+		StepVerifier.create(bookingService.bookTicket("pooja@gmail.com", "FL1", "FL2", List.of(passenger), FLIGHTTYPE.ROUND_TRIP, bearer))
+				.expectError(FlightBookingException.class).verify();
+
+		verify(flightWebClient).releaseSeats("FL1", 1, "S1", bearer);
+		verify(sagaRepository, atLeastOnce()).save(argThat(saga -> saga.getState() == BookingSaga.State.COMPENSATED));
+		verify(ticketRepository, never()).save(any(Ticket.class));
+	}
+
+	@Test
+	void testBookTicketDepartureNotFound() {
+		String bearer = token;
+
+		when(passengerRepository.findBookedSeats(eq("FL1"), any())).thenReturn(Flux.empty());
+		when(flightWebClient.getFlight("FL1", bearer)).thenReturn(Mono.empty());
+
+		StepVerifier.create(bookingService.bookTicket("pooja@gmail.com", "FL1", null, List.of(passenger), FLIGHTTYPE.ONE_WAY, bearer))
+				.expectErrorMatches(e -> e instanceof FlightBookingException
+						&& e.getMessage().equals("Departure flight not found"))
+				.verify();
+		verify(flightWebClient, never()).reserveSeats(anyString(), anyInt(), any(), anyString());
+	}
+
+	@Test
+	void testBookTicketReportsEveryTakenSeatFromOneQuery() {
+		String bearer = token;
+
+		Passenger second = new Passenger();
+		second.setName("Ravi");
+		second.setSeatNumber("b2");
+		Passenger third = new Passenger();
+		third.setName("Anu");
+		third.setSeatNumber("C3");
+
+		Passenger takenA1 = new Passenger();
+		takenA1.setSeatNumber("A1");
+		Passenger takenB2 = new Passenger();
+		takenB2.setSeatNumber("B2");
+
+		when(passengerRepository.findBookedSeats(eq("FL1"), argThat(seats -> seats.size() == 3)))
+				.thenReturn(Flux.just(takenB2, takenA1));
+
+		StepVerifier.create(bookingService.bookTicket("pooja@gmail.com", "FL1", null, List.of(passenger, second, third),
+				FLIGHTTYPE.ONE_WAY, bearer))
+				.expectErrorMatches(e -> e instanceof ResponseStatusException rse
+						&& rse.getStatusCode() == HttpStatus.CONFLICT
+						&& "Seats A1, B2 are already booked".equals(rse.getReason()))
+				.verify();
+
+		verify(flightWebClient, never()).reserveSeats(anyString(), anyInt(), any(), anyString());
+		assertEquals(1, stageCount("book", "seat_check", BookingMetrics.NO_LEG, "success"));
+		assertEquals(1, stageCount("book", "total", BookingMetrics.NO_LEG, "error"));
 	}
 }
@@ -1,8 +1,10 @@
 package com.flightapp.controller;
 
+import java.util.List;
 import java.util.Map;
 
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -10,10 +12,14 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.flightapp.dto.BulkIngestResult;
+import com.flightapp.dto.FlightPage;
 import com.flightapp.dto.FlightSearchRequest;
+import com.flightapp.dto.SeatRelease;
 import com.flightapp.model.Flight;
 import com.flightapp.service.FlightService;
 
@@ -27,6 +33,8 @@ import reactor.core.publisher.Mono;
 @RequestMapping("/api/flight")
 public class FlightController {
 
+	private static final String DEFAULT_PAGE_SIZE = "50";
+
 	private final FlightService flightService;
 
 	@PostMapping("/airline/inventory/add")
@@ -37,11 +45,32 @@ public class FlightController {
 				.map(savedFlight -> Map.of("message", "Flight added successfully", "flightId", savedFlight.getId()));
 	}
 
+	@PostMapping(value = "/airline/inventory/bulk", consumes = { MediaType.APPLICATION_JSON_VALUE,
+			MediaType.APPLICATION_NDJSON_VALUE })
+	@PreAuthorize("hasRole('ADMIN')")
+	public Mono<BulkIngestResult> addInventoryBulk(@RequestBody Flux<Flight> flights) {
+		return flightService.addFlights(flights);
+	}
+
 	@PostMapping("/search")
 	public Flux<Flight> searchFlights(@RequestBody FlightSearchRequest request) {
 		return flightService.searchFlights(request.getFromPlace(), request.getToPlace(), request.getStartTime(),
 				request.getEndTime());
 	}
+
+	@PostMapping(value = "/search", produces = MediaType.APPLICATION_NDJSON_VALUE)
+	public Flux<Flight> streamFlights(@RequestBody FlightSearchRequest request) {
+		return flightService.searchFlights(request.getFromPlace(), request.getToPlace(), request.getStartTime(),
+				request.getEndTime());
+	}
+
+	@PostMapping("/search/page")
+	public Mono<FlightPage> searchFlightsPage(@RequestBody FlightSearchRequest request,
+			@RequestParam(required = false) String cursor, @RequestParam(defaultValue = DEFAULT_PAGE_SIZE) int size) {
+		return flightService.searchFlightsPage(request.getFromPlace(), request.getToPlace(), request.getStartTime(),
+				request.getEndTime(), cursor, size);
+	}
+
 //	@PostMapping("/search")
 //	public Mono<List<Flight>> searchFlights(
 //	        @RequestBody FlightSearchRequest request) {
@@ -59,19 +88,44 @@ public class FlightController {
 		return flightService.searchFlightById(id);
 	}
 
+	@PostMapping("/batch")
+	public Flux<Flight> getFlightsByIds(@RequestBody List<String> ids) {
+		return flightService.getFlightsByIds(ids);
+	}
+
 	@GetMapping("/allflights")
 	@PreAuthorize("hasRole('ADMIN')")
 	public Flux<Flight> getAllFlights() {
 		return flightService.getAllFlights();
 	}
 
+	@GetMapping(value = "/allflights", produces = MediaType.APPLICATION_NDJSON_VALUE)
+	@PreAuthorize("hasRole('ADMIN')")
+	public Flux<Flight> streamAllFlights() {
+		return flightService.getAllFlights();
+	}
+
+	@GetMapping("/allflights/page")
+	@PreAuthorize("hasRole('ADMIN')")
+	public Mono<FlightPage> getAllFlightsPage(@RequestParam(required = false) String cursor,
+			@RequestParam(defaultValue = DEFAULT_PAGE_SIZE) int size) {
+		return flightService.getAllFlightsPage(cursor, size);
+	}
+
 	@PutMapping("/internal/{id}/reserve/{seatCount}")
-	public Mono<Flight> reserveSeats(@PathVariable String id, @PathVariable int seatCount) {
-		return flightService.reserveSeats(id, seatCount);
+	public Mono<Flight> reserveSeats(@PathVariable String id, @PathVariable int seatCount,
+			@RequestParam(required = false) String reservationId) {
+		return flightService.reserveSeats(id, seatCount, reservationId);
 	}
 
 	@PutMapping("/internal/{id}/release/{seatCount}")
-	public Mono<Flight> releaseSeats(@PathVariable String id, @PathVariable int seatCount) {
-		return flightService.releaseSeats(id, seatCount);
+	public Mono<Flight> releaseSeats(@PathVariable String id, @PathVariable int seatCount,
+			@RequestParam(required = false) String reservationId) {
+		return flightService.releaseSeats(id, seatCount, reservationId);
+	}
+
+	@PutMapping("/internal/{id}/release")
+	public Mono<Flight> releaseSeats(@PathVariable String id, @RequestBody List<SeatRelease> releases) {
+		return flightService.releaseSeats(id, releases);
 	}
 }
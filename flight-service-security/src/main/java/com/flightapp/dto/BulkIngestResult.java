@@ -0,0 +1,27 @@
+package com.flightapp.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkIngestResult {
+
+	private long accepted;
+	private long duplicates;
+	private long rejected;
+	private List<BulkRowResult> rows;
+
+	public static BulkIngestResult of(List<BulkRowResult> rows) {
+		return new BulkIngestResult(count(rows, BulkRowResult.Status.ACCEPTED),
+				count(rows, BulkRowResult.Status.DUPLICATE), count(rows, BulkRowResult.Status.REJECTED), rows);
+	}
+
+	private static long count(List<BulkRowResult> rows, BulkRowResult.Status status) {
+		return rows.stream().filter(r -> r.getStatus() == status).count();
+	}
+}
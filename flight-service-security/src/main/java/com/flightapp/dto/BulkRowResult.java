@@ -0,0 +1,33 @@
+package com.flightapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkRowResult {
+
+	public enum Status {
+		ACCEPTED, DUPLICATE, REJECTED
+	}
+
+	// zero-based position of the flight in the request body
+	private int row;
+	private Status status;
+	private String flightId;
+	private String message;
+
+	public static BulkRowResult accepted(int row, String flightId) {
+		return new BulkRowResult(row, Status.ACCEPTED, flightId, null);
+	}
+
+	public static BulkRowResult duplicate(int row) {
+		return new BulkRowResult(row, Status.DUPLICATE, null, "Flight already exists");
+	}
+
+	public static BulkRowResult rejected(int row, String message) {
+		return new BulkRowResult(row, Status.REJECTED, null, message);
+	}
+}
@@ -0,0 +1,42 @@
+package com.flightapp.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.flightapp.model.Flight;
+
+/**
+ * Keyset position in (departureTime, id) order, exchanged with clients as an
+ * opaque URL-safe token.
+ */
+public record FlightCursor(LocalDateTime departureTime, String id) {
+
+	private static final String SEPARATOR = "|";
+
+	public static FlightCursor after(Flight flight) {
+		return new FlightCursor(flight.getDepartureTime(), flight.getId());
+	}
+
+	public String encode() {
+		String raw = departureTime + SEPARATOR + id;
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+
+	public static FlightCursor decode(String token) {
+		if (token == null || token.isBlank()) {
+			return null;
+		}
+		try {
+			String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+			int split = raw.indexOf(SEPARATOR);
+			return new FlightCursor(LocalDateTime.parse(raw.substring(0, split)), raw.substring(split + 1));
+		} catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+		}
+	}
+}
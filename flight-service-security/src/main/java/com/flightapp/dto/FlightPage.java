@@ -0,0 +1,18 @@
+package com.flightapp.dto;
+
+import java.util.List;
+
+import com.flightapp.model.Flight;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FlightPage {
+	private List<Flight> flights;
+	// null when this is the last page
+	private String nextCursor;
+}
@@ -0,0 +1,8 @@
+package com.flightapp.dto;
+
+/**
+ * One reservation's share of a batch release. A null reservationId releases
+ * the seats unconditionally, like the plain release endpoint.
+ */
+public record SeatRelease(String reservationId, int seatCount) {
+}
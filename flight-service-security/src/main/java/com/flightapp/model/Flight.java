@@ -1,11 +1,16 @@
 package com.flightapp.model;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
@@ -14,6 +19,13 @@ import lombok.Data;
 
 @Data
 @Document(collection = "flights")
+@CompoundIndexes({
+		@CompoundIndex(name = "route_departure", def = "{'fromPlace': 1, 'toPlace': 1, 'departureTime': 1}"),
+		@CompoundIndex(name = "route_airline", def = "{'fromPlace': 1, 'toPlace': 1, 'airline': 1}"),
+		@CompoundIndex(name = "departure_id", def = "{'departureTime': 1, '_id': 1}"),
+		@CompoundIndex(name = "unique_flight_schedule",
+				def = "{'airline': 1, 'fromPlace': 1, 'toPlace': 1, 'departureTime': 1}", unique = true)
+})
 public class Flight {
 
 	@Id
@@ -44,4 +56,17 @@ public class Flight {
 
 	@Min(value = 0, message = "Available seats cannot be negative")
 	private int availableSeats;
+
+	// Booking reservations currently applied to availableSeats, so a retried
+	// reserve or release with the same id is not applied twice.
+	@JsonIgnore
+	private Set<String> reservationIds;
+
+	// Most recent released reservations, so a reserve arriving after its release is refused.
+	@JsonIgnore
+	private List<String> releasedReservationIds;
+
+	// Bumped by every seat update so readers can tell which copy of a flight is newer.
+	@JsonIgnore
+	private long revision;
 }
@@ -0,0 +1,39 @@
+package com.flightapp.repository;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.index.ReactiveIndexOperations;
+import org.springframework.stereotype.Component;
+
+import com.flightapp.model.Flight;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+
+/**
+ * Ensures the indexes declared on {@link Flight} exist once the application is
+ * ready. Runs without blocking startup; failures are logged so the service can
+ * still come up while Mongo is unavailable.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FlightIndexInitializer {
+
+	private final ReactiveMongoTemplate mongoTemplate;
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void ensureIndexes() {
+		ReactiveIndexOperations indexOps = mongoTemplate.indexOps(Flight.class);
+		IndexResolver resolver = IndexResolver.create(mongoTemplate.getConverter().getMappingContext());
+
+		Flux.fromIterable(resolver.resolveIndexFor(Flight.class))
+				.concatMap(indexOps::createIndex)
+				.collectList()
+				.subscribe(names -> log.info("Verified flights indexes {}", names),
+						ex -> log.error("Could not verify flights indexes", ex));
+	}
+}
@@ -8,18 +8,14 @@ import org.springframework.stereotype.Repository;
 import com.flightapp.model.Flight;
 
 import reactor.core.publisher.Flux;
-import reactor.core.publisher.Mono;
 
 @Repository
-public interface FlightRepository extends ReactiveCrudRepository<Flight, String> {
+public interface FlightRepository extends ReactiveCrudRepository<Flight, String>, FlightRepositoryCustom {
 
 	Flux<Flight> findByFromPlaceAndToPlaceAndDepartureTimeBetween(String fromPlace, String toPlace, LocalDateTime start,
 			LocalDateTime end);
 
 	Flux<Flight> findByFromPlaceAndToPlaceAndAirline(String fromPlace, String toPlace, String airline);
 
-	Mono<Flight> findByAirlineAndFromPlaceAndToPlaceAndDepartureTime(String airline, String fromPlace, String toPlace,
-			LocalDateTime departureTime);
-	
 //	Flux<Flight> getFightByFromPlaceAndToPlace(String fromPlace, String toPlace);
 }
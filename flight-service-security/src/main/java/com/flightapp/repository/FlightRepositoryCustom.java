@@ -0,0 +1,62 @@
+package com.flightapp.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import com.flightapp.dto.FlightCursor;
+import com.flightapp.model.Flight;
+import com.mongodb.bulk.BulkWriteError;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface FlightRepositoryCustom {
+
+	/**
+	 * Atomically decrements availableSeats when at least seatCount seats remain.
+	 * Emits the updated flight, or completes empty when the flight is missing or
+	 * does not have enough seats.
+	 */
+	Mono<Flight> reserveSeatsIfAvailable(String flightId, int seatCount);
+
+	/**
+	 * Atomically increments availableSeats as long as the result does not exceed
+	 * totalSeats. Emits the updated flight, or completes empty otherwise.
+	 */
+	Mono<Flight> releaseSeatsIfBounded(String flightId, int seatCount);
+
+	/**
+	 * Like {@link #reserveSeatsIfAvailable} but applied at most once per
+	 * reservationId. Emits the flight unchanged when the reservation is already
+	 * applied, and completes empty when it was already released.
+	 */
+	Mono<Flight> reserveSeatsOnce(String flightId, int seatCount, String reservationId);
+
+	/**
+	 * Gives back the seats of a reservation made by {@link #reserveSeatsOnce}.
+	 * Emits the flight unchanged when the reservation was never applied or is
+	 * already released, and completes empty only when the flight is missing.
+	 * The reservationId is remembered as released either way, so a reserve that
+	 * arrives after its release is refused.
+	 */
+	Mono<Flight> releaseReservation(String flightId, int seatCount, String reservationId);
+
+	/**
+	 * Drops the reservation bookkeeping of flights that departed before the given
+	 * time. Emits the number of flights trimmed.
+	 */
+	Mono<Long> pruneReservations(LocalDateTime departedBefore);
+
+	/**
+	 * Up to limit flights in (departureTime, id) order, starting after the given
+	 * cursor. A null route or time window means no filter on that part.
+	 */
+	Flux<Flight> findPage(String fromPlace, String toPlace, LocalDateTime start, LocalDateTime end,
+			FlightCursor after, int limit);
+
+	/**
+	 * Inserts the flights in one unordered bulk write. Emits the per-document write
+	 * errors (indexed by position in the list), empty when every insert succeeded.
+	 */
+	Mono<List<BulkWriteError>> insertUnordered(List<Flight> flights);
+}
@@ -0,0 +1,145 @@
+package com.flightapp.repository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.ArithmeticOperators;
+import org.springframework.data.mongodb.core.aggregation.ComparisonOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.flightapp.dto.FlightCursor;
+import com.flightapp.model.Flight;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@RequiredArgsConstructor
+public class FlightRepositoryCustomImpl implements FlightRepositoryCustom {
+
+	private static final String AVAILABLE_SEATS = "availableSeats";
+	private static final String DEPARTURE_TIME = "departureTime";
+	private static final String RESERVATION_IDS = "reservationIds";
+	private static final String RELEASED_RESERVATION_IDS = "releasedReservationIds";
+	private static final String REVISION = "revision";
+
+	// Only needs to outlive reserve requests still in flight when the release lands.
+	private static final int RELEASED_RESERVATIONS_KEPT = 1000;
+
+	private final ReactiveMongoTemplate mongoTemplate;
+
+	@Override
+	public Mono<Flight> reserveSeatsIfAvailable(String flightId, int seatCount) {
+		Query query = Query.query(Criteria.where("_id").is(flightId).and(AVAILABLE_SEATS).gte(seatCount));
+		Update update = new Update().inc(AVAILABLE_SEATS, -seatCount).inc(REVISION, 1);
+		return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), Flight.class);
+	}
+
+	@Override
+	public Mono<Flight> releaseSeatsIfBounded(String flightId, int seatCount) {
+		Query query = Query.query(Criteria.where("_id").is(flightId)
+				.andOperator(Criteria.expr(ComparisonOperators
+						.valueOf(ArithmeticOperators.valueOf(AVAILABLE_SEATS).add(seatCount))
+						.lessThanEqualTo("totalSeats"))));
+		Update update = new Update().inc(AVAILABLE_SEATS, seatCount).inc(REVISION, 1);
+		return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), Flight.class);
+	}
+
+	@Override
+	public Mono<Flight> reserveSeatsOnce(String flightId, int seatCount, String reservationId) {
+		Query query = Query.query(Criteria.where("_id").is(flightId).and(AVAILABLE_SEATS).gte(seatCount)
+				.and(RESERVATION_IDS).ne(reservationId).and(RELEASED_RESERVATION_IDS).ne(reservationId));
+		Update update = new Update().inc(AVAILABLE_SEATS, -seatCount).inc(REVISION, 1)
+				.addToSet(RESERVATION_IDS, reservationId);
+		return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), Flight.class)
+				.switchIfEmpty(Mono.defer(() -> mongoTemplate.findOne(
+						Query.query(Criteria.where("_id").is(flightId).and(RESERVATION_IDS).is(reservationId)),
+						Flight.class)));
+	}
+
+	@Override
+	public Mono<Flight> releaseReservation(String flightId, int seatCount, String reservationId) {
+		// A reserve that lands between a failed release and the tombstone is released on the second pass.
+		Mono<Flight> release = Mono.defer(() -> releaseApplied(flightId, seatCount, reservationId));
+		return release
+				.switchIfEmpty(Mono.defer(() -> tombstone(flightId, reservationId)))
+				.switchIfEmpty(release)
+				.switchIfEmpty(Mono.defer(() -> mongoTemplate.findById(flightId, Flight.class)));
+	}
+
+	private Mono<Flight> releaseApplied(String flightId, int seatCount, String reservationId) {
+		Query query = Query.query(Criteria.where("_id").is(flightId).and(RESERVATION_IDS).is(reservationId));
+		Update update = new Update().inc(AVAILABLE_SEATS, seatCount).inc(REVISION, 1)
+				.pull(RESERVATION_IDS, reservationId);
+		pushReleased(update, reservationId);
+		return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), Flight.class);
+	}
+
+	// Records a release that arrived before its reserve, so the late reserve is refused.
+	private Mono<Flight> tombstone(String flightId, String reservationId) {
+		Query query = Query.query(Criteria.where("_id").is(flightId).and(RESERVATION_IDS).ne(reservationId)
+				.and(RELEASED_RESERVATION_IDS).ne(reservationId));
+		Update update = new Update();
+		pushReleased(update, reservationId);
+		return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), Flight.class);
+	}
+
+	private static void pushReleased(Update update, String reservationId) {
+		update.push(RELEASED_RESERVATION_IDS).slice(-RELEASED_RESERVATIONS_KEPT).each(reservationId);
+	}
+
+	@Override
+	public Mono<Long> pruneReservations(LocalDateTime departedBefore) {
+		Query query = Query.query(Criteria.where(DEPARTURE_TIME).lt(departedBefore)
+				.orOperator(Criteria.where(RESERVATION_IDS).exists(true),
+						Criteria.where(RELEASED_RESERVATION_IDS).exists(true)));
+		Update update = new Update().unset(RESERVATION_IDS).unset(RELEASED_RESERVATION_IDS);
+		return mongoTemplate.updateMulti(query, update, Flight.class).map(result -> result.getModifiedCount());
+	}
+
+	@Override
+	public Flux<Flight> findPage(String fromPlace, String toPlace, LocalDateTime start, LocalDateTime end,
+			FlightCursor after, int limit) {
+		List<Criteria> filters = new ArrayList<>();
+		if (fromPlace != null && toPlace != null) {
+			filters.add(Criteria.where("fromPlace").is(fromPlace).and("toPlace").is(toPlace));
+		}
+		if (start != null && end != null) {
+			filters.add(Criteria.where(DEPARTURE_TIME).gt(start).lt(end));
+		}
+		if (after != null) {
+			filters.add(new Criteria().orOperator(Criteria.where(DEPARTURE_TIME).gt(after.departureTime()),
+					Criteria.where(DEPARTURE_TIME).is(after.departureTime()).and("id").gt(after.id())));
+		}
+		Criteria criteria = filters.isEmpty() ? new Criteria() : new Criteria().andOperator(filters);
+		Query query = Query.query(criteria).with(Sort.by(Sort.Direction.ASC, DEPARTURE_TIME, "id")).limit(limit);
+		return mongoTemplate.find(query, Flight.class);
+	}
+
+	@Override
+	public Mono<List<BulkWriteError>> insertUnordered(List<Flight> flights) {
+		return mongoTemplate.bulkOps(BulkMode.UNORDERED, Flight.class).insert(flights).execute()
+				.map(result -> List.<BulkWriteError>of())
+				.onErrorResume(ex -> bulkWriteException(ex) != null,
+						ex -> Mono.just(bulkWriteException(ex).getWriteErrors()));
+	}
+
+	// The template translates driver exceptions, so the bulk failure may sit in the cause chain.
+	private static MongoBulkWriteException bulkWriteException(Throwable ex) {
+		for (Throwable t = ex; t != null; t = t.getCause()) {
+			if (t instanceof MongoBulkWriteException bulk) {
+				return bulk;
+			}
+		}
+		return null;
+	}
+}
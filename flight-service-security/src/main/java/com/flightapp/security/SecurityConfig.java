@@ -33,9 +33,12 @@ public class SecurityConfig {
 						.pathMatchers("/actuator/**").permitAll()
 						.pathMatchers(HttpMethod.POST, "/api/flight/search").permitAll()
 						.pathMatchers(HttpMethod.POST, "/api/flight/search/airline").permitAll()
+						.pathMatchers(HttpMethod.POST, "/api/flight/search/page").permitAll()
 						.pathMatchers(HttpMethod.GET, "/api/flight/allflights").authenticated()
+						.pathMatchers(HttpMethod.GET, "/api/flight/allflights/page").authenticated()
 						.pathMatchers(HttpMethod.GET, "/api/flight/*").permitAll()
 						.pathMatchers(HttpMethod.POST, "/api/flight/airline/inventory/add").authenticated()
+						.pathMatchers(HttpMethod.POST, "/api/flight/airline/inventory/bulk").authenticated()
 						.anyExchange().authenticated())
 //				.oauth2ResourceServer(oauth2 -> oauth2.jwt())
 				.oauth2ResourceServer(oauth2 -> oauth2
@@ -0,0 +1,53 @@
+package com.flightapp.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.flightapp.repository.FlightRepository;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+/**
+ * Trims the reservation ids kept on each flight once it has departed, when no
+ * reserve or release can arrive for it any more. Flights are only touched
+ * {@code flight.reservations.keep-after-departure-ms} after departure.
+ */
+@Slf4j
+@Component
+public class FlightReservationPruner {
+
+	private final FlightRepository flightRepository;
+	private final Duration keepAfterDeparture;
+
+	private final AtomicBoolean running = new AtomicBoolean();
+
+	public FlightReservationPruner(FlightRepository flightRepository,
+			@Value("${flight.reservations.keep-after-departure-ms:86400000}") long keepAfterDepartureMs) {
+		this.flightRepository = flightRepository;
+		this.keepAfterDeparture = Duration.ofMillis(keepAfterDepartureMs);
+	}
+
+	@Scheduled(initialDelayString = "${flight.reservations.prune-interval-ms:3600000}",
+			fixedDelayString = "${flight.reservations.prune-interval-ms:3600000}")
+	public void pruneDepartedFlights() {
+		if (!running.compareAndSet(false, true)) {
+			return;
+		}
+		prune().doFinally(signal -> running.set(false)).subscribe(
+				pruned -> {
+					if (pruned > 0) {
+						log.info("Trimmed reservations of {} departed flights", pruned);
+					}
+				}, ex -> log.warn("Reservation pruning pass failed", ex));
+	}
+
+	Mono<Long> prune() {
+		return flightRepository.pruneReservations(LocalDateTime.now().minus(keepAfterDeparture));
+	}
+}
@@ -0,0 +1,185 @@
+package com.flightapp.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.flightapp.dto.FlightCursor;
+import com.flightapp.model.Flight;
+import com.flightapp.repository.FlightRepository;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.util.retry.Retry;
+
+/**
+ * In-process copy of the flights collection keyed by route and ordered by
+ * departure time, used to answer searches without a Mongo round trip.
+ * Searches fall back to Mongo until the initial load has finished, or always
+ * when {@code flight.search.index.enabled} is false. A failed load is retried
+ * with backoff starting at {@code flight.search.index.load-retry-ms} and capped
+ * at a minute, so an outage at startup does not leave searches on Mongo.
+ */
+@Slf4j
+@Component
+public class FlightSearchIndex {
+
+	private static final Comparator<DepartureKey> DEPARTURE_ORDER = Comparator.comparing(DepartureKey::time)
+			.thenComparing(DepartureKey::id, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+	private final FlightRepository flightRepository;
+	private final boolean enabled;
+	private final Duration loadRetry;
+
+	private final Map<Route, NavigableMap<DepartureKey, FlightRecord>> routes = new ConcurrentHashMap<>();
+	private final Map<String, FlightRecord> byId = new ConcurrentHashMap<>();
+	private volatile boolean ready;
+
+	public FlightSearchIndex(FlightRepository flightRepository,
+			@Value("${flight.search.index.enabled:true}") boolean enabled,
+			@Value("${flight.search.index.load-retry-ms:1000}") long loadRetryMs) {
+		this.flightRepository = flightRepository;
+		this.enabled = enabled;
+		this.loadRetry = Duration.ofMillis(loadRetryMs);
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void load() {
+		if (!enabled) {
+			log.info("Flight search index disabled, searches go to Mongo");
+			return;
+		}
+		// Updates that arrive while loading are newer than the snapshot and are kept by put,
+		// which also makes reloading flights from a failed attempt harmless.
+		Flux.defer(flightRepository::findAll)
+				.doOnNext(this::put)
+				.count()
+				.retryWhen(Retry.backoff(Long.MAX_VALUE, loadRetry).maxBackoff(Duration.ofMinutes(1))
+						.doBeforeRetry(signal -> log.warn("Could not load flight search index, retrying",
+								signal.failure())))
+				.subscribe(count -> {
+					ready = true;
+					log.info("Flight search index loaded with {} flights", count);
+				}, ex -> log.error("Could not load flight search index, searches stay on Mongo", ex));
+	}
+
+	public boolean isReady() {
+		return ready;
+	}
+
+	// Writes complete in any order, so an older copy of the flight never replaces a newer one.
+	public void put(Flight flight) {
+		if (!enabled || flight == null || flight.getId() == null) {
+			return;
+		}
+		FlightRecord current = FlightRecord.of(flight);
+		byId.compute(current.id(), (id, previous) -> {
+			if (previous != null && previous.revision() > current.revision()) {
+				return previous;
+			}
+			if (previous != null && !previous.key().equals(current.key())) {
+				routeMap(previous).remove(previous.key());
+			}
+			routeMap(current).put(current.key(), current);
+			return current;
+		});
+	}
+
+	/**
+	 * Flights on the route departing strictly between start and end, matching the
+	 * exclusive bounds of the derived Mongo query.
+	 */
+	public List<Flight> search(String fromPlace, String toPlace, LocalDateTime start, LocalDateTime end) {
+		NavigableMap<DepartureKey, FlightRecord> route = routes.get(new Route(fromPlace, toPlace));
+		if (route == null || !start.isBefore(end)) {
+			return List.of();
+		}
+		return route.subMap(new DepartureKey(start.plusNanos(1), null), true, new DepartureKey(end, null), false)
+				.values().stream().map(FlightRecord::toFlight).toList();
+	}
+
+	/**
+	 * Same window as {@link #search} in keyset pages: up to limit flights strictly
+	 * after the cursor, or from the start of the window when the cursor is null.
+	 */
+	public List<Flight> searchPage(String fromPlace, String toPlace, LocalDateTime start, LocalDateTime end,
+			FlightCursor after, int limit) {
+		NavigableMap<DepartureKey, FlightRecord> route = routes.get(new Route(fromPlace, toPlace));
+		if (route == null || !start.isBefore(end)) {
+			return List.of();
+		}
+		DepartureKey lower = new DepartureKey(start.plusNanos(1), null);
+		boolean lowerInclusive = true;
+		if (after != null) {
+			DepartureKey cursor = new DepartureKey(after.departureTime(), after.id());
+			if (DEPARTURE_ORDER.compare(cursor, lower) >= 0) {
+				lower = cursor;
+				lowerInclusive = false;
+			}
+		}
+		DepartureKey upper = new DepartureKey(end, null);
+		if (DEPARTURE_ORDER.compare(lower, upper) >= 0) {
+			return List.of();
+		}
+		return route.subMap(lower, lowerInclusive, upper, false).values().stream().limit(limit)
+				.map(FlightRecord::toFlight).toList();
+	}
+
+	public List<Flight> searchByAirline(String fromPlace, String toPlace, String airline) {
+		NavigableMap<DepartureKey, FlightRecord> route = routes.get(new Route(fromPlace, toPlace));
+		if (route == null) {
+			return List.of();
+		}
+		return route.values().stream().filter(f -> f.airline().equals(airline)).map(FlightRecord::toFlight).toList();
+	}
+
+	private NavigableMap<DepartureKey, FlightRecord> routeMap(FlightRecord flight) {
+		return routes.computeIfAbsent(new Route(flight.fromPlace(), flight.toPlace()),
+				r -> new ConcurrentSkipListMap<>(DEPARTURE_ORDER));
+	}
+
+	private record Route(String fromPlace, String toPlace) {
+	}
+
+	private record DepartureKey(LocalDateTime time, String id) {
+	}
+
+	private record FlightRecord(String id, String airline, String fromPlace, String toPlace,
+			LocalDateTime departureTime, LocalDateTime arrivalTime, int price, int totalSeats, int availableSeats,
+			long revision) {
+
+		static FlightRecord of(Flight f) {
+			return new FlightRecord(f.getId(), f.getAirline(), f.getFromPlace(), f.getToPlace(), f.getDepartureTime(),
+					f.getArrivalTime(), f.getPrice(), f.getTotalSeats(), f.getAvailableSeats(), f.getRevision());
+		}
+
+		DepartureKey key() {
+			return new DepartureKey(departureTime, id);
+		}
+
+		Flight toFlight() {
+			Flight flight = new Flight();
+			flight.setId(id);
+			flight.setAirline(airline);
+			flight.setFromPlace(fromPlace);
+			flight.setToPlace(toPlace);
+			flight.setDepartureTime(departureTime);
+			flight.setArrivalTime(arrivalTime);
+			flight.setPrice(price);
+			flight.setTotalSeats(totalSeats);
+			flight.setAvailableSeats(availableSeats);
+			flight.setRevision(revision);
+			return flight;
+		}
+	}
+}
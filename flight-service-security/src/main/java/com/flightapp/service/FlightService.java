@@ -3,7 +3,10 @@ package com.flightapp.service;
 import java.time.LocalDateTime;
 import java.util.List;
 
+import com.flightapp.dto.BulkIngestResult;
+import com.flightapp.dto.FlightPage;
 import com.flightapp.dto.FlightSearchRequest;
+import com.flightapp.dto.SeatRelease;
 import com.flightapp.model.Flight;
 
 import reactor.core.publisher.Flux;
@@ -13,16 +16,33 @@ public interface FlightService {
 
 	Mono<Flight> addFlight(Flight flight);
 
+	Mono<BulkIngestResult> addFlights(Flux<Flight> flights);
+
 	Flux<Flight> getAllFlights();
 
 	Mono<Flight> searchFlightById(String flightId);
 
+	Flux<Flight> getFlightsByIds(List<String> flightIds);
+
 	Flux<Flight> searchFlights(String fromPlace, String toPlace, LocalDateTime start, LocalDateTime end);
 
 	Flux<Flight> searchFlightsByAirline(String fromPlace, String toPlace, String airline);
+
+	Mono<FlightPage> searchFlightsPage(String fromPlace, String toPlace, LocalDateTime start, LocalDateTime end,
+			String cursor, int size);
+
+	Mono<FlightPage> getAllFlightsPage(String cursor, int size);
 	
 	Mono<Flight> reserveSeats(String flightId, int seatCount);
 
     Mono<Flight> releaseSeats(String flightId, int seatCount);
+
+	// A null reservationId falls back to the plain reserve/release above.
+	Mono<Flight> reserveSeats(String flightId, int seatCount, String reservationId);
+
+	Mono<Flight> releaseSeats(String flightId, int seatCount, String reservationId);
+
+	// Applies each release in order and emits the flight after the last one.
+	Mono<Flight> releaseSeats(String flightId, List<SeatRelease> releases);
     
 }
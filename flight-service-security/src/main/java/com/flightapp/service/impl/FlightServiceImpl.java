@@ -1,13 +1,30 @@
 package com.flightapp.service.impl;
 
 import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
 
+import com.flightapp.dto.BulkIngestResult;
+import com.flightapp.dto.BulkRowResult;
+import com.flightapp.dto.FlightCursor;
+import com.flightapp.dto.FlightPage;
+import com.flightapp.dto.SeatRelease;
 import com.flightapp.exception.InvalidFlightException;
 import com.flightapp.model.Flight;
 import com.flightapp.repository.FlightRepository;
+import com.flightapp.service.FlightSearchIndex;
 import com.flightapp.service.FlightService;
+import com.mongodb.bulk.BulkWriteError;
 
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -18,78 +35,131 @@ public class FlightServiceImpl implements FlightService {
 	private static final String FLIGHT_NOT_FOUND = "Flight not found";
 	private static final String FLIGHT_ALREADY_EXISTS = "Flight already exists";
 	private static final String NOT_ENOUGH_SEATS = "Not enough seats";
+	private static final String SEATS_EXCEED_TOTAL = "Released seats would exceed total seats";
+	private static final String INVALID_SEAT_COUNT = "Seat count must be greater than zero";
+	private static final String INVALID_PAGE_SIZE = "Page size must be greater than zero";
+	private static final int MAX_PAGE_SIZE = 200;
+	private static final int MAX_BATCH_IDS = 500;
+	private static final int DUPLICATE_KEY_CODE = 11000;
 
 	private final FlightRepository flightRepository;
+	private final FlightSearchIndex searchIndex;
+
+	@Value("${flight.bulk.batch-size:500}")
+	private int bulkBatchSize;
 
-	public FlightServiceImpl(FlightRepository flightRepository) {
+	public FlightServiceImpl(FlightRepository flightRepository, FlightSearchIndex searchIndex) {
 		this.flightRepository = flightRepository;
+		this.searchIndex = searchIndex;
 	}
 
 	@Override
 	public Mono<Flight> addFlight(Flight flight) {
+		String error = validationError(flight);
+		if (error != null) {
+			return Mono.error(new InvalidFlightException(error));
+		}
+		normalize(flight);
+
+		// Duplicates are rejected by the unique_flight_schedule index instead of a
+		// read-before-insert.
+		return flightRepository.save(flight)
+				.onErrorMap(DuplicateKeyException.class,
+						e -> new ResponseStatusException(HttpStatus.CONFLICT, FLIGHT_ALREADY_EXISTS))
+				.doOnNext(searchIndex::put);
+	}
+
+	@Override
+	public Mono<BulkIngestResult> addFlights(Flux<Flight> flights) {
+		return flights.index()
+				.map(row -> {
+					int position = row.getT1().intValue();
+					Flight flight = row.getT2();
+					String error = validationError(flight);
+					if (error != null) {
+						return new PendingRow(position, flight, BulkRowResult.rejected(position, error));
+					}
+					normalize(flight);
+					if (flight.getId() == null) {
+						flight.setId(new ObjectId().toHexString());
+					}
+					return new PendingRow(position, flight, null);
+				})
+				.buffer(bulkBatchSize)
+				.concatMap(this::insertBatch)
+				.collectList()
+				.map(BulkIngestResult::of);
+	}
+
+	private Flux<BulkRowResult> insertBatch(List<PendingRow> batch) {
+		List<PendingRow> valid = batch.stream().filter(r -> r.result() == null).toList();
+		if (valid.isEmpty()) {
+			return Flux.fromIterable(batch).map(PendingRow::result);
+		}
+		return flightRepository.insertUnordered(valid.stream().map(PendingRow::flight).toList())
+				.flatMapIterable(errors -> {
+					Map<Integer, BulkWriteError> errorsByIndex = errors.stream()
+							.collect(Collectors.toMap(BulkWriteError::getIndex, e -> e));
+					Map<Integer, BulkRowResult> inserted = new HashMap<>();
+					for (int i = 0; i < valid.size(); i++) {
+						PendingRow row = valid.get(i);
+						BulkWriteError error = errorsByIndex.get(i);
+						if (error == null) {
+							searchIndex.put(row.flight());
+							inserted.put(row.position(), BulkRowResult.accepted(row.position(), row.flight().getId()));
+						} else if (error.getCode() == DUPLICATE_KEY_CODE) {
+							inserted.put(row.position(), BulkRowResult.duplicate(row.position()));
+						} else {
+							inserted.put(row.position(), BulkRowResult.rejected(row.position(), error.getMessage()));
+						}
+					}
+					return batch.stream().map(r -> r.result() != null ? r.result() : inserted.get(r.position()))
+							.toList();
+				});
+	}
+
+	private static String validationError(Flight flight) {
+		if (flight == null) {
+			return "Flight cannot be null";
+		}
+		if (isBlank(flight.getAirline()) || isBlank(flight.getFromPlace()) || isBlank(flight.getToPlace())) {
+			return "Airline, from place and to place are required";
+		}
+		if (flight.getDepartureTime() == null || flight.getArrivalTime() == null) {
+			return "Departure and arrival times are required";
+		}
+		if (flight.getFromPlace().equalsIgnoreCase(flight.getToPlace())) {
+			return "From and To locations cannot be the same";
+		}
+		if (flight.getDepartureTime().isBefore(LocalDateTime.now())) {
+			return "Departure must be in the future";
+		}
+		if (flight.getArrivalTime().isBefore(flight.getDepartureTime())) {
+			return "Arrival time must be after departure time";
+		}
+		if (flight.getTotalSeats() <= 0) {
+			return "Total seats must be greater than zero";
+		}
+		if (flight.getAvailableSeats() < 0) {
+			return "Available seats cannot be negative";
+		}
+		if (flight.getAvailableSeats() > flight.getTotalSeats()) {
+			return "Available seats cannot exceed total seats";
+		}
+		if (flight.getPrice() <= 0) {
+			return "Price must be greater than zero";
+		}
+		return null;
+	}
 
-	    return flightRepository
-	        .findByAirlineAndFromPlaceAndToPlaceAndDepartureTime(
-	            flight.getAirline(),
-	            flight.getFromPlace(),
-	            flight.getToPlace(),
-	            flight.getDepartureTime()
-	        )
-	        .hasElement()
-	        .flatMap(exists -> {
-
-	            if (exists) {
-	                return Mono.error(new InvalidFlightException("Flight already exists"));
-	            }
-
-	            if (flight.getFromPlace().equalsIgnoreCase(flight.getToPlace())) {
-	                return Mono.error(new InvalidFlightException(
-	                    "From and To locations cannot be the same"
-	                ));
-	            }
-
-	            if (flight.getDepartureTime().isBefore(LocalDateTime.now())) {
-	                return Mono.error(new InvalidFlightException(
-	                    "Departure must be in the future"
-	                ));
-	            }
-
-	            if (flight.getArrivalTime().isBefore(flight.getDepartureTime())) {
-	                return Mono.error(new InvalidFlightException(
-	                    "Arrival time must be after departure time"
-	                ));
-	            }
-
-	            if (flight.getTotalSeats() <= 0) {
-	                return Mono.error(new InvalidFlightException(
-	                    "Total seats must be greater than zero"
-	                ));
-	            }
-
-	            if (flight.getAvailableSeats() < 0) {
-	                return Mono.error(new InvalidFlightException(
-	                    "Available seats cannot be negative"
-	                ));
-	            }
-
-	            if (flight.getAvailableSeats() > flight.getTotalSeats()) {
-	                return Mono.error(new InvalidFlightException(
-	                    "Available seats cannot exceed total seats"
-	                ));
-	            }
-
-	            if (flight.getPrice() <= 0) {
-	                return Mono.error(new InvalidFlightException(
-	                    "Price must be greater than zero"
-	                ));
-	            }
-
-	            flight.setAirline(flight.getAirline().trim());
-	            flight.setFromPlace(flight.getFromPlace().trim());
-	            flight.setToPlace(flight.getToPlace().trim());
-
-	            return flightRepository.save(flight);
-	        });
+	private static boolean isBlank(String value) {
+		return value == null || value.isBlank();
+	}
+
+	private static void normalize(Flight flight) {
+		flight.setAirline(flight.getAirline().trim());
+		flight.setFromPlace(flight.getFromPlace().trim());
+		flight.setToPlace(flight.getToPlace().trim());
 	}
 
 	@Override
@@ -99,37 +169,166 @@ public class FlightServiceImpl implements FlightService {
 
 	@Override
 	public Mono<Flight> searchFlightById(String flightId) {
-		return flightRepository.findById(flightId).switchIfEmpty(Mono.error(new RuntimeException(FLIGHT_NOT_FOUND)));
+		return flightRepository.findById(flightId)
+				.switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, FLIGHT_NOT_FOUND)));
+	}
+
+	@Override
+	public Flux<Flight> getFlightsByIds(List<String> flightIds) {
+		if (flightIds == null || flightIds.isEmpty()) {
+			return Flux.empty();
+		}
+		if (flightIds.size() > MAX_BATCH_IDS) {
+			return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+					"At most " + MAX_BATCH_IDS + " flight ids per request"));
+		}
+		// findAllById issues a single $in query; unknown ids are simply absent from the result.
+		return flightRepository.findAllById(flightIds.stream().distinct().toList());
 	}
 
 	@Override
 	public Flux<Flight> searchFlights(String from, String to, LocalDateTime start, LocalDateTime end) {
+		if (searchIndex.isReady() && start != null && end != null) {
+			return Flux.defer(() -> Flux.fromIterable(searchIndex.search(from, to, start, end)));
+		}
 		return flightRepository.findByFromPlaceAndToPlaceAndDepartureTimeBetween(from, to, start, end);
 	}
 
 	@Override
 	public Flux<Flight> searchFlightsByAirline(String fromPlace, String toPlace, String airline) {
+		if (searchIndex.isReady() && airline != null) {
+			return Flux.defer(() -> Flux.fromIterable(searchIndex.searchByAirline(fromPlace, toPlace, airline)));
+		}
 		return flightRepository.findByFromPlaceAndToPlaceAndAirline(fromPlace, toPlace, airline);
 	}
 
+	@Override
+	public Mono<FlightPage> searchFlightsPage(String from, String to, LocalDateTime start, LocalDateTime end,
+			String cursor, int size) {
+		if (size <= 0) {
+			return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, INVALID_PAGE_SIZE));
+		}
+		FlightCursor after;
+		try {
+			after = FlightCursor.decode(cursor);
+		} catch (ResponseStatusException e) {
+			return Mono.error(e);
+		}
+		int pageSize = Math.min(size, MAX_PAGE_SIZE);
+
+		// One extra row tells us whether another page exists.
+		if (searchIndex.isReady() && start != null && end != null) {
+			return toPage(Flux.defer(
+					() -> Flux.fromIterable(searchIndex.searchPage(from, to, start, end, after, pageSize + 1))),
+					pageSize);
+		}
+		return toPage(flightRepository.findPage(from, to, start, end, after, pageSize + 1), pageSize);
+	}
+
+	@Override
+	public Mono<FlightPage> getAllFlightsPage(String cursor, int size) {
+		if (size <= 0) {
+			return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, INVALID_PAGE_SIZE));
+		}
+		FlightCursor after;
+		try {
+			after = FlightCursor.decode(cursor);
+		} catch (ResponseStatusException e) {
+			return Mono.error(e);
+		}
+		int pageSize = Math.min(size, MAX_PAGE_SIZE);
+		return toPage(flightRepository.findPage(null, null, null, null, after, pageSize + 1), pageSize);
+	}
+
+	private Mono<FlightPage> toPage(Flux<Flight> rows, int pageSize) {
+		return rows.collectList().map(flights -> {
+			if (flights.size() <= pageSize) {
+				return new FlightPage(flights, null);
+			}
+			List<Flight> page = flights.subList(0, pageSize);
+			return new FlightPage(page, FlightCursor.after(page.get(pageSize - 1)).encode());
+		});
+	}
+
 	@Override
 	public Mono<Flight> reserveSeats(String flightId, int seatCount) {
-		return flightRepository.findById(flightId).switchIfEmpty(Mono.error(new RuntimeException(FLIGHT_NOT_FOUND)))
-				.flatMap(flight -> {
-					if (flight.getAvailableSeats() < seatCount) {
-						return Mono.error(new RuntimeException(NOT_ENOUGH_SEATS));
-					}
-					flight.setAvailableSeats(flight.getAvailableSeats() - seatCount);
-					return flightRepository.save(flight);
-				});
+		if (seatCount <= 0) {
+			return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, INVALID_SEAT_COUNT));
+		}
+		return flightRepository.reserveSeatsIfAvailable(flightId, seatCount)
+				.switchIfEmpty(Mono.defer(() -> conditionFailed(flightId, NOT_ENOUGH_SEATS)))
+				.doOnNext(searchIndex::put);
 	}
 
 	@Override
 	public Mono<Flight> releaseSeats(String flightId, int seatCount) {
-		return flightRepository.findById(flightId).switchIfEmpty(Mono.error(new RuntimeException(FLIGHT_NOT_FOUND)))
-				.flatMap(flight -> {
-					flight.setAvailableSeats(flight.getAvailableSeats() + seatCount);
-					return flightRepository.save(flight);
-				});
+		if (seatCount <= 0) {
+			return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, INVALID_SEAT_COUNT));
+		}
+		return flightRepository.releaseSeatsIfBounded(flightId, seatCount)
+				.switchIfEmpty(Mono.defer(() -> conditionFailed(flightId, SEATS_EXCEED_TOTAL)))
+				.doOnNext(searchIndex::put);
+	}
+
+	@Override
+	public Mono<Flight> reserveSeats(String flightId, int seatCount, String reservationId) {
+		if (reservationId == null) {
+			return reserveSeats(flightId, seatCount);
+		}
+		if (seatCount <= 0) {
+			return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, INVALID_SEAT_COUNT));
+		}
+		return flightRepository.reserveSeatsOnce(flightId, seatCount, reservationId)
+				.switchIfEmpty(Mono.defer(() -> conditionFailed(flightId, NOT_ENOUGH_SEATS)))
+				.doOnNext(searchIndex::put);
+	}
+
+	@Override
+	public Mono<Flight> releaseSeats(String flightId, int seatCount, String reservationId) {
+		if (reservationId == null) {
+			return releaseSeats(flightId, seatCount);
+		}
+		if (seatCount <= 0) {
+			return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, INVALID_SEAT_COUNT));
+		}
+		return releaseOnce(flightId, seatCount, reservationId).doOnNext(searchIndex::put);
+	}
+
+	@Override
+	public Mono<Flight> releaseSeats(String flightId, List<SeatRelease> releases) {
+		if (releases == null || releases.isEmpty()) {
+			return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "No releases given"));
+		}
+		if (releases.size() > MAX_BATCH_IDS) {
+			return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+					"At most " + MAX_BATCH_IDS + " releases per request"));
+		}
+		if (releases.stream().anyMatch(release -> release.seatCount() <= 0)) {
+			return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, INVALID_SEAT_COUNT));
+		}
+		// Each release stays its own conditional update, so a retried batch skips the ones already applied.
+		return Flux.fromIterable(releases)
+				.concatMap(release -> release.reservationId() == null
+						? flightRepository.releaseSeatsIfBounded(flightId, release.seatCount())
+								.switchIfEmpty(Mono.defer(() -> conditionFailed(flightId, SEATS_EXCEED_TOTAL)))
+						: releaseOnce(flightId, release.seatCount(), release.reservationId()))
+				.last()
+				.doOnNext(searchIndex::put);
+	}
+
+	private Mono<Flight> releaseOnce(String flightId, int seatCount, String reservationId) {
+		return flightRepository.releaseReservation(flightId, seatCount, reservationId)
+				.switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, FLIGHT_NOT_FOUND)));
+	}
+
+	// Only reached when the conditional update matched nothing, so the extra lookup
+	// stays off the happy path.
+	private Mono<Flight> conditionFailed(String flightId, String reason) {
+		return flightRepository.existsById(flightId)
+				.flatMap(exists -> Mono.error(exists ? new ResponseStatusException(HttpStatus.CONFLICT, reason)
+						: new ResponseStatusException(HttpStatus.NOT_FOUND, FLIGHT_NOT_FOUND)));
+	}
+
+	private record PendingRow(int position, Flight flight, BulkRowResult result) {
 	}
-}
\ No newline at end of file
+}
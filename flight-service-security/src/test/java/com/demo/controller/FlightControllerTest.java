@@ -7,6 +7,7 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Map;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -17,7 +18,11 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import com.flightapp.controller.FlightController;
+import com.flightapp.dto.BulkIngestResult;
+import com.flightapp.dto.BulkRowResult;
+import com.flightapp.dto.FlightPage;
 import com.flightapp.dto.FlightSearchRequest;
+import com.flightapp.dto.SeatRelease;
 import com.flightapp.model.Flight;
 import com.flightapp.service.FlightService;
 
@@ -116,16 +121,27 @@ class FlightControllerTest {
 		verify(flightService).searchFlightById("f1");
 	}
 
+	@Test
+	void getFlightsByIds_shouldCallService() {
+		Flight flight = new Flight();
+		flight.setId("f1");
+
+		when(flightService.getFlightsByIds(List.of("f1", "f2"))).thenReturn(Flux.just(flight));
+
+		StepVerifier.create(flightController.getFlightsByIds(List.of("f1", "f2"))).expectNext(flight)
+				.verifyComplete();
+	}
+
 	@Test
 	void reserveSeats_shouldCallService() {
 		Flight f = new Flight();
 		f.setId("f1");
 
-		when(flightService.reserveSeats("f1", 2)).thenReturn(Mono.just(f));
+		when(flightService.reserveSeats("f1", 2, "R1")).thenReturn(Mono.just(f));
 
-		StepVerifier.create(flightController.reserveSeats("f1", 2)).expectNext(f).verifyComplete();
+		StepVerifier.create(flightController.reserveSeats("f1", 2, "R1")).expectNext(f).verifyComplete();
 
-		verify(flightService).reserveSeats("f1", 2);
+		verify(flightService).reserveSeats("f1", 2, "R1");
 	}
 
 	@Test
@@ -133,10 +149,55 @@ class FlightControllerTest {
 		Flight f = new Flight();
 		f.setId("f1");
 
-		when(flightService.releaseSeats("f1", 2)).thenReturn(Mono.just(f));
+		when(flightService.releaseSeats("f1", 2, "R1")).thenReturn(Mono.just(f));
+
+		StepVerifier.create(flightController.releaseSeats("f1", 2, "R1")).expectNext(f).verifyComplete();
+
+		verify(flightService).releaseSeats("f1", 2, "R1");
+	}
+
+	@Test
+	void releaseSeatsBatch_shouldCallService() {
+		Flight f = new Flight();
+		f.setId("f1");
+		List<SeatRelease> releases = List.of(new SeatRelease("R1", 2), new SeatRelease("R2", 1));
+
+		when(flightService.releaseSeats("f1", releases)).thenReturn(Mono.just(f));
+
+		StepVerifier.create(flightController.releaseSeats("f1", releases)).expectNext(f).verifyComplete();
+	}
 
-		StepVerifier.create(flightController.releaseSeats("f1", 2)).expectNext(f).verifyComplete();
+	@Test
+	void searchFlightsPage_shouldPassCursorAndSize() {
+		LocalDateTime start = LocalDateTime.parse("2025-12-01T10:00");
+		LocalDateTime end = LocalDateTime.parse("2025-12-01T20:00");
+
+		FlightSearchRequest request = new FlightSearchRequest();
+		request.setFromPlace("BLR");
+		request.setToPlace("DEL");
+		request.setStartTime(start);
+		request.setEndTime(end);
+
+		FlightPage page = new FlightPage(List.of(new Flight()), "next");
+		when(flightService.searchFlightsPage("BLR", "DEL", start, end, "abc", 20)).thenReturn(Mono.just(page));
+
+		StepVerifier.create(flightController.searchFlightsPage(request, "abc", 20)).expectNext(page).verifyComplete();
+	}
+
+	@Test
+	void getAllFlightsPage_shouldCallService() {
+		FlightPage page = new FlightPage(List.of(), null);
+		when(flightService.getAllFlightsPage(null, 50)).thenReturn(Mono.just(page));
+
+		StepVerifier.create(flightController.getAllFlightsPage(null, 50)).expectNext(page).verifyComplete();
+	}
+
+	@Test
+	void addInventoryBulk_shouldDelegateToService() {
+		Flux<Flight> flights = Flux.just(new Flight());
+		BulkIngestResult result = new BulkIngestResult(1, 0, 0, List.of(BulkRowResult.accepted(0, "f1")));
+		when(flightService.addFlights(flights)).thenReturn(Mono.just(result));
 
-		verify(flightService).releaseSeats("f1", 2);
+		StepVerifier.create(flightController.addInventoryBulk(flights)).expectNext(result).verifyComplete();
 	}
 }
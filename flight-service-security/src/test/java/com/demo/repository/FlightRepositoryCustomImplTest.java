@@ -0,0 +1,85 @@
+package com.demo.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+
+import com.flightapp.model.Flight;
+import com.flightapp.repository.FlightRepositoryCustomImpl;
+
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+class FlightRepositoryCustomImplTest {
+
+	private ReactiveMongoTemplate mongoTemplate;
+	private FlightRepositoryCustomImpl repository;
+	private Flight flight;
+
+	@BeforeEach
+	void setUp() {
+		mongoTemplate = mock(ReactiveMongoTemplate.class);
+		repository = new FlightRepositoryCustomImpl(mongoTemplate);
+		flight = new Flight();
+		flight.setId("F1");
+	}
+
+	@Test
+	void reserveSeatsOnce_refusesReleasedReservation() {
+		when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class),
+				any(FindAndModifyOptions.class), eq(Flight.class))).thenReturn(Mono.empty());
+		when(mongoTemplate.findOne(any(Query.class), eq(Flight.class))).thenReturn(Mono.empty());
+
+		StepVerifier.create(repository.reserveSeatsOnce("F1", 2, "S1")).verifyComplete();
+
+		ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+		verify(mongoTemplate).findAndModify(query.capture(), any(UpdateDefinition.class),
+				any(FindAndModifyOptions.class), eq(Flight.class));
+		assertThat(query.getValue().getQueryObject().get("releasedReservationIds"))
+				.isEqualTo(new Document("$ne", "S1"));
+	}
+
+	@Test
+	void releaseReservation_notApplied_recordsTombstoneWithoutReleasingSeats() {
+		ArgumentCaptor<UpdateDefinition> updates = ArgumentCaptor.forClass(UpdateDefinition.class);
+		when(mongoTemplate.findAndModify(any(Query.class), updates.capture(), any(FindAndModifyOptions.class),
+				eq(Flight.class))).thenReturn(Mono.empty(), Mono.just(flight));
+
+		StepVerifier.create(repository.releaseReservation("F1", 2, "S1")).expectNext(flight).verifyComplete();
+
+		List<UpdateDefinition> applied = updates.getAllValues();
+		assertThat(applied).hasSize(2);
+		assertThat(applied.get(0).getUpdateObject()).containsKey("$inc");
+		assertThat(applied.get(1).getUpdateObject()).containsOnlyKeys("$push");
+		verify(mongoTemplate, never()).findById(any(), eq(Flight.class));
+	}
+
+	@Test
+	void releaseReservation_reserveLandsBeforeTombstone_releasesOnSecondPass() {
+		when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class),
+				any(FindAndModifyOptions.class), eq(Flight.class)))
+				.thenReturn(Mono.empty(), Mono.empty(), Mono.just(flight));
+
+		StepVerifier.create(repository.releaseReservation("F1", 2, "S1")).expectNext(flight).verifyComplete();
+
+		verify(mongoTemplate, times(3)).findAndModify(any(Query.class), any(UpdateDefinition.class),
+				any(FindAndModifyOptions.class), eq(Flight.class));
+	}
+}
@@ -0,0 +1,160 @@
+package com.demo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.flightapp.dto.FlightCursor;
+import com.flightapp.model.Flight;
+import com.flightapp.repository.FlightRepository;
+import com.flightapp.service.FlightSearchIndex;
+
+import reactor.core.publisher.Flux;
+
+class FlightSearchIndexTest {
+
+	private static final LocalDateTime BASE = LocalDateTime.of(2030, 1, 1, 10, 0);
+
+	private FlightRepository flightRepository;
+	private FlightSearchIndex index;
+
+	@BeforeEach
+	void setUp() {
+		flightRepository = mock(FlightRepository.class);
+		index = new FlightSearchIndex(flightRepository, true, 1);
+	}
+
+	private Flight flight(String id, String airline, String from, String to, LocalDateTime departure, int seats) {
+		Flight f = new Flight();
+		f.setId(id);
+		f.setAirline(airline);
+		f.setFromPlace(from);
+		f.setToPlace(to);
+		f.setDepartureTime(departure);
+		f.setArrivalTime(departure.plusHours(2));
+		f.setTotalSeats(100);
+		f.setAvailableSeats(seats);
+		f.setPrice(3000);
+		return f;
+	}
+
+	@Test
+	void load_marksIndexReadyAndServesRangeQueries() {
+		when(flightRepository.findAll()).thenReturn(Flux.just(
+				flight("F1", "Indigo", "BLR", "DEL", BASE, 50),
+				flight("F2", "Vistara", "BLR", "DEL", BASE.plusHours(3), 50),
+				flight("F3", "Indigo", "BLR", "HYD", BASE.plusHours(1), 50)));
+
+		assertThat(index.isReady()).isFalse();
+		index.load();
+
+		assertThat(index.isReady()).isTrue();
+		assertThat(index.search("BLR", "DEL", BASE.minusHours(1), BASE.plusHours(4)))
+				.extracting(Flight::getId).containsExactly("F1", "F2");
+	}
+
+
+	@Test
+	void load_retriesUntilMongoAnswers() throws InterruptedException {
+		when(flightRepository.findAll())
+				.thenReturn(Flux.error(new IllegalStateException("mongo down")))
+				.thenReturn(Flux.just(flight("F1", "Indigo", "BLR", "DEL", BASE, 50)));
+
+		index.load();
+
+		for (int i = 0; i < 500 && !index.isReady(); i++) {
+			Thread.sleep(10);
+		}
+		assertThat(index.isReady()).isTrue();
+		assertThat(index.search("BLR", "DEL", BASE.minusHours(1), BASE.plusHours(1)))
+				.extracting(Flight::getId).containsExactly("F1");
+	}
+
+	@Test
+	void search_boundsAreExclusiveLikeMongoBetween() {
+		index.put(flight("F1", "Indigo", "BLR", "DEL", BASE, 50));
+		index.put(flight("F2", "Indigo", "BLR", "DEL", BASE.plusHours(2), 50));
+
+		assertThat(index.search("BLR", "DEL", BASE, BASE.plusHours(2))).isEmpty();
+		assertThat(index.search("BLR", "DEL", BASE.minusSeconds(1), BASE.plusHours(2).plusSeconds(1)))
+				.extracting(Flight::getId).containsExactly("F1", "F2");
+	}
+
+	@Test
+	void searchPage_continuesAfterCursor() {
+		index.put(flight("F1", "Indigo", "BLR", "DEL", BASE, 50));
+		index.put(flight("F2", "Indigo", "BLR", "DEL", BASE, 50));
+		index.put(flight("F3", "Indigo", "BLR", "DEL", BASE.plusHours(1), 50));
+
+		LocalDateTime start = BASE.minusHours(1);
+		LocalDateTime end = BASE.plusHours(2);
+		assertThat(index.searchPage("BLR", "DEL", start, end, null, 2)).extracting(Flight::getId)
+				.containsExactly("F1", "F2");
+		assertThat(index.searchPage("BLR", "DEL", start, end, new FlightCursor(BASE, "F1"), 2))
+				.extracting(Flight::getId).containsExactly("F2", "F3");
+		assertThat(index.searchPage("BLR", "DEL", start, end, new FlightCursor(BASE.plusHours(1), "F3"), 2))
+				.isEmpty();
+	}
+
+	@Test
+	void put_replacesExistingEntry() {
+		index.put(flight("F1", "Indigo", "BLR", "DEL", BASE, 50));
+		index.put(flight("F1", "Indigo", "BLR", "DEL", BASE, 48));
+
+		assertThat(index.searchByAirline("BLR", "DEL", "Indigo")).singleElement()
+				.extracting(Flight::getAvailableSeats).isEqualTo(48);
+	}
+
+	@Test
+	void put_keepsNewerRevisionWhenOlderWriteArrivesLate() {
+		Flight newer = flight("F1", "Indigo", "BLR", "DEL", BASE, 46);
+		newer.setRevision(3);
+		Flight older = flight("F1", "Indigo", "BLR", "DEL", BASE, 48);
+		older.setRevision(2);
+
+		index.put(newer);
+		index.put(older);
+
+		assertThat(index.searchByAirline("BLR", "DEL", "Indigo")).singleElement()
+				.extracting(Flight::getAvailableSeats).isEqualTo(46);
+	}
+
+	@Test
+	void load_doesNotOverwriteNewerUpdates() {
+		Flight updated = flight("F1", "Indigo", "BLR", "DEL", BASE, 40);
+		updated.setRevision(5);
+		Flight snapshot = flight("F1", "Indigo", "BLR", "DEL", BASE, 50);
+		snapshot.setRevision(4);
+		when(flightRepository.findAll()).thenReturn(Flux.just(snapshot));
+
+		index.put(updated);
+		index.load();
+
+		assertThat(index.searchByAirline("BLR", "DEL", "Indigo")).singleElement()
+				.extracting(Flight::getAvailableSeats).isEqualTo(40);
+	}
+
+	@Test
+	void searchByAirline_filtersWithinRoute() {
+		index.put(flight("F1", "Indigo", "BLR", "DEL", BASE, 50));
+		index.put(flight("F2", "Vistara", "BLR", "DEL", BASE, 50));
+
+		assertThat(index.searchByAirline("BLR", "DEL", "Vistara")).extracting(Flight::getId).containsExactly("F2");
+		assertThat(index.searchByAirline("DEL", "BLR", "Vistara")).isEmpty();
+	}
+
+	@Test
+	void disabledIndex_neverBecomesReady() {
+		FlightSearchIndex disabled = new FlightSearchIndex(flightRepository, false, 1);
+		disabled.load();
+		disabled.put(flight("F1", "Indigo", "BLR", "DEL", BASE, 50));
+
+		assertThat(disabled.isReady()).isFalse();
+		assertThat(disabled.searchByAirline("BLR", "DEL", "Indigo")).isEmpty();
+	}
+}
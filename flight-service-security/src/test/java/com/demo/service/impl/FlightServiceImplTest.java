@@ -1,23 +1,37 @@
 package com.demo.service.impl;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.IntStream;
 
+import org.bson.BsonDocument;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.server.ResponseStatusException;
 
+import com.flightapp.dto.BulkRowResult;
+import com.flightapp.dto.FlightCursor;
+import com.flightapp.dto.SeatRelease;
+import com.flightapp.exception.InvalidFlightException;
 import com.flightapp.model.Flight;
 import com.flightapp.repository.FlightRepository;
+import com.flightapp.service.FlightSearchIndex;
+import com.mongodb.bulk.BulkWriteError;
 import com.flightapp.service.impl.FlightServiceImpl;
 
 import reactor.core.publisher.Flux;
@@ -30,6 +44,9 @@ class FlightServiceImplTest {
 	@Mock
 	private FlightRepository flightRepository;
 
+	@Mock
+	private FlightSearchIndex searchIndex;
+
 	@InjectMocks
 	private FlightServiceImpl flightService;
 
@@ -65,43 +82,165 @@ class FlightServiceImplTest {
 		StepVerifier.create(flightService.searchFlightById("F1")).expectNext(flight).verifyComplete();
 	}
 
+	@Test
+	void getFlightsByIds_shouldIssueSingleLookupForDistinctIds() {
+		when(flightRepository.findAllById(List.of("F1", "F2"))).thenReturn(Flux.just(flight));
+
+		StepVerifier.create(flightService.getFlightsByIds(List.of("F1", "F2", "F1"))).expectNext(flight)
+				.verifyComplete();
+	}
+
+	@Test
+	void getFlightsByIds_tooManyIds_returnsBadRequest() {
+		List<String> ids = IntStream.range(0, 501).mapToObj(i -> "F" + i).toList();
+
+		StepVerifier.create(flightService.getFlightsByIds(ids))
+				.expectErrorMatches(ex -> ex instanceof ResponseStatusException rse
+						&& rse.getStatusCode() == HttpStatus.BAD_REQUEST)
+				.verify();
+	}
+
 	@Test
 	void reserveSeats_successfulReservation() {
-		when(flightRepository.findById("F1")).thenReturn(Mono.just(flight));
-		when(flightRepository.save(any(Flight.class))).thenAnswer(inv -> Mono.just(inv.getArgument(0)));
+		flight.setAvailableSeats(40);
+		when(flightRepository.reserveSeatsIfAvailable("F1", 10)).thenReturn(Mono.just(flight));
 
 		StepVerifier.create(flightService.reserveSeats("F1", 10)).expectNextMatches(f -> f.getAvailableSeats() == 40)
 				.verifyComplete();
+		verify(flightRepository, never()).save(any());
 	}
 
 	@Test
-	void reserveSeats_notEnoughSeats_shouldReturnError() {
-		when(flightRepository.findById("F1")).thenReturn(Mono.just(flight));
+	void reserveSeats_notEnoughSeats_shouldReturnConflict() {
+		when(flightRepository.reserveSeatsIfAvailable("F1", 1000)).thenReturn(Mono.empty());
+		when(flightRepository.existsById("F1")).thenReturn(Mono.just(true));
 
 		StepVerifier.create(flightService.reserveSeats("F1", 1000))
-				.expectErrorMatches(ex -> ex.getMessage().contains("Not enough seats")).verify();
+				.expectErrorMatches(ex -> ex instanceof ResponseStatusException rse
+						&& rse.getStatusCode() == HttpStatus.CONFLICT && ex.getMessage().contains("Not enough seats"))
+				.verify();
 	}
 
 	@Test
 	void reserveSeats_flightNotFound_returnsError() {
-		when(flightRepository.findById("F1")).thenReturn(Mono.empty());
+		when(flightRepository.reserveSeatsIfAvailable("F1", 10)).thenReturn(Mono.empty());
+		when(flightRepository.existsById("F1")).thenReturn(Mono.just(false));
 
 		StepVerifier.create(flightService.reserveSeats("F1", 10))
 				.expectErrorMatches(ex -> ex.getMessage().contains("Flight not found")).verify();
 	}
 
+	@Test
+	void reserveSeats_nonPositiveCount_returnsBadRequest() {
+		StepVerifier.create(flightService.reserveSeats("F1", 0))
+				.expectErrorMatches(ex -> ex instanceof ResponseStatusException rse
+						&& rse.getStatusCode() == HttpStatus.BAD_REQUEST)
+				.verify();
+		verify(flightRepository, never()).reserveSeatsIfAvailable(anyString(), anyInt());
+	}
+
+	@Test
+	void reserveSeats_withReservationId_appliesOnce() {
+		when(flightRepository.reserveSeatsOnce("F1", 2, "S1")).thenReturn(Mono.just(flight));
+
+		StepVerifier.create(flightService.reserveSeats("F1", 2, "S1")).expectNext(flight).verifyComplete();
+		verify(flightRepository, never()).reserveSeatsIfAvailable(anyString(), anyInt());
+	}
+
+	@Test
+	void reserveSeats_withReservationId_notEnoughSeats_shouldReturnConflict() {
+		when(flightRepository.reserveSeatsOnce("F1", 2, "S1")).thenReturn(Mono.empty());
+		when(flightRepository.existsById("F1")).thenReturn(Mono.just(true));
+
+		StepVerifier.create(flightService.reserveSeats("F1", 2, "S1"))
+				.expectErrorMatches(ex -> ex instanceof ResponseStatusException rse
+						&& rse.getStatusCode() == HttpStatus.CONFLICT)
+				.verify();
+	}
+
+	@Test
+	void releaseSeats_withReservationId_releasesReservation() {
+		when(flightRepository.releaseReservation("F1", 2, "S1")).thenReturn(Mono.just(flight));
+
+		StepVerifier.create(flightService.releaseSeats("F1", 2, "S1")).expectNext(flight).verifyComplete();
+		verify(flightRepository, never()).releaseSeatsIfBounded(anyString(), anyInt());
+	}
+
+	@Test
+	void releaseSeats_withReservationId_flightNotFound_returnsError() {
+		when(flightRepository.releaseReservation("F1", 2, "S1")).thenReturn(Mono.empty());
+
+		StepVerifier.create(flightService.releaseSeats("F1", 2, "S1"))
+				.expectErrorMatches(ex -> ex instanceof ResponseStatusException rse
+						&& rse.getStatusCode() == HttpStatus.NOT_FOUND)
+				.verify();
+	}
+
+	@Test
+	void releaseSeatsBatch_appliesEachReleaseAndIndexesTheLastFlight() {
+		Flight afterFirst = new Flight();
+		when(flightRepository.releaseReservation("F1", 2, "S1")).thenReturn(Mono.just(afterFirst));
+		when(flightRepository.releaseReservation("F1", 1, "S2")).thenReturn(Mono.just(flight));
+
+		StepVerifier.create(flightService.releaseSeats("F1", List.of(new SeatRelease("S1", 2), new SeatRelease("S2", 1))))
+				.expectNext(flight).verifyComplete();
+		verify(searchIndex).put(flight);
+		verify(searchIndex, never()).put(afterFirst);
+	}
+
+	@Test
+	void releaseSeatsBatch_withoutReservationId_releasesBounded() {
+		when(flightRepository.releaseSeatsIfBounded("F1", 3)).thenReturn(Mono.just(flight));
+
+		StepVerifier.create(flightService.releaseSeats("F1", List.of(new SeatRelease(null, 3))))
+				.expectNext(flight).verifyComplete();
+		verify(flightRepository, never()).releaseReservation(anyString(), anyInt(), anyString());
+	}
+
+	@Test
+	void releaseSeatsBatch_invalidSeatCount_returnsBadRequest() {
+		StepVerifier.create(flightService.releaseSeats("F1", List.of(new SeatRelease("S1", 2), new SeatRelease("S2", 0))))
+				.expectErrorMatches(ex -> ex instanceof ResponseStatusException rse
+						&& rse.getStatusCode() == HttpStatus.BAD_REQUEST)
+				.verify();
+		verify(flightRepository, never()).releaseReservation(anyString(), anyInt(), anyString());
+	}
+
+	@Test
+	void releaseSeatsBatch_flightNotFound_returnsError() {
+		when(flightRepository.releaseReservation("F1", 2, "S1")).thenReturn(Mono.empty());
+
+		StepVerifier.create(flightService.releaseSeats("F1", List.of(new SeatRelease("S1", 2), new SeatRelease("S2", 1))))
+				.expectErrorMatches(ex -> ex instanceof ResponseStatusException rse
+						&& rse.getStatusCode() == HttpStatus.NOT_FOUND)
+				.verify();
+		verify(flightRepository, never()).releaseReservation("F1", 1, "S2");
+	}
+
 	@Test
 	void releaseSeats_shouldIncreaseSeatCount() {
-		when(flightRepository.findById("F1")).thenReturn(Mono.just(flight));
-		when(flightRepository.save(any(Flight.class))).thenAnswer(inv -> Mono.just(inv.getArgument(0)));
+		flight.setAvailableSeats(55);
+		when(flightRepository.releaseSeatsIfBounded("F1", 5)).thenReturn(Mono.just(flight));
 
 		StepVerifier.create(flightService.releaseSeats("F1", 5)).expectNextMatches(f -> f.getAvailableSeats() == 55)
 				.verifyComplete();
 	}
 
+	@Test
+	void releaseSeats_beyondTotalSeats_shouldReturnConflict() {
+		when(flightRepository.releaseSeatsIfBounded("F1", 80)).thenReturn(Mono.empty());
+		when(flightRepository.existsById("F1")).thenReturn(Mono.just(true));
+
+		StepVerifier.create(flightService.releaseSeats("F1", 80))
+				.expectErrorMatches(ex -> ex instanceof ResponseStatusException rse
+						&& rse.getStatusCode() == HttpStatus.CONFLICT)
+				.verify();
+	}
+
 	@Test
 	void releaseSeats_flightNotFound_returnsError() {
-		when(flightRepository.findById("F1")).thenReturn(Mono.empty());
+		when(flightRepository.releaseSeatsIfBounded("F1", 5)).thenReturn(Mono.empty());
+		when(flightRepository.existsById("F1")).thenReturn(Mono.just(false));
 
 		StepVerifier.create(flightService.releaseSeats("F1", 5))
 				.expectErrorMatches(ex -> ex.getMessage().contains("Flight not found")).verify();
@@ -118,6 +257,63 @@ class FlightServiceImplTest {
 		StepVerifier.create(flightService.searchFlights("BLR", "DEL", start, end)).expectNext(flight).verifyComplete();
 	}
 
+	@Test
+	void searchFlights_whenIndexReady_shouldNotHitRepository() {
+		LocalDateTime start = LocalDateTime.now();
+		LocalDateTime end = start.plusHours(5);
+
+		when(searchIndex.isReady()).thenReturn(true);
+		when(searchIndex.search("BLR", "DEL", start, end)).thenReturn(List.of(flight));
+
+		StepVerifier.create(flightService.searchFlights("BLR", "DEL", start, end)).expectNext(flight).verifyComplete();
+		verify(flightRepository, never()).findByFromPlaceAndToPlaceAndDepartureTimeBetween(any(), any(), any(), any());
+	}
+
+	@Test
+	void reserveSeats_shouldUpdateSearchIndex() {
+		when(flightRepository.reserveSeatsIfAvailable("F1", 1)).thenReturn(Mono.just(flight));
+
+		StepVerifier.create(flightService.reserveSeats("F1", 1)).expectNext(flight).verifyComplete();
+		verify(searchIndex).put(flight);
+	}
+
+	@Test
+	void searchFlightsPage_shouldReturnCursorWhenMoreRowsExist() {
+		LocalDateTime start = LocalDateTime.now();
+		LocalDateTime end = start.plusDays(1);
+		Flight second = new Flight();
+		second.setId("F2");
+		second.setDepartureTime(flight.getDepartureTime().plusHours(1));
+
+		when(flightRepository.findPage("BLR", "DEL", start, end, null, 2)).thenReturn(Flux.just(flight, second));
+
+		StepVerifier.create(flightService.searchFlightsPage("BLR", "DEL", start, end, null, 1))
+				.assertNext(page -> {
+					assertThat(page.getFlights()).containsExactly(flight);
+					assertThat(FlightCursor.decode(page.getNextCursor())).isEqualTo(FlightCursor.after(flight));
+				}).verifyComplete();
+	}
+
+	@Test
+	void getAllFlightsPage_lastPageHasNoCursorAndSizeIsCapped() {
+		FlightCursor after = FlightCursor.after(flight);
+		when(flightRepository.findPage(null, null, null, null, after, 201)).thenReturn(Flux.just(flight));
+
+		StepVerifier.create(flightService.getAllFlightsPage(after.encode(), 10_000))
+				.assertNext(page -> {
+					assertThat(page.getFlights()).containsExactly(flight);
+					assertThat(page.getNextCursor()).isNull();
+				}).verifyComplete();
+	}
+
+	@Test
+	void getAllFlightsPage_invalidCursor_returnsBadRequest() {
+		StepVerifier.create(flightService.getAllFlightsPage("not-a-cursor", 10))
+				.expectErrorMatches(ex -> ex instanceof ResponseStatusException rse
+						&& rse.getStatusCode() == HttpStatus.BAD_REQUEST)
+				.verify();
+	}
+
 	@Test
 	void searchFlightsByAirline_shouldDelegateToRepository() {
 		when(flightRepository.findByFromPlaceAndToPlaceAndAirline("BLR", "DEL", "Indigo"))
@@ -129,23 +325,77 @@ class FlightServiceImplTest {
 
 	@Test
 	void addFlight_shouldThrowConflictWhenDuplicateExists() {
-		Flight existing = new Flight();
-		existing.setId("123");
-		existing.setAirline("Indigo");
-		existing.setFromPlace("BLR");
-		existing.setToPlace("HYD");
-		existing.setDepartureTime(LocalDateTime.of(2025, 12, 1, 10, 0));
-
 		Flight newFlight = new Flight();
 		newFlight.setAirline("Indigo");
 		newFlight.setFromPlace("BLR");
 		newFlight.setToPlace("HYD");
-		newFlight.setDepartureTime(LocalDateTime.of(2025, 12, 1, 10, 0));
+		newFlight.setDepartureTime(LocalDateTime.now().plusDays(10));
+		newFlight.setArrivalTime(LocalDateTime.now().plusDays(10).plusHours(2));
+		newFlight.setTotalSeats(100);
+		newFlight.setAvailableSeats(100);
+		newFlight.setPrice(2500);
+
+		when(flightRepository.save(any(Flight.class))).thenReturn(Mono.error(new DuplicateKeyException("E11000")));
+
+		StepVerifier.create(flightService.addFlight(newFlight))
+				.expectErrorMatches(ex -> ex instanceof ResponseStatusException rse
+						&& rse.getStatusCode() == HttpStatus.CONFLICT)
+				.verify();
+	}
 
-		when(flightRepository.findByAirlineAndFromPlaceAndToPlaceAndDepartureTime(anyString(), anyString(), anyString(),
-				any(LocalDateTime.class))).thenReturn(Mono.just(existing));
+	@Test
+	void addFlight_invalidFlight_shouldNotTouchRepository() {
+		Flight newFlight = new Flight();
+		newFlight.setAirline("Indigo");
+		newFlight.setFromPlace("BLR");
+		newFlight.setToPlace("blr");
+		newFlight.setDepartureTime(LocalDateTime.now().plusDays(10));
+		newFlight.setArrivalTime(LocalDateTime.now().plusDays(10).plusHours(2));
 
-		StepVerifier.create(flightService.addFlight(newFlight)).expectError(ResponseStatusException.class).verify();
+		StepVerifier.create(flightService.addFlight(newFlight)).expectError(InvalidFlightException.class).verify();
 		verify(flightRepository, never()).save(any());
 	}
-}
\ No newline at end of file
+
+	@Test
+	void addFlights_reportsAcceptedDuplicateAndRejectedRows() {
+		ReflectionTestUtils.setField(flightService, "bulkBatchSize", 2);
+
+		Flight first = futureFlight("Indigo");
+		Flight invalid = futureFlight("Indigo");
+		invalid.setPrice(0);
+		Flight duplicate = futureFlight("Vistara");
+		Flight last = futureFlight("AirIndia");
+
+		// batch 1 = [first, invalid] -> only first is written; batch 2 = [duplicate, last]
+		when(flightRepository.insertUnordered(List.of(first))).thenReturn(Mono.just(List.of()));
+		when(flightRepository.insertUnordered(List.of(duplicate, last))).thenReturn(
+				Mono.just(List.of(new BulkWriteError(11000, "E11000 duplicate key", new BsonDocument(), 0))));
+
+		StepVerifier.create(flightService.addFlights(Flux.just(first, invalid, duplicate, last)))
+				.assertNext(result -> {
+					assertThat(result.getAccepted()).isEqualTo(2);
+					assertThat(result.getDuplicates()).isEqualTo(1);
+					assertThat(result.getRejected()).isEqualTo(1);
+					assertThat(result.getRows()).extracting(BulkRowResult::getStatus).containsExactly(
+							BulkRowResult.Status.ACCEPTED, BulkRowResult.Status.REJECTED,
+							BulkRowResult.Status.DUPLICATE, BulkRowResult.Status.ACCEPTED);
+					assertThat(result.getRows().get(0).getFlightId()).isNotNull();
+				}).verifyComplete();
+		verify(searchIndex).put(first);
+		verify(searchIndex).put(last);
+		verify(searchIndex, never()).put(duplicate);
+	}
+
+	private Flight futureFlight(String airline) {
+		Flight f = new Flight();
+		f.setAirline(airline);
+		f.setFromPlace("BLR");
+		f.setToPlace("DEL");
+		f.setDepartureTime(LocalDateTime.now().plusDays(5));
+		f.setArrivalTime(LocalDateTime.now().plusDays(5).plusHours(2));
+		f.setTotalSeats(100);
+		f.setAvailableSeats(100);
+		f.setPrice(4000);
+		return f;
+	}
+}